@@ -0,0 +1,73 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the modifications of the pages of a book. Each benchmark leaves the book as it found it,
+ * so its size does not drift during the measure: a page added is removed in the same call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BookPagesBenchmark {
+
+	@Param({"100", "10000"})
+	public int pagesPerBook;
+
+	@Param({"2", "10"})
+	public int choicesPerPage;
+
+	private Book book;
+	private Page ending;
+	private List<Page> sourcesOfEnding;
+	private Page extra;
+
+	/**
+	 * Generates the book.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		book = SyntheticLibrary.book(0, pagesPerBook, choicesPerPage);
+		ending = book.getPagesView().get(pagesPerBook - 1);
+		sourcesOfEnding = book.getPagesWithChoicesTo(ending);
+		extra = new Page("extra page");
+	}
+
+	/**
+	 * Inserts a page in the middle of the book, then removes it.
+	 */
+	@Benchmark
+	public int addThenRemovePage() {
+		book.addPage(extra, pagesPerBook / 2);
+		book.removePage(extra);
+		return book.getPageCount();
+	}
+
+	/**
+	 * Removes an ending most pages have a choice to (their choices to it are removed), then puts it back with its choices.
+	 */
+	@Benchmark
+	public int removeThenAddEnding() {
+		book.removePage(ending);
+		book.addPage(ending, pagesPerBook - 1);
+		for (var source : sourcesOfEnding) {
+			source.addChoice("choice 0", ending);
+		}
+		return book.getPageCount();
+	}
+
+	/**
+	 * Updates an ending most pages have a choice to (updatePage puts the page at the end of the book, where it already is).
+	 */
+	@Benchmark
+	public int updatePage() {
+		ending.setContent(ending.getContent());
+		book.updatePage(ending);
+		return book.getPageCount();
+	}
+}
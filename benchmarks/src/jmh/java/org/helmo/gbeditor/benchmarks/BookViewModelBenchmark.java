@@ -0,0 +1,49 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of the view model of a book, alone (as for the books listed by the main view)
+ * and with the view models of its pages (as for the book opened in the details view).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BookViewModelBenchmark {
+
+	@Param({"100", "10000"})
+	public int pagesPerBook;
+
+	@Param({"2", "10"})
+	public int choicesPerPage;
+
+	private Book book;
+
+	/**
+	 * Generates the book.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		book = SyntheticLibrary.book(0, pagesPerBook, choicesPerPage);
+	}
+
+	/**
+	 * Builds the view model of the book.
+	 */
+	@Benchmark
+	public BookViewModel bookOnly() {
+		return new BookViewModel(book);
+	}
+
+	/**
+	 * Builds the view model of the book and of its pages.
+	 */
+	@Benchmark
+	public int withPages() {
+		return new BookViewModel(book).getPages().size();
+	}
+}
@@ -0,0 +1,84 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.ISBN;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing of the isbns (done for every book read), their writing and the check sum computed
+ * on each keystroke of the edition view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class IsbnBenchmark {
+
+	private static final int ISBN_COUNT = 1024;
+
+	private String[] isbns;
+	private String[] prefixes;
+	private ISBN[] parsed;
+	private final StringBuilder builder = new StringBuilder();
+	private int next = 0;
+
+	/**
+	 * Generates the isbns.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		isbns = SyntheticLibrary.isbns(ISBN_COUNT);
+		prefixes = new String[ISBN_COUNT];
+		parsed = new ISBN[ISBN_COUNT];
+		for (int i = 0; i < ISBN_COUNT; i++) {
+			parsed[i] = new ISBN(isbns[i]);
+			prefixes[i] = isbns[i].substring(0, isbns[i].lastIndexOf('-'));
+		}
+	}
+
+	/**
+	 * Parses and checks an isbn.
+	 */
+	@Benchmark
+	public ISBN parse() {
+		next = (next + 1) & (ISBN_COUNT - 1);
+		return new ISBN(isbns[next]);
+	}
+
+	/**
+	 * Checks an isbn without building it.
+	 */
+	@Benchmark
+	public boolean isValid() {
+		next = (next + 1) & (ISBN_COUNT - 1);
+		return ISBN.isValid(isbns[next]);
+	}
+
+	/**
+	 * Computes the check sum of the beginning of an isbn ("9-999999-99").
+	 */
+	@Benchmark
+	public String checkSumOfPrefix() {
+		next = (next + 1) & (ISBN_COUNT - 1);
+		return ISBN.computeCheckSum(prefixes[next]);
+	}
+
+	/**
+	 * Writes an isbn.
+	 */
+	@Benchmark
+	public String format() {
+		next = (next + 1) & (ISBN_COUNT - 1);
+		return parsed[next].toString();
+	}
+
+	/**
+	 * Writes an isbn in a reused builder.
+	 */
+	@Benchmark
+	public int appendTo() {
+		next = (next + 1) & (ISBN_COUNT - 1);
+		builder.setLength(0);
+		return parsed[next].appendTo(builder).length();
+	}
+}
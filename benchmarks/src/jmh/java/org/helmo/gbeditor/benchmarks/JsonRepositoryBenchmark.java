@@ -0,0 +1,82 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.repositories.JsonRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time taken by JsonRepository to load a whole library (with the pages of every book)
+ * and to save it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class JsonRepositoryBenchmark {
+
+	@Param({"10", "100"})
+	public int books;
+
+	@Param({"100", "1000"})
+	public int pagesPerBook;
+
+	@Param({"2"})
+	public int choicesPerPage;
+
+	private Path dir;
+	private Path library;
+	private Set<Book> generated;
+
+	/**
+	 * Writes the library the loads read.
+	 *
+	 * @throws IOException if the temporary directory can not be created
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("gbeditor-jmh");
+		library = dir.resolve("books.json");
+		generated = SyntheticLibrary.generate(books, pagesPerBook, choicesPerPage);
+		new JsonRepository(library, dir.resolve("images")).saveBooks(generated);
+	}
+
+	/**
+	 * Deletes the files of the benchmark.
+	 *
+	 * @throws IOException if a file can not be deleted
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Opens the repository and reads the pages of all its books (they are read on demand).
+	 */
+	@Benchmark
+	public void loadBooks(Blackhole blackhole) {
+		for (var book : new JsonRepository(library, dir.resolve("images")).getBooks()) {
+			blackhole.consume(book.getPagesView().size());
+		}
+	}
+
+	/**
+	 * Rewrites the whole library.
+	 */
+	@Benchmark
+	public boolean saveBooks() {
+		return new JsonRepository(dir.resolve("saved.json"), dir.resolve("images")).saveBooks(generated);
+	}
+}
@@ -0,0 +1,71 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scan of the pages and choices of a book with the copying getters and with the read-only views,
+ * and the construction of the view models of its pages shown by the table of the details view.
+ * The memory allocated by each scan is given by the gc profiler (gc.alloc.rate.norm, in bytes per operation).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ModelScanBenchmark {
+
+	@Param({"2000"})
+	public int pagesPerBook;
+
+	@Param({"3"})
+	public int choicesPerPage;
+
+	private Book book;
+
+	/**
+	 * Generates the book.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		book = SyntheticLibrary.cyclicBook(pagesPerBook, choicesPerPage);
+	}
+
+	/**
+	 * Scans the choices through getPages and getChoices, which copy their collections.
+	 */
+	@Benchmark
+	public int copies() {
+		int count = 0;
+		for (Page page : book.getPages()) {
+			for (Page target : page.getChoices().values()) {
+				count += target == page ? 0 : 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Scans the choices through getPagesView and getChoicesView.
+	 */
+	@Benchmark
+	public int views() {
+		int count = 0;
+		for (Page page : book.getPagesView()) {
+			for (Page target : page.getChoicesView().values()) {
+				count += target == page ? 0 : 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Builds the view models of the pages of the book.
+	 */
+	@Benchmark
+	public int pageViewModels() {
+		return new BookViewModel(book).getPages().size();
+	}
+}
@@ -0,0 +1,165 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.repositories.JdbcRepository;
+import org.helmo.gbeditor.repositories.JsonRepository;
+import org.helmo.gbeditor.repositories.RepositoryInterface;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the repositories writing a whole library, and saving a small modification of one of its books
+ * (a page moved, a choice added or removed), for libraries of 1k, 10k and 100k pages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class RepositoryWriteBenchmark {
+
+	private static final int PAGES_PER_BOOK = 100;
+	private static final String ADDED_CHOICE = "skip";
+
+	@Param({"json", "journal", "jdbc"})
+	public String repository;
+
+	@Param({"1000", "10000", "100000"})
+	public int pages;
+
+	private Path dir;
+	private Set<Book> library;
+	private String savedName;
+	private RepositoryInterface saved;
+	private Book book;
+
+	/**
+	 * Generates the library and saves it in the repository the modifications are saved to.
+	 *
+	 * @throws IOException if the temporary directory can not be created
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("gbeditor-jmh");
+		library = SyntheticLibrary.generate(pages / PAGES_PER_BOOK, PAGES_PER_BOOK, 1);
+		savedName = newName();
+		saved = open(savedName);
+		saved.saveBooks(library);
+		book = library.iterator().next();
+	}
+
+	/**
+	 * Closes the repository and deletes its files.
+	 *
+	 * @throws IOException if a file can not be deleted
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		close(saved, savedName);
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (var file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Writes the whole library in an empty repository.
+	 */
+	@Benchmark
+	public boolean saveLibrary(EmptyRepository empty) {
+		return empty.repository.saveBooks(library);
+	}
+
+	/**
+	 * Swaps the first two pages of a book and saves it (the next call swaps them back).
+	 */
+	@Benchmark
+	public Book movePage() {
+		book.movePageDown(book.getPagesView().get(0));
+		saved.updatesAddBook(book);
+		return book;
+	}
+
+	/**
+	 * Adds a choice to the first page of a book and saves it, the next call removes it.
+	 */
+	@Benchmark
+	public Book addOrRemoveChoice() {
+		var first = book.getPagesView().get(0);
+		if (first.getChoicesView().containsKey(ADDED_CHOICE)) {
+			first.removeChoice(ADDED_CHOICE);
+		} else {
+			first.addChoice(ADDED_CHOICE, book.getPagesView().get(PAGES_PER_BOOK - 2));
+		}
+		saved.updatesAddBook(book);
+		return book;
+	}
+
+	private static String newName() {
+		return "library-" + UUID.randomUUID();
+	}
+
+	private RepositoryInterface open(String name) {
+		switch (repository) {
+			case "json":
+				return new JsonRepository(dir.resolve(name + ".json"), dir);
+			case "journal":
+				return new JsonRepository(dir.resolve(name + ".json"), dir, true);
+			case "jdbc":
+				return new JdbcRepository("jdbc:derby:memory:" + name + ";create=true", dir);
+			default:
+				throw new IllegalArgumentException("Dépôt inconnu : " + repository);
+		}
+	}
+
+	private static void close(RepositoryInterface repo, String name) {
+		repo.flush();
+		if (repo instanceof JdbcRepository) {
+			((JdbcRepository) repo).close();
+			try {
+				DriverManager.getConnection("jdbc:derby:memory:" + name + ";drop=true").close();
+			} catch (SQLException e) {
+				// Derby signale la suppression de la base par une exception
+			}
+		}
+	}
+
+	/**
+	 * A new empty repository for each full write of the library, opened and closed outside of the measure
+	 */
+	@State(Scope.Thread)
+	public static class EmptyRepository {
+		private RepositoryWriteBenchmark benchmark;
+		private String name;
+		private RepositoryInterface repository;
+
+		/**
+		 * Opens the empty repository.
+		 *
+		 * @param benchmark the state of the benchmark, giving the type of repository
+		 */
+		@Setup(Level.Invocation)
+		public void open(RepositoryWriteBenchmark benchmark) {
+			this.benchmark = benchmark;
+			this.name = newName();
+			this.repository = benchmark.open(name);
+		}
+
+		/**
+		 * Closes the repository written, its files are deleted with the others at the end of the trial.
+		 */
+		@TearDown(Level.Invocation)
+		public void close() {
+			RepositoryWriteBenchmark.close(repository, name);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package org.helmo.gbeditor.benchmarks;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.ISBN;
+import org.helmo.gbeditor.models.Page;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SyntheticLibrary generates the libraries the benchmarks work on: always the same books for the same sizes.
+ * <p>
+ * The last pages of each book are its endings and every other page has its choices towards them.
+ * A book whose choices form cycles can also be generated (the json format writes the destination of a choice
+ * as a reference to the page, so cycles and long chains of choices can be saved as well).
+ */
+final class SyntheticLibrary {
+
+	private static final int BOOKS_PER_AUTHOR = 100;
+	private static final int FIRST_AUTHOR_ID = 100_000;
+
+	private SyntheticLibrary() {
+		// Classe utilitaire
+	}
+
+	/**
+	 * Generates a library
+	 *
+	 * @param books          the number of books
+	 * @param pagesPerBook   the number of pages of each book
+	 * @param choicesPerPage the number of choices of each page that is not an ending
+	 * @return the books, in the order of their generation
+	 */
+	static Set<Book> generate(int books, int pagesPerBook, int choicesPerPage) {
+		Set<Book> library = new LinkedHashSet<>();
+		for (int b = 0; b < books; b++) {
+			library.add(book(b, pagesPerBook, choicesPerPage));
+		}
+		return library;
+	}
+
+	/**
+	 * Generates one book of the library
+	 *
+	 * @param number         the number of the book in the library (from 0)
+	 * @param pagesPerBook   the number of pages of the book
+	 * @param choicesPerPage the number of choices of each page that is not an ending
+	 * @return the book
+	 */
+	static Book book(int number, int pagesPerBook, int choicesPerPage) {
+		int idAuthor = FIRST_AUTHOR_ID + number / BOOKS_PER_AUTHOR;
+		var author = new Author("name" + idAuthor, "firstName", idAuthor);
+		var book = new Book("title " + number, author, "summary " + number, new ISBN(2, idAuthor, number % BOOKS_PER_AUTHOR).toString());
+		List<Page> pages = new ArrayList<>(pagesPerBook);
+		for (int p = 0; p < pagesPerBook; p++) {
+			var page = new Page("page " + p + " of book " + number);
+			book.addPage(page, p);
+			pages.add(page);
+		}
+		int endings = Math.max(1, Math.min(choicesPerPage, pagesPerBook - 1));
+		for (int p = 0; p < pagesPerBook - endings; p++) {
+			for (int c = 0; c < endings; c++) {
+				pages.get(p).addChoice("choice " + c, pages.get(pagesPerBook - 1 - c));
+			}
+		}
+		return book;
+	}
+
+	/**
+	 * Generates a book without ending: each page has its choices towards the pages following it,
+	 * the last pages towards the first ones.
+	 *
+	 * @param pagesPerBook   the number of pages of the book
+	 * @param choicesPerPage the number of choices of each page
+	 * @return the book
+	 */
+	static Book cyclicBook(int pagesPerBook, int choicesPerPage) {
+		var author = new Author("name" + FIRST_AUTHOR_ID, "firstName", FIRST_AUTHOR_ID);
+		var book = new Book("cyclic book", author, "summary", new ISBN(2, FIRST_AUTHOR_ID, 0).toString());
+		List<Page> pages = new ArrayList<>(pagesPerBook);
+		for (int p = 0; p < pagesPerBook; p++) {
+			var page = new Page("page " + p);
+			book.addPage(page, p);
+			pages.add(page);
+		}
+		int choices = Math.min(choicesPerPage, pagesPerBook - 1);
+		for (int p = 0; p < pagesPerBook; p++) {
+			for (int c = 1; c <= choices; c++) {
+				pages.get(p).addChoice("choice " + c, pages.get((p + c) % pagesPerBook));
+			}
+		}
+		return book;
+	}
+
+	/**
+	 * Generates valid isbns, as they are written in the books
+	 *
+	 * @param count the number of isbns
+	 * @return the isbns
+	 */
+	static String[] isbns(int count) {
+		var result = new String[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = new ISBN(i % 10, FIRST_AUTHOR_ID + i / BOOKS_PER_AUTHOR, i % BOOKS_PER_AUTHOR).toString();
+		}
+		return result;
+	}
+}
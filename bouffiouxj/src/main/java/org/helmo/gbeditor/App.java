@@ -1,6 +1,7 @@
 package org.helmo.gbeditor;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -23,6 +24,8 @@ import java.util.Objects;
  */
 public class App extends Application {
 
+	private RepositoryInterface repo;
+
 	/**
 	 * Starts the application.
 	 *
@@ -32,13 +35,14 @@ public class App extends Application {
 		launch(args);
 	}
 
-	private Map<ViewsEnum, ViewInterface> initViews(RepositoryInterface repo) {
+	private Map<ViewsEnum, ViewInterface> initViews(RepositoryInterface repo, CoverImages covers) {
 		ConnexionPresenter connexionPr = new ConnexionPresenter(repo);
 		ConnexionViewInterface connexionVw = new ConnexionView(connexionPr);
 		BookDetailsPresenter bookDetailsPr = new BookDetailsPresenter(repo);
-		new BookDetailsView(bookDetailsPr);
+		repo.addSaveListener(bookDetailsPr);
+		new BookDetailsView(bookDetailsPr, covers);
 		MainPresenter mainPr = new MainPresenter(repo, bookDetailsPr);
-		MainViewInterface mainVw = new MainView(mainPr);
+		MainViewInterface mainVw = new MainView(mainPr, covers);
 		EditBookPresenter createBookPr = new EditBookPresenter(repo);
 		EditBookViewInterface createBookVw = new EditBookView(createBookPr);
 		return new HashMap<>() {
@@ -60,8 +64,9 @@ public class App extends Application {
 	public void start(Stage primaryStage) {
 		Path bookPath = Path.of(System.getProperty("user.home") + "/ue36/e190740.json");
 		Path imgDirPath = Path.of(System.getProperty("user.home") + "/ue36/images_e190740");
-		RepositoryInterface repo = new JsonRepository(bookPath, imgDirPath);
-		ViewInterface mainView = new BaseView(initViews(repo));
+		Path thumbnailDirPath = imgDirPath.resolveSibling(imgDirPath.getFileName() + "_thumbnails");
+		repo = new JsonRepository(bookPath, imgDirPath, true, Platform::runLater);
+		ViewInterface mainView = new BaseView(initViews(repo, new CoverImages(thumbnailDirPath)));
 		Parent root = mainView.getRoot();
 		Scene scene = new Scene(root, 400, 515);
 		scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/styles.css")).toExternalForm());
@@ -69,4 +74,15 @@ public class App extends Application {
 		primaryStage.setScene(scene);
 		primaryStage.show();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * This method is called when the application is closed.
+	 * It waits for the modifications still being written.
+	 */
+	@Override
+	public void stop() {
+		if (repo != null) {
+			repo.flush();
+		}
+	}
+}
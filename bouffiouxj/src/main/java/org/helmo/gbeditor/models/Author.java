@@ -14,7 +14,9 @@ public class Author {
 	private static final int MATRICULE_LENGTH = 6;
 
 	/**
-	 * Constructor of the Author class
+	 * Constructor of the Author class.
+	 * The identifier is drawn at random without looking at the other authors: the authors of the application
+	 * are registered by the repository, which gives them an identifier no other author uses.
 	 *
 	 * @param name      the name of the author
 	 * @param firstName the first name of the author
@@ -26,7 +28,14 @@ public class Author {
 		this.identifier = computeIdentifier();
 	}
 
-	private static void checkValidity(String name, String firstName) {
+	/**
+	 * Checks the names of an author.
+	 *
+	 * @param name      the name of the author
+	 * @param firstName the first name of the author
+	 * @throws IllegalAuthorNameException if a name is null or blank
+	 */
+	public static void checkValidity(String name, String firstName) {
 		if (name == null || firstName == null || name.isBlank() || firstName.isBlank()) {
 			throw new IllegalAuthorNameException();
 		}
@@ -6,6 +6,7 @@ import org.helmo.gbeditor.models.exceptions.NotEnoughPagesException;
 import org.helmo.gbeditor.models.exceptions.PageNotInBookException;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Book class which represents a book in the GBEditor
@@ -14,6 +15,14 @@ public class Book {
 	private final BookMetadata metadata;
 	private final List<Page> pages = new ArrayList<>();
 	private boolean isPublished = false;
+	private transient Supplier<List<Page>> pageLoader = null;
+	private transient int deferredPageCount = 0;
+	private final transient IncomingChoices incomingChoices = new IncomingChoices();
+	private final transient List<Page> pagesView = Collections.unmodifiableList(pages);
+	private final transient Map<String, Integer> positions = new HashMap<>();
+	private transient int positionsValidUntil = 0;
+	private transient long pageChanges = 0;
+	private transient BookAnalysis analysis = null;
 
 	/**
 	 * Constructor of the Book class (computes the ISBN later)
@@ -110,10 +119,10 @@ public class Book {
 		if (isPublished) {
 			throw new CannotUpdatePublishedBookException();
 		}
-		if (page != null && !pages.contains(page)) {
-			if (pos < 0) pages.add(0, page);
-			else if (pos > pages.size()) pages.add(page);
-			else pages.add(pos, page);
+		loadPages();
+		if (page != null && indexOf(page) < 0) {
+			insertAt(Math.max(0, Math.min(pos, pages.size())), page);
+			incomingChoices.attach(page);
 		} else {
 			throw new IllegalPageException();
 		}
@@ -126,8 +135,12 @@ public class Book {
 		if (isPublished) {
 			throw new CannotUpdatePublishedBookException();
 		}
-		pages.remove(page);
-		removeChoicesToPage(page);
+		loadPages();
+		int index = indexOf(page);
+		if (index >= 0) {
+			incomingChoices.detach(removeAt(index));
+			removeChoicesToPage(page);
+		}
 	}
 
 	/**
@@ -136,9 +149,20 @@ public class Book {
 	 * @return the pages of the book
 	 */
 	public List<Page> getPages() {
+		loadPages();
 		return new ArrayList<>(pages);
 	}
 
+	/**
+	 * Getter for the pages of the book without copying them
+	 *
+	 * @return an unmodifiable view of the pages, following the modifications of the book
+	 */
+	public List<Page> getPagesView() {
+		loadPages();
+		return pagesView;
+	}
+
 	/**
 	 * This method is used to get a c representation of the book (as a string)
 	 *
@@ -146,6 +170,7 @@ public class Book {
 	 */
 	@Override
 	public String toString() {
+		loadPages();
 		return String.format("Book{%s" + " pages=%s}", metadata, pages);
 	}
 
@@ -158,31 +183,36 @@ public class Book {
 		if (isPublished) {
 			throw new CannotUpdatePublishedBookException();
 		}
-		var oldPages = new HashSet<>(pages);
-		for (Page p : oldPages) {
-			if (p.equals(page)) {
-				pages.remove(p);
-				pages.add(page);
-				updateChoicesToPage(page);
-				break;
-			}
+		loadPages();
+		int index = indexOf(page);
+		if (index >= 0) {
+			incomingChoices.detach(removeAt(index));
+			insertAt(pages.size(), page);
+			incomingChoices.attach(page);
+			updateChoicesToPage(page);
 		}
 	}
 
 	private void removeChoicesToPage(Page page) {
-		pages.stream().filter(p -> p.getChoices().containsValue(page)).forEach(p -> p.getChoices().forEach((k, v) -> {
-			if (v.equals(page)) {
-				p.removeChoice(k);
-			}
-		}));
+		for (var source : incomingChoices.sourcesOf(page)) {
+			choicesTo(source, page).forEach(source::removeChoice);
+		}
 	}
 
 	private void updateChoicesToPage(Page page) {
-		pages.stream().filter(p -> p.getChoices().containsValue(page)).forEach(p -> p.getChoices().forEach((k, v) -> {
-			if (v.equals(page)) {
-				p.updateChoice(k, page);
+		for (var source : incomingChoices.sourcesOf(page)) {
+			choicesTo(source, page).forEach(label -> source.updateChoice(label, page));
+		}
+	}
+
+	private static List<String> choicesTo(Page source, Page target) {
+		List<String> labels = new ArrayList<>();
+		source.forEachChoice((label, destination) -> {
+			if (destination.equals(target)) {
+				labels.add(label);
 			}
-		}));
+		});
+		return labels;
 	}
 
 	/**
@@ -192,8 +222,24 @@ public class Book {
 	 * @return the number of the page corresponding to its position in the book (starting at 1)
 	 */
 	public int getPageNumber(Page page) {
-		if (pages.contains(page)) {
-			return pages.indexOf(page) + 1;
+		loadPages();
+		int index = indexOf(page);
+		if (index >= 0) {
+			return index + 1;
+		}
+		throw new PageNotInBookException();
+	}
+
+	/**
+	 * This method is used to get the number of a page in the book from its id
+	 *
+	 * @param id the id of the page
+	 * @return the number of the page corresponding to its position in the book (starting at 1)
+	 */
+	public int getPageNumberById(String id) {
+		int index = indexOfId(id);
+		if (index >= 0) {
+			return index + 1;
 		}
 		throw new PageNotInBookException();
 	}
@@ -208,12 +254,9 @@ public class Book {
 		if (id == null || id.isBlank()) {
 			throw new IllegalArgumentException();
 		}
-		for (var p : pages) {
-			if (Objects.equals(p.getId(), id)) {
-				return p;
-			}
-		}
-		return null;
+		loadPages();
+		int index = indexOfId(id);
+		return index < 0 ? null : pages.get(index);
 	}
 
 	/**
@@ -232,7 +275,19 @@ public class Book {
 	 * @return true if at least one page has a choice to the given page, false otherwise
 	 */
 	public boolean hasChoicesTo(Page selectedPage) {
-		return pages.stream().anyMatch(p -> p.getChoices().containsValue(selectedPage));
+		loadPages();
+		return incomingChoices.hasSources(selectedPage);
+	}
+
+	/**
+	 * Gets the pages of the book having at least one choice to the given page
+	 *
+	 * @param page the page to check
+	 * @return the pages leading to the given page
+	 */
+	public List<Page> getPagesWithChoicesTo(Page page) {
+		loadPages();
+		return incomingChoices.sourcesOf(page);
 	}
 
 	/**
@@ -248,7 +303,7 @@ public class Book {
 	 * Publishes the book
 	 */
 	public void publish() {
-		if (pages.size() < 1) {
+		if (getPageCount() < 1) {
 			throw new NotEnoughPagesException();
 		}
 		isPublished = true;
@@ -258,11 +313,11 @@ public class Book {
 		if (isPublished) {
 			throw new CannotUpdatePublishedBookException();
 		}
-		if (pages.contains(toPage)) {
-			int index = pages.indexOf(toPage);
+		loadPages();
+		int index = indexOf(toPage);
+		if (index >= 0) {
 			if (index > 0) {
-				pages.remove(toPage);
-				pages.add(index - 1, toPage);
+				swap(index, index - 1);
 			}
 		} else {
 			throw new PageNotInBookException();
@@ -273,14 +328,128 @@ public class Book {
 		if (isPublished) {
 			throw new CannotUpdatePublishedBookException();
 		}
-		if (pages.contains(toPage)) {
-			int index = pages.indexOf(toPage);
+		loadPages();
+		int index = indexOf(toPage);
+		if (index >= 0) {
 			if (index < pages.size() - 1) {
-				pages.remove(toPage);
-				pages.add(index + 1, toPage);
+				swap(index, index + 1);
 			}
 		} else {
 			throw new PageNotInBookException();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Defers the loading of the pages until they are first needed (the metadata of the book is enough to list it).
+	 * The loader is called at most once, then its pages are kept in the book.
+	 *
+	 * @param pageCount the number of pages the loader will give
+	 * @param loader    the function loading the pages (and their choices)
+	 */
+	public void deferPages(int pageCount, Supplier<List<Page>> loader) {
+		pages.forEach(incomingChoices::detach);
+		pages.clear();
+		pageChanges++;
+		positions.clear();
+		positionsValidUntil = 0;
+		this.deferredPageCount = pageCount;
+		this.pageLoader = loader;
+	}
+
+	/**
+	 * Gets if the pages of the book are in memory or still have to be loaded
+	 *
+	 * @return true if the pages are loaded, false otherwise
+	 */
+	public boolean arePagesLoaded() {
+		return pageLoader == null;
+	}
+
+	/**
+	 * Loads the pages of the book if their loading was deferred
+	 */
+	public void loadPages() {
+		if (pageLoader != null) {
+			var loader = pageLoader;
+			pageLoader = null;
+			pages.addAll(loader.get());
+			pageChanges++;
+			pages.forEach(incomingChoices::attach);
+		}
+	}
+
+	/**
+	 * Gets the version of the pages of the book: it changes each time a page is added, removed or moved
+	 * and each time a choice is added, removed or changed.
+	 *
+	 * @return the version of the pages
+	 */
+	public long getVersion() {
+		return pageChanges + incomingChoices.getChanges();
+	}
+
+	/**
+	 * Gets the analysis of the graph of the pages (unreachable pages, dead ends, cycles...).
+	 * It is computed again only if the pages or the choices have changed since the last analysis.
+	 *
+	 * @return the analysis of the current version of the book
+	 */
+	public BookAnalysis getAnalysis() {
+		loadPages();
+		long version = getVersion();
+		if (analysis == null || analysis.getVersion() != version) {
+			analysis = BookAnalysis.of(pages, version);
+		}
+		return analysis;
+	}
+
+	/**
+	 * Gets the number of pages of the book without loading them
+	 *
+	 * @return the number of pages
+	 */
+	public int getPageCount() {
+		return pageLoader == null ? pages.size() : deferredPageCount;
+	}
+
+	/**
+	 * Gets the position of a page in the list of pages.
+	 * The positions are kept in a map (page id to position), the positions after an insertion or a removal
+	 * are only computed again when they are asked for.
+	 *
+	 * @param page the page to find
+	 * @return the position of the page, -1 if it is not in the book
+	 */
+	private int indexOf(Page page) {
+		return page == null ? -1 : indexOfId(page.getId());
+	}
+
+	private int indexOfId(String id) {
+		loadPages();
+		for (; positionsValidUntil < pages.size(); positionsValidUntil++) {
+			positions.put(pages.get(positionsValidUntil).getId(), positionsValidUntil);
+		}
+		return positions.getOrDefault(id, -1);
+	}
+
+	private void insertAt(int index, Page page) {
+		pageChanges++;
+		pages.add(index, page);
+		positionsValidUntil = Math.min(positionsValidUntil, index);
+	}
+
+	private Page removeAt(int index) {
+		pageChanges++;
+		var removed = pages.remove(index);
+		positions.remove(removed.getId());
+		positionsValidUntil = Math.min(positionsValidUntil, index);
+		return removed;
+	}
+
+	private void swap(int first, int second) {
+		pageChanges++;
+		Collections.swap(pages, first, second);
+		positions.put(pages.get(first).getId(), first);
+		positions.put(pages.get(second).getId(), second);
+	}
+}
@@ -0,0 +1,267 @@
+package org.helmo.gbeditor.models;
+
+import java.util.*;
+
+/**
+ * BookAnalysis is the analysis of the graph of a book: its pages are the nodes, their choices the edges.
+ * <p>
+ * The choices are copied once in two arrays (the targets of the choices of each page follow each other),
+ * then every result is computed by iterative traversals in a time proportional to the number of pages and choices:
+ * the pages unreachable from the first page, the dead ends (pages without choice), the cycles (strongly connected
+ * components, Tarjan) and the shortest number of choices from the first page to each dead end.
+ * An analysis is immutable, Book keeps the analysis of its last version.
+ */
+public final class BookAnalysis {
+
+	private static final int UNREACHABLE = -1;
+
+	private final long version;
+	private final Page[] pages;
+	private final int[] firstChoice;
+	private final int[] targets;
+	private final boolean[] deadEnds;
+	private final int choicesOutsideBook;
+	private final int[] distances;
+	private final int[] components;
+	private final boolean[] cyclic;
+
+	private BookAnalysis(long version, Page[] pages, int[] firstChoice, int[] targets, boolean[] deadEnds, int choicesOutsideBook) {
+		this.version = version;
+		this.pages = pages;
+		this.firstChoice = firstChoice;
+		this.targets = targets;
+		this.deadEnds = deadEnds;
+		this.choicesOutsideBook = choicesOutsideBook;
+		this.distances = distancesFromFirstPage();
+		this.components = new int[pages.length];
+		this.cyclic = findComponents();
+	}
+
+	/**
+	 * Analyses the pages of a book.
+	 *
+	 * @param pages   the pages, in the order of the book
+	 * @param version the version of the book analysed
+	 * @return the analysis
+	 */
+	static BookAnalysis of(List<Page> pages, long version) {
+		int count = pages.size();
+		var pageArray = pages.toArray(new Page[0]);
+		Map<String, Integer> positions = new HashMap<>(count * 2);
+		int choiceCount = 0;
+		for (int i = 0; i < count; i++) {
+			positions.put(pageArray[i].getId(), i);
+			choiceCount += pageArray[i].getChoicesView().size();
+		}
+		var firstChoice = new int[count + 1];
+		var targets = new int[choiceCount];
+		var deadEnds = new boolean[count];
+		int[] cursor = {0, 0};
+		for (int i = 0; i < count; i++) {
+			firstChoice[i] = cursor[0];
+			deadEnds[i] = pageArray[i].getChoicesView().isEmpty();
+			pageArray[i].forEachChoice((label, target) -> {
+				var position = positions.get(target.getId());
+				if (position == null) {
+					cursor[1]++;
+				} else {
+					targets[cursor[0]++] = position;
+				}
+			});
+		}
+		firstChoice[count] = cursor[0];
+		return new BookAnalysis(version, pageArray, firstChoice, targets, deadEnds, cursor[1]);
+	}
+
+	/**
+	 * Breadth-first traversal from the first page.
+	 */
+	private int[] distancesFromFirstPage() {
+		var result = new int[pages.length];
+		Arrays.fill(result, UNREACHABLE);
+		if (pages.length == 0) {
+			return result;
+		}
+		var queue = new int[pages.length];
+		int head = 0;
+		int tail = 0;
+		result[0] = 0;
+		queue[tail++] = 0;
+		while (head < tail) {
+			int page = queue[head++];
+			for (int c = firstChoice[page]; c < firstChoice[page + 1]; c++) {
+				int target = targets[c];
+				if (result[target] == UNREACHABLE) {
+					result[target] = result[page] + 1;
+					queue[tail++] = target;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tarjan's algorithm with an explicit stack instead of recursion (a book can be a chain of 100k pages).
+	 * Fills the component of each page.
+	 *
+	 * @return for each component, if it is a cycle
+	 */
+	private boolean[] findComponents() {
+		int count = pages.length;
+		var order = new int[count];
+		var low = new int[count];
+		Arrays.fill(order, -1);
+		var onStack = new boolean[count];
+		var stack = new int[count];
+		var calls = new int[count];
+		var nextChoice = new int[count];
+		var selfChoice = new boolean[count];
+		var componentCyclic = new boolean[count];
+		int stackSize = 0;
+		int counter = 0;
+		int componentCount = 0;
+		for (int start = 0; start < count; start++) {
+			if (order[start] != -1) {
+				continue;
+			}
+			int depth = 0;
+			order[start] = low[start] = counter++;
+			stack[stackSize++] = start;
+			onStack[start] = true;
+			calls[depth] = start;
+			nextChoice[depth++] = firstChoice[start];
+			while (depth > 0) {
+				int page = calls[depth - 1];
+				if (nextChoice[depth - 1] < firstChoice[page + 1]) {
+					int target = targets[nextChoice[depth - 1]++];
+					if (target == page) {
+						selfChoice[page] = true;
+					} else if (order[target] == -1) {
+						order[target] = low[target] = counter++;
+						stack[stackSize++] = target;
+						onStack[target] = true;
+						calls[depth] = target;
+						nextChoice[depth++] = firstChoice[target];
+					} else if (onStack[target]) {
+						low[page] = Math.min(low[page], order[target]);
+					}
+					continue;
+				}
+				depth--;
+				if (low[page] == order[page]) {
+					int size = 0;
+					int member;
+					do {
+						member = stack[--stackSize];
+						onStack[member] = false;
+						components[member] = componentCount;
+						size++;
+					} while (member != page);
+					componentCyclic[componentCount++] = size > 1 || selfChoice[page];
+				}
+				if (depth > 0) {
+					int caller = calls[depth - 1];
+					low[caller] = Math.min(low[caller], low[page]);
+				}
+			}
+		}
+		return Arrays.copyOf(componentCyclic, componentCount);
+	}
+
+	/**
+	 * Gets the version of the book analysed
+	 *
+	 * @return the version of the book
+	 */
+	long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the pages that can not be reached from the first page by following the choices
+	 *
+	 * @return the unreachable pages, in the order of the book
+	 */
+	public List<Page> getUnreachablePages() {
+		List<Page> result = new ArrayList<>();
+		for (int i = 0; i < pages.length; i++) {
+			if (distances[i] == UNREACHABLE) {
+				result.add(pages[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the pages without any choice (the endings of the book)
+	 *
+	 * @return the dead ends, in the order of the book
+	 */
+	public List<Page> getDeadEnds() {
+		List<Page> result = new ArrayList<>();
+		for (int i = 0; i < pages.length; i++) {
+			if (deadEnds[i]) {
+				result.add(pages[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the cycles of the book: the groups of pages from which the reader can come back to each page of the group.
+	 *
+	 * @return the cycles, each one with its pages in the order of the book
+	 */
+	public List<List<Page>> getCycles() {
+		Map<Integer, List<Page>> cycles = new LinkedHashMap<>();
+		for (int i = 0; i < pages.length; i++) {
+			if (cyclic[components[i]]) {
+				cycles.computeIfAbsent(components[i], c -> new ArrayList<>()).add(pages[i]);
+			}
+		}
+		return new ArrayList<>(cycles.values());
+	}
+
+	/**
+	 * Gets the shortest number of choices to make from the first page to reach each ending
+	 *
+	 * @return the number of choices by dead end reachable from the first page, in the order of the book
+	 */
+	public Map<Page, Integer> getEndingDistances() {
+		Map<Page, Integer> result = new LinkedHashMap<>();
+		for (int i = 0; i < pages.length; i++) {
+			if (deadEnds[i] && distances[i] != UNREACHABLE) {
+				result.put(pages[i], distances[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the shortest number of choices to make from the first page to reach a page
+	 *
+	 * @param position the position of the page in the book (from 0)
+	 * @return the number of choices, -1 if the page can not be reached
+	 */
+	public int getDistanceFromFirstPage(int position) {
+		return distances[position];
+	}
+
+	/**
+	 * Gets the number of choices leading to a page that is not in the book
+	 *
+	 * @return the number of choices outside the book
+	 */
+	public int getChoicesOutsideBook() {
+		return choicesOutsideBook;
+	}
+
+	/**
+	 * Gets the number of pages analysed
+	 *
+	 * @return the number of pages
+	 */
+	public int getPageCount() {
+		return pages.length;
+	}
+}
@@ -83,7 +83,7 @@ public class BookMetadata {
 	}
 
 	private void setIsbn(String value) {
-		isbn = value == null || value.isBlank() ? ISBN.createNewISBN(LINGUISTIC_GROUP, author.getIdentifier()) : new ISBN(value);
+		isbn = value == null || value.isBlank() ? ISBN.createNewISBN(LINGUISTIC_GROUP, author.getIdentifier()) : ISBN.parse(value);
 		metadata.put(BOOK_ISBN, isbn.toString());
 	}
 
@@ -5,20 +5,41 @@ import org.helmo.gbeditor.models.exceptions.IllegalIsbnChecksumException;
 import org.helmo.gbeditor.models.exceptions.IllegalIsbnFormatException;
 import org.helmo.gbeditor.models.exceptions.IllegalIsbnLinguisticIdException;
 
-import java.util.Objects;
-import java.util.regex.Pattern;
-
 /**
  * This class represents an ISBN in the application.
+ * <p>
+ * An ISBN is written "9-999999-99-9" (or without the dashes, the check sum being a digit or X). It is parsed in a single
+ * pass over its characters and written digit by digit, without regex nor intermediate strings: the check sum
+ * of the isbn being typed is computed on every keystroke.
+ * <p>
+ * The four fields are packed in a single long (see toLong), on which equals and hashCode are computed: an ISBN is the key
+ * of the books in the repositories. The factories (of, parse, fromLong) share the instances of the same ISBN through
+ * a small cache, each instance keeping its text once written.
+ * Both fields are transient: the repositories write an ISBN as its four numbers (linguisticGroup, idAuthor, idBook,
+ * checkSum), the shape of the json files written before the fields were packed.
  */
 public class ISBN {
-	private final int linguisticGroup;
-	private final int idAuthor;
-	private final int idBook;
-	private final int checkSum;
+	private final transient long packed;
+	private transient String text = null;
+
+	private static final int AUTHOR_DIGITS = 6;
+	private static final int BOOK_DIGITS = 2;
+	private static final int FORMATTED_LENGTH = 13;
+	private static final int PREFIX_LENGTH = 11;
+	private static final int UNDASHED_LENGTH = 10;
+	private static final int CHECK_SUM_X = 10;
+	private static final String[] CHECK_SUM_TEXTS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "X"};
+	private static final int CACHE_SIZE = 4096;
+	/**
+	 * The shared instances, indexed by a hash of their packed value (a new ISBN replaces the one in its slot).
+	 * Races are harmless: an ISBN is immutable and two instances of the same ISBN are equal.
+	 */
+	private static final ISBN[] CACHE = new ISBN[CACHE_SIZE];
 
-	private static final String REGEX_ISBN_13 = "\\d-?\\d{0,6}-?\\d{0,2}-?[\\dX]?";
-	private static final String REGEX_ISBN_10 = "\\d{0,10}";
+	/**
+	 * The fields parsed from a text that is not an isbn
+	 */
+	private static final long INVALID = -1;
 
 	/**
 	 * Constructor of the ISBN. It checks the validity of the ISBN.
@@ -41,10 +62,7 @@ public class ISBN {
 	 */
 	public ISBN(int linguisticGroup, int idAuthor, int idBook, int checkSum) {
 		checkValidity(linguisticGroup, idAuthor, idBook, checkSum);
-		this.linguisticGroup = linguisticGroup;
-		this.idAuthor = idAuthor;
-		this.idBook = idBook;
-		this.checkSum = checkSum;
+		this.packed = pack(linguisticGroup, idAuthor, idBook, checkSum);
 	}
 
 	/**
@@ -53,19 +71,17 @@ public class ISBN {
 	 * @param isbn The prefix of the ISBN as a String (9-999-99 so without the checksum).
 	 * @return The check sum of the ISBN.
 	 */
-	public static String computeCheckSum(String isbn) {
-		var isbnWoutControl = "\\d-\\d{6}-\\d{2}";
-		if (Pattern.matches(isbnWoutControl, isbn)) {
-			var splittedS = isbn.split("-");
-			var splittedI = new int[3];
-			for (int i = 0; i < splittedS.length; i++) {
-				splittedI[i] = Integer.parseInt(splittedS[i]);
-			}
-			var checkSum = computeCheckSum(splittedI[0], splittedI[1], splittedI[2]);
-			return checkSum == 10 ? "X" : String.valueOf(checkSum);
-		} else {
+	public static String computeCheckSum(CharSequence isbn) {
+		if (isbn == null || isbn.length() != PREFIX_LENGTH || isbn.charAt(1) != '-' || isbn.charAt(2 + AUTHOR_DIGITS) != '-') {
+			throw new IllegalIsbnFormatException();
+		}
+		int linguisticGroup = readDigits(isbn, 0, 1);
+		int idAuthor = readDigits(isbn, 2, 2 + AUTHOR_DIGITS);
+		int idBook = readDigits(isbn, 3 + AUTHOR_DIGITS, PREFIX_LENGTH);
+		if (linguisticGroup < 0 || idAuthor < 0 || idBook < 0) {
 			throw new IllegalIsbnFormatException();
 		}
+		return CHECK_SUM_TEXTS[computeCheckSum(linguisticGroup, idAuthor, idBook)];
 	}
 
 	private void checkValidity(int linguisticGroup, int idAuthor, int idBook, int checkSum) {
@@ -110,35 +126,188 @@ public class ISBN {
 	 * @param isbn The string representation of the ISBN.
 	 */
 	public ISBN(String isbn) {
-		if (isbn == null || isbn.isBlank()) {
+		this(parseFields(isbn));
+	}
+
+	/**
+	 * Constructor of an ISBN from fields already read, whose check sum is checked.
+	 */
+	private ISBN(long fields) {
+		int check = checkSumOf(fields);
+		int computed = computeCheckSum(linguisticGroupOf(fields), idAuthorOf(fields), idBookOf(fields));
+		if (check != computed) {
+			throw new IllegalIsbnChecksumException(check, computed);
+		}
+		this.packed = fields;
+	}
+
+	/**
+	 * Parses an ISBN, written with or without its dashes.
+	 *
+	 * @param isbn The text of the ISBN.
+	 * @return The ISBN, shared with the other users of the same ISBN.
+	 */
+	public static ISBN parse(CharSequence isbn) {
+		return interned(parseFields(isbn));
+	}
+
+	/**
+	 * Gets the ISBN of a book, computing its check sum.
+	 *
+	 * @param linguisticGroup The linguistic group of the ISBN.
+	 * @param idAuthor        The id of the author of the book.
+	 * @param idBook          The id of the book.
+	 * @return The ISBN, shared with the other users of the same ISBN.
+	 */
+	public static ISBN of(int linguisticGroup, int idAuthor, int idBook) {
+		verifyLinguisticGroup(linguisticGroup);
+		verifyAuthorId(idAuthor);
+		verifyBookId(idBook);
+		return interned(pack(linguisticGroup, idAuthor, idBook, computeCheckSum(linguisticGroup, idAuthor, idBook)));
+	}
+
+	/**
+	 * Gets the ISBN packed in a long by toLong.
+	 *
+	 * @param packed The packed ISBN.
+	 * @return The ISBN, shared with the other users of the same ISBN.
+	 */
+	public static ISBN fromLong(long packed) {
+		if ((packed & ~0xF_FFFF_FFFFL) != 0) {
 			throw new IllegalIsbnFormatException();
 		}
-		String[] values;
-		values = splitIsbn(isbn);
-		this.linguisticGroup = Integer.parseInt(values[0]);
-		this.idAuthor = Integer.parseInt(values[1]);
-		this.idBook = Integer.parseInt(values[2]);
-		int check = (values[3].equals("X")) ? 10 : Integer.parseInt(values[3]);
-		if (check != getCheckSum()) {
-			throw new IllegalIsbnChecksumException(check, getCheckSum());
-		}
-		this.checkSum = check;
-	}
-
-	private static String[] splitIsbn(String isbn) {
-		String[] values;
-		if (Pattern.matches(REGEX_ISBN_13, isbn)) {
-			values = isbn.split("-");
-		} else if (Pattern.matches(REGEX_ISBN_10, isbn)) {
-			values = new String[4];
-			values[0] = isbn.substring(0, 1); //Linguistic group - 1 digit
-			values[1] = isbn.substring(1, 7); //Author id - 6 digits
-			values[2] = isbn.substring(7, 9); //Book id - 2 digits
-			values[3] = isbn.substring(9, 10); //CheckSum - 1 digit
-		} else {
+		var cached = CACHE[slotOf(packed)];
+		if (cached != null && cached.packed == packed) {
+			return cached;
+		}
+		// Vérifie chaque champ comme pour un ISBN créé par ses champs
+		return interned(new ISBN(linguisticGroupOf(packed), idAuthorOf(packed), idBookOf(packed), checkSumOf(packed)).packed);
+	}
+
+	private static ISBN interned(long fields) {
+		int slot = slotOf(fields);
+		var cached = CACHE[slot];
+		if (cached == null || cached.packed != fields) {
+			cached = new ISBN(fields);
+			CACHE[slot] = cached;
+		}
+		return cached;
+	}
+
+	private static int slotOf(long packed) {
+		long mixed = packed * 0x9E3779B97F4A7C15L;
+		return (int) (mixed >>> 52) & (CACHE_SIZE - 1);
+	}
+
+	/**
+	 * Checks that a text is a valid ISBN (its format and its check sum), without throwing any exception.
+	 *
+	 * @param isbn The text to check.
+	 * @return true if the text is a valid ISBN.
+	 */
+	public static boolean isValid(CharSequence isbn) {
+		long fields = readFields(isbn);
+		return fields != INVALID && checkSumOf(fields) == computeCheckSum(linguisticGroupOf(fields), idAuthorOf(fields), idBookOf(fields));
+	}
+
+	private static long parseFields(CharSequence isbn) {
+		long fields = readFields(isbn);
+		if (fields == INVALID) {
 			throw new IllegalIsbnFormatException();
 		}
-		return values;
+		return fields;
+	}
+
+	/**
+	 * Reads the four fields of an ISBN in one pass: "9-999999-99-9", with 1 to 6 digits for the author
+	 * and 1 or 2 for the book, or "9999999999".
+	 *
+	 * @return the fields packed in a long (group, author, book, check sum), INVALID if the text is not an ISBN
+	 */
+	private static long readFields(CharSequence isbn) {
+		if (isbn == null) {
+			return INVALID;
+		}
+		int length = isbn.length();
+		int firstDash = -1;
+		int secondDash = -1;
+		int lastDash = -1;
+		for (int i = 0; i < length; i++) {
+			if (isbn.charAt(i) == '-') {
+				if (firstDash < 0) {
+					firstDash = i;
+				} else if (secondDash < 0) {
+					secondDash = i;
+				} else if (lastDash < 0) {
+					lastDash = i;
+				} else {
+					return INVALID;
+				}
+			}
+		}
+		if (firstDash < 0 && length == UNDASHED_LENGTH) {
+			return fields(isbn, 1, 1 + AUTHOR_DIGITS, 1 + AUTHOR_DIGITS + BOOK_DIGITS);
+		}
+		if (firstDash != 1 || lastDash != length - 2
+				|| secondDash - firstDash < 2 || secondDash - firstDash > AUTHOR_DIGITS + 1
+				|| lastDash - secondDash < 2 || lastDash - secondDash > BOOK_DIGITS + 1) {
+			return INVALID;
+		}
+		return fields(isbn, firstDash, secondDash, lastDash);
+	}
+
+	/**
+	 * Reads the fields of an ISBN whose group ends at the first index, the author id at the second one
+	 * and the book id at the third one (each one followed by a dash or not).
+	 */
+	private static long fields(CharSequence isbn, int groupEnd, int authorEnd, int bookEnd) {
+		int separator = isbn.charAt(groupEnd) == '-' ? 1 : 0;
+		int linguisticGroup = readDigits(isbn, 0, groupEnd);
+		int idAuthor = readDigits(isbn, groupEnd + separator, authorEnd);
+		int idBook = readDigits(isbn, authorEnd + separator, bookEnd);
+		char last = isbn.charAt(bookEnd + separator);
+		int check = last == 'X' ? CHECK_SUM_X : last >= '0' && last <= '9' ? last - '0' : -1;
+		if (linguisticGroup < 0 || idAuthor < 0 || idBook < 0 || check < 0) {
+			return INVALID;
+		}
+		return pack(linguisticGroup, idAuthor, idBook, check);
+	}
+
+	private static long pack(int linguisticGroup, int idAuthor, int idBook, int checkSum) {
+		return ((long) linguisticGroup << 32) | ((long) idAuthor << 12) | ((long) idBook << 4) | checkSum;
+	}
+
+	private static int linguisticGroupOf(long packed) {
+		return (int) (packed >>> 32);
+	}
+
+	private static int idAuthorOf(long packed) {
+		return (int) (packed >>> 12) & 0xFFFFF;
+	}
+
+	private static int idBookOf(long packed) {
+		return (int) (packed >>> 4) & 0xFF;
+	}
+
+	private static int checkSumOf(long packed) {
+		return (int) packed & 0xF;
+	}
+
+	/**
+	 * Reads a number written with digits only.
+	 *
+	 * @return the number, -1 if a character is not a digit
+	 */
+	private static int readDigits(CharSequence text, int from, int to) {
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
 	}
 
 	/**
@@ -149,7 +318,7 @@ public class ISBN {
 	 * @return The ISBN.
 	 */
 	public static ISBN createNewISBN(int linguisticGroup, int idAuthor) {
-		return new ISBN(linguisticGroup, idAuthor, getRandomIdBook());
+		return of(linguisticGroup, idAuthor, getRandomIdBook());
 	}
 
 	private static int getRandomIdBook() {
@@ -174,7 +343,7 @@ public class ISBN {
 	 * @return The check sum.
 	 */
 	public final int getCheckSum() {
-		return computeCheckSum(linguisticGroup, idAuthor, idBook);
+		return checkSumOf(packed);
 	}
 
 	/**
@@ -183,7 +352,7 @@ public class ISBN {
 	 * @return The linguistic group.
 	 */
 	public int getLinguisticGroup() {
-		return linguisticGroup;
+		return linguisticGroupOf(packed);
 	}
 
 	/**
@@ -192,7 +361,7 @@ public class ISBN {
 	 * @return The id of the author.
 	 */
 	public int getIdAuthor() {
-		return idAuthor;
+		return idAuthorOf(packed);
 	}
 
 	/**
@@ -201,12 +370,47 @@ public class ISBN {
 	 * @return The id of the book.
 	 */
 	public int getIdBook() {
-		return idBook;
+		return idBookOf(packed);
+	}
+
+	/**
+	 * Gets the ISBN packed in a long: the linguistic group in the bits 32 to 35, the author id in the bits 12 to 31,
+	 * the book id in the bits 4 to 11 and the check sum in the bits 0 to 3.
+	 *
+	 * @return The packed ISBN, ordered as the ISBNs are (by group, then author, then book).
+	 */
+	public long toLong() {
+		return packed;
 	}
 
 	@Override
 	public String toString() {
-		return String.format("%d-%06d-%02d-%s", linguisticGroup, idAuthor, idBook, checkSum == 10 ? "X" : checkSum);
+		var result = text;
+		if (result == null) {
+			result = appendTo(new StringBuilder(FORMATTED_LENGTH)).toString();
+			text = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the ISBN ("9-999999-99-9") at the end of a builder, which can be reused from an ISBN to the next.
+	 *
+	 * @param builder The builder to write to.
+	 * @return The builder.
+	 */
+	public StringBuilder appendTo(StringBuilder builder) {
+		builder.append((char) ('0' + getLinguisticGroup())).append('-');
+		appendDigits(builder, getIdAuthor(), 100_000);
+		builder.append('-');
+		appendDigits(builder, getIdBook(), 10);
+		return builder.append('-').append(CHECK_SUM_TEXTS[getCheckSum()]);
+	}
+
+	private static void appendDigits(StringBuilder builder, int value, int firstDivisor) {
+		for (int divisor = firstDivisor; divisor > 0; divisor /= 10) {
+			builder.append((char) ('0' + value / divisor % 10));
+		}
 	}
 
 	@Override
@@ -217,12 +421,11 @@ public class ISBN {
 		if (o == null || getClass() != o.getClass()) {
 			return false;
 		}
-		ISBN isbn = (ISBN) o;
-		return linguisticGroup == isbn.linguisticGroup && idAuthor == isbn.idAuthor && idBook == isbn.idBook && checkSum == isbn.checkSum;
+		return packed == ((ISBN) o).packed;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(linguisticGroup, idAuthor, idBook, checkSum);
+		return Long.hashCode(packed);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package org.helmo.gbeditor.models;
+
+import java.util.*;
+
+/**
+ * IncomingChoices is the reverse index of the choices of a book: for each page, the pages having a choice to it.
+ * The pages of the book tell the index when one of their choices is added, removed or updated,
+ * so finding the pages leading to a page costs as much as the number of choices leading to it.
+ * The pages are identified by their id (a page can be replaced by a copy with the same id).
+ */
+class IncomingChoices {
+
+	private final Map<String, List<Page>> sourcesByTarget = new HashMap<>();
+	private long changes = 0;
+
+	/**
+	 * Starts following the choices of a page added to the book.
+	 *
+	 * @param page the page added
+	 */
+	void attach(Page page) {
+		page.setIncomingChoices(this);
+		page.forEachChoice((label, target) -> choiceAdded(page, target));
+	}
+
+	/**
+	 * Stops following the choices of a page removed from the book.
+	 *
+	 * @param page the page removed
+	 */
+	void detach(Page page) {
+		page.setIncomingChoices(null);
+		page.forEachChoice((label, target) -> choiceRemoved(page, target));
+	}
+
+	void choiceAdded(Page source, Page target) {
+		changes++;
+		sourcesByTarget.computeIfAbsent(target.getId(), id -> new ArrayList<>()).add(source);
+	}
+
+	void choiceRemoved(Page source, Page target) {
+		changes++;
+		var sources = sourcesByTarget.get(target.getId());
+		if (sources != null) {
+			sources.remove(source);
+			if (sources.isEmpty()) {
+				sourcesByTarget.remove(target.getId());
+			}
+		}
+	}
+
+	/**
+	 * Gets the pages having at least one choice to the given page.
+	 *
+	 * @param target the page
+	 * @return the pages leading to it, each one once
+	 */
+	List<Page> sourcesOf(Page target) {
+		var sources = target == null ? null : sourcesByTarget.get(target.getId());
+		if (sources == null) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(new LinkedHashSet<>(sources));
+	}
+
+	/**
+	 * Gets if at least one choice leads to the given page.
+	 *
+	 * @param target the page
+	 * @return true if a choice leads to it, false otherwise
+	 */
+	boolean hasSources(Page target) {
+		return target != null && sourcesByTarget.containsKey(target.getId());
+	}
+
+	/**
+	 * Gets the number of choices added or removed since the creation of the index.
+	 *
+	 * @return the number of modifications of the choices
+	 */
+	long getChanges() {
+		return changes;
+	}
+}
@@ -4,6 +4,7 @@ import org.helmo.gbeditor.models.exceptions.IllegalChoiceException;
 import org.helmo.gbeditor.models.exceptions.IllegalPageException;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * This class is used to represent a page of a book
@@ -13,6 +14,8 @@ public class Page {
 	private UUID id = UUID.randomUUID();
 	private String content;
 	private final Map<String, Page> choices = new HashMap<>();
+	private final transient Map<String, Page> choicesView = Collections.unmodifiableMap(choices);
+	private transient IncomingChoices incomingChoices = null;
 
 	/**
 	 * This constructor is used to create a new Page with the given content
@@ -44,6 +47,15 @@ public class Page {
 		return new HashMap<>(choices);
 	}
 
+	/**
+	 * This method is used to read the choices of the page without copying them
+	 *
+	 * @return an unmodifiable view of the choices, following the modifications of the page
+	 */
+	public Map<String, Page> getChoicesView() {
+		return choicesView;
+	}
+
 	/**
 	 * This method is used to add a choice to the page
 	 *
@@ -57,6 +69,9 @@ public class Page {
 			throw new IllegalChoiceException();
 		}
 		choices.put(choice, page);
+		if (incomingChoices != null) {
+			incomingChoices.choiceAdded(this, page);
+		}
 	}
 
 	private void checkPage(Page page) {
@@ -80,7 +95,10 @@ public class Page {
 		if (choice == null || choice.isBlank() || !choices.containsKey(choice)) {
 			throw new IllegalChoiceException();
 		}
-		choices.remove(choice);
+		var removed = choices.remove(choice);
+		if (incomingChoices != null) {
+			incomingChoices.choiceRemoved(this, removed);
+		}
 	}
 
 	/**
@@ -156,10 +174,32 @@ public class Page {
 		if (!choices.containsKey(k)) {
 			throw new IllegalChoiceException();
 		}
-		choices.put(k, page);
+		var previous = choices.put(k, page);
+		if (incomingChoices != null) {
+			incomingChoices.choiceRemoved(this, previous);
+			incomingChoices.choiceAdded(this, page);
+		}
 	}
 
 	public void setId(String id) {
 		this.id = UUID.fromString(id);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Gives each choice of the page to the action, without copying them.
+	 *
+	 * @param action the action receiving the label and the destination of each choice
+	 */
+	void forEachChoice(BiConsumer<String, Page> action) {
+		choices.forEach(action);
+	}
+
+	/**
+	 * Sets the reverse index told about the modifications of the choices (the one of the book of the page).
+	 *
+	 * @param incomingChoices the index, null when the page leaves its book
+	 */
+	void setIncomingChoices(IncomingChoices incomingChoices) {
+		this.incomingChoices = incomingChoices;
+	}
+}
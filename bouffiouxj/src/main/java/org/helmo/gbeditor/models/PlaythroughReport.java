@@ -0,0 +1,170 @@
+package org.helmo.gbeditor.models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PlaythroughReport gives the statistics of the playthroughs of a book made by a PlaythroughSimulator.
+ * <p>
+ * The length of a playthrough is its number of choices; only the playthroughs reaching an ending have one.
+ */
+public final class PlaythroughReport {
+
+	private final Page[] pages;
+	private final long[] droppedChoices;
+	private final long[] visits;
+	private final long[] endings;
+	private final long[] trapEntries;
+	private final long[] lengths;
+	private final long trapped;
+	private final long stopped;
+
+	PlaythroughReport(Page[] pages, long[] droppedChoices, PlaythroughSimulator.Tally tally) {
+		this.pages = pages;
+		this.droppedChoices = droppedChoices;
+		this.visits = tally.visits;
+		this.endings = tally.endings;
+		this.trapEntries = tally.trapEntries;
+		this.lengths = tally.lengths;
+		this.trapped = tally.trapped;
+		this.stopped = tally.stopped;
+	}
+
+	/**
+	 * Gets the number of playthroughs made
+	 *
+	 * @return the number of playthroughs
+	 */
+	public long getPlaythroughs() {
+		return getEndingsReached() + trapped + stopped;
+	}
+
+	/**
+	 * Gets the number of playthroughs that reached an ending
+	 *
+	 * @return the number of playthroughs
+	 */
+	public long getEndingsReached() {
+		long total = 0;
+		for (long count : endings) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the number of playthroughs that entered a page from which no ending can be reached
+	 *
+	 * @return the number of trapped playthroughs
+	 */
+	public long getTrapped() {
+		return trapped;
+	}
+
+	/**
+	 * Gets the number of playthroughs stopped after the maximum number of choices, without reaching an ending
+	 *
+	 * @return the number of stopped playthroughs
+	 */
+	public long getStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Gets how many playthroughs reached each ending
+	 *
+	 * @return the number of playthroughs by ending reached, in the order of the book
+	 */
+	public Map<Page, Long> getEndings() {
+		return countsByPage(endings);
+	}
+
+	/**
+	 * Gets by which page the playthroughs entered the loop traps
+	 *
+	 * @return the number of trapped playthroughs by first page of the trap, in the order of the book
+	 */
+	public Map<Page, Long> getTrapEntries() {
+		return countsByPage(trapEntries);
+	}
+
+	/**
+	 * Gets the choices never made by the playthroughs, because they lead to a page outside the book
+	 * or weigh 0 or less
+	 *
+	 * @return the number of dropped choices by page, in the order of the book
+	 */
+	public Map<Page, Long> getDroppedChoices() {
+		return countsByPage(droppedChoices);
+	}
+
+	/**
+	 * Gets how many times each page was visited, by all the playthroughs
+	 *
+	 * @param position the position of the page in the book (from 0)
+	 * @return the number of visits
+	 */
+	public long getVisits(int position) {
+		return visits[position];
+	}
+
+	/**
+	 * Gets how many playthroughs reached an ending after a number of choices
+	 *
+	 * @param length the number of choices
+	 * @return the number of playthroughs, 0 if the length is beyond the maximum
+	 */
+	public long getLengthCount(int length) {
+		return length >= 0 && length < lengths.length ? lengths[length] : 0;
+	}
+
+	/**
+	 * Gets the average number of choices of the playthroughs that reached an ending
+	 *
+	 * @return the average length, 0 if no playthrough reached an ending
+	 */
+	public double getAverageLength() {
+		long count = 0;
+		double total = 0;
+		for (int length = 0; length < lengths.length; length++) {
+			count += lengths[length];
+			total += (double) length * lengths[length];
+		}
+		return count == 0 ? 0 : total / count;
+	}
+
+	/**
+	 * Gets the number of choices under which a part of the playthroughs reaching an ending stay
+	 *
+	 * @param percentile the part of the playthroughs, from 0 to 100
+	 * @return the smallest length reached by at least this part of the playthroughs, -1 if no playthrough reached an ending
+	 */
+	public int getLengthPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("A percentile must be between 0 and 100");
+		}
+		long total = getEndingsReached();
+		if (total == 0) {
+			return -1;
+		}
+		double needed = total * percentile / 100;
+		long count = 0;
+		for (int length = 0; length < lengths.length; length++) {
+			count += lengths[length];
+			if (count > 0 && count >= needed) {
+				return length;
+			}
+		}
+		return lengths.length - 1;
+	}
+
+	private Map<Page, Long> countsByPage(long[] counts) {
+		Map<Page, Long> result = new LinkedHashMap<>();
+		for (int i = 0; i < pages.length; i++) {
+			if (counts[i] > 0) {
+				result.put(pages[i], counts[i]);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,309 @@
+package org.helmo.gbeditor.models;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PlaythroughSimulator plays a book many times, from the first page, choosing each choice at random
+ * (uniformly or according to weights), to tell how playable it is.
+ * <p>
+ * The choices are copied once in primitive arrays, so a playthrough only reads arrays and increments counters.
+ * The playthroughs are split in tasks on a ForkJoinPool; each task has its own random generator (split from
+ * the one of its parent task) and its own counters, which are added together at the end.
+ * A playthrough stops on a page without choice (an ending), when it enters a page from which no ending can be
+ * reached (a loop trap), or after a maximum number of choices.
+ * <p>
+ * The choices leading to a page outside the book, or weighing 0 or less, are never made: they are counted as
+ * dropped choices. A page whose choices are all dropped is not an ending but a trap.
+ */
+public final class PlaythroughSimulator {
+
+	private static final int MIN_PLAYTHROUGHS_PER_TASK = 1_000;
+
+	private final Page[] pages;
+	private final int[] firstChoice;
+	private final int[] targets;
+	private final double[] cumulativeWeights;
+	private final boolean[] endings;
+	private final long[] droppedChoices;
+	private final boolean[] traps;
+	private final int maxChoices;
+
+	private PlaythroughSimulator(Page[] pages, int[] firstChoice, int[] targets, double[] cumulativeWeights,
+								 boolean[] endings, long[] droppedChoices, int maxChoices) {
+		this.pages = pages;
+		this.firstChoice = firstChoice;
+		this.targets = targets;
+		this.cumulativeWeights = cumulativeWeights;
+		this.endings = endings;
+		this.droppedChoices = droppedChoices;
+		this.maxChoices = maxChoices;
+		this.traps = findTraps();
+	}
+
+	/**
+	 * Creates a simulator choosing each choice of a page with the same probability
+	 *
+	 * @param book       the book to play
+	 * @param maxChoices the number of choices after which a playthrough is stopped
+	 * @return the simulator
+	 */
+	public static PlaythroughSimulator of(Book book, int maxChoices) {
+		return of(book, null, maxChoices);
+	}
+
+	/**
+	 * Creates a simulator choosing the choices of a page according to their weights
+	 *
+	 * @param book       the book to play
+	 * @param weights    the weight of each choice, null to choose them uniformly
+	 * @param maxChoices the number of choices after which a playthrough is stopped
+	 * @return the simulator
+	 */
+	public static PlaythroughSimulator of(Book book, ChoiceWeights weights, int maxChoices) {
+		if (maxChoices < 1) {
+			throw new IllegalArgumentException("A playthrough must be able to make at least one choice");
+		}
+		var pageArray = book.getPagesView().toArray(new Page[0]);
+		Map<String, Integer> positions = new HashMap<>(pageArray.length * 2);
+		int choiceCount = 0;
+		for (int i = 0; i < pageArray.length; i++) {
+			positions.put(pageArray[i].getId(), i);
+			choiceCount += pageArray[i].getChoicesView().size();
+		}
+		var firstChoice = new int[pageArray.length + 1];
+		var targets = new int[choiceCount];
+		var cumulative = weights == null ? null : new double[choiceCount];
+		var endings = new boolean[pageArray.length];
+		var dropped = new long[pageArray.length];
+		int next = 0;
+		for (int i = 0; i < pageArray.length; i++) {
+			firstChoice[i] = next;
+			endings[i] = pageArray[i].getChoicesView().isEmpty();
+			double total = 0;
+			for (var choice : pageArray[i].getChoicesView().entrySet()) {
+				var position = positions.get(choice.getValue().getId());
+				double weight = weights == null ? 1 : weights.weightOf(pageArray[i], choice.getKey(), choice.getValue());
+				if (position != null && weight > 0) {
+					targets[next] = position;
+					if (cumulative != null) {
+						total += weight;
+						cumulative[next] = total;
+					}
+					next++;
+				} else {
+					dropped[i]++;
+				}
+			}
+		}
+		firstChoice[pageArray.length] = next;
+		return new PlaythroughSimulator(pageArray, firstChoice, targets, cumulative, endings, dropped, maxChoices);
+	}
+
+	/**
+	 * Finds the pages from which no ending can be reached: a breadth-first search from the endings
+	 * following the choices backwards. Only the pages without any choice in the book are endings.
+	 */
+	private boolean[] findTraps() {
+		int count = pages.length;
+		var firstIncoming = new int[count + 1];
+		for (int c = 0; c < firstChoice[count]; c++) {
+			firstIncoming[targets[c] + 1]++;
+		}
+		for (int i = 0; i < count; i++) {
+			firstIncoming[i + 1] += firstIncoming[i];
+		}
+		var sources = new int[firstChoice[count]];
+		var filled = Arrays.copyOf(firstIncoming, count);
+		for (int page = 0; page < count; page++) {
+			for (int c = firstChoice[page]; c < firstChoice[page + 1]; c++) {
+				sources[filled[targets[c]]++] = page;
+			}
+		}
+		var leadsToEnding = new boolean[count];
+		var queue = new int[count];
+		int tail = 0;
+		for (int page = 0; page < count; page++) {
+			if (endings[page]) {
+				leadsToEnding[page] = true;
+				queue[tail++] = page;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int page = queue[head];
+			for (int s = firstIncoming[page]; s < firstIncoming[page + 1]; s++) {
+				if (!leadsToEnding[sources[s]]) {
+					leadsToEnding[sources[s]] = true;
+					queue[tail++] = sources[s];
+				}
+			}
+		}
+		var result = new boolean[count];
+		for (int page = 0; page < count; page++) {
+			result[page] = !leadsToEnding[page];
+		}
+		return result;
+	}
+
+	/**
+	 * Plays the book on the common pool
+	 *
+	 * @param playthroughs the number of playthroughs
+	 * @param seed         the seed of the random choices (the same seed gives the same report)
+	 * @return the statistics of the playthroughs
+	 */
+	public PlaythroughReport run(long playthroughs, long seed) {
+		return run(playthroughs, seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Plays the book on the given pool
+	 *
+	 * @param playthroughs the number of playthroughs
+	 * @param seed         the seed of the random choices (the same seed gives the same report)
+	 * @param pool         the pool running the playthroughs
+	 * @return the statistics of the playthroughs
+	 */
+	public PlaythroughReport run(long playthroughs, long seed, ForkJoinPool pool) {
+		if (pages.length == 0 || playthroughs <= 0) {
+			return new PlaythroughReport(pages, droppedChoices, new Tally(pages.length, maxChoices));
+		}
+		long perTask = Math.max(MIN_PLAYTHROUGHS_PER_TASK, playthroughs / (4L * pool.getParallelism()));
+		var tally = pool.invoke(new Playthroughs(playthroughs, perTask, new SplittableRandom(seed)));
+		return new PlaythroughReport(pages, droppedChoices, tally);
+	}
+
+	/**
+	 * Plays the book once and counts the result in the tally.
+	 */
+	private void play(SplittableRandom random, Tally tally) {
+		int page = 0;
+		int choices = 0;
+		while (true) {
+			tally.visits[page]++;
+			if (traps[page]) {
+				tally.trapEntries[page]++;
+				tally.trapped++;
+				return;
+			}
+			int first = firstChoice[page];
+			int count = firstChoice[page + 1] - first;
+			// Une page sans choix jouable qui n'est pas une fin est un piège, elle a été comptée plus haut
+			if (count == 0) {
+				tally.endings[page]++;
+				tally.lengths[choices]++;
+				return;
+			}
+			if (choices == maxChoices) {
+				tally.stopped++;
+				return;
+			}
+			page = targets[first + pick(random, first, count)];
+			choices++;
+		}
+	}
+
+	/**
+	 * Picks one of the choices of a page: uniformly, or by a binary search in the cumulative weights of the page.
+	 *
+	 * @return the index of the choice among the choices of the page
+	 */
+	private int pick(SplittableRandom random, int first, int count) {
+		if (cumulativeWeights == null) {
+			return random.nextInt(count);
+		}
+		double value = random.nextDouble() * cumulativeWeights[first + count - 1];
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulativeWeights[first + middle] > value) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The counters of a group of playthroughs, owned by one task
+	 */
+	static final class Tally {
+		final long[] visits;
+		final long[] endings;
+		final long[] trapEntries;
+		final long[] lengths;
+		long trapped;
+		long stopped;
+
+		Tally(int pages, int maxChoices) {
+			visits = new long[pages];
+			endings = new long[pages];
+			trapEntries = new long[pages];
+			lengths = new long[maxChoices + 1];
+		}
+
+		Tally add(Tally other) {
+			for (int i = 0; i < visits.length; i++) {
+				visits[i] += other.visits[i];
+				endings[i] += other.endings[i];
+				trapEntries[i] += other.trapEntries[i];
+			}
+			for (int i = 0; i < lengths.length; i++) {
+				lengths[i] += other.lengths[i];
+			}
+			trapped += other.trapped;
+			stopped += other.stopped;
+			return this;
+		}
+	}
+
+	/**
+	 * A group of playthroughs, split in two tasks while it is too big
+	 */
+	private final class Playthroughs extends RecursiveTask<Tally> {
+		private final long count;
+		private final long perTask;
+		private final SplittableRandom random;
+
+		Playthroughs(long count, long perTask, SplittableRandom random) {
+			this.count = count;
+			this.perTask = perTask;
+			this.random = random;
+		}
+
+		@Override
+		protected Tally compute() {
+			if (count > perTask) {
+				var left = new Playthroughs(count / 2, perTask, random.split());
+				var right = new Playthroughs(count - count / 2, perTask, random);
+				left.fork();
+				var tally = right.compute();
+				return tally.add(left.join());
+			}
+			var tally = new Tally(pages.length, maxChoices);
+			for (long i = 0; i < count; i++) {
+				play(random, tally);
+			}
+			return tally;
+		}
+	}
+
+	/**
+	 * Gives the weight of a choice: the higher it is, the more often the choice is made
+	 */
+	@FunctionalInterface
+	public interface ChoiceWeights {
+		/**
+		 * Gets the weight of a choice
+		 *
+		 * @param page   the page of the choice
+		 * @param choice the label of the choice
+		 * @param target the page the choice leads to
+		 * @return the weight of the choice, 0 or less to never make it
+		 */
+		double weightOf(Page page, String choice, Page target);
+	}
+}
@@ -0,0 +1,27 @@
+package org.helmo.gbeditor.models;
+
+/**
+ * The reasons preventing a book from being published
+ */
+public enum PublishProblem {
+	NO_FIRST_PAGE("Le livre n'a pas de première page"),
+	CHOICE_TO_MISSING_PAGE("Un choix mène à une page qui n'est pas dans le livre"),
+	ORPHAN_PAGES("Certaines pages ne sont pas accessibles depuis la première page"),
+	EMPTY_CHOICE_LABEL("Un choix n'a pas de libellé"),
+	INVALID_ISBN("L'isbn du livre n'est pas valide");
+
+	private final String message;
+
+	PublishProblem(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * Gets the message explaining the problem to the author
+	 *
+	 * @return the message
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
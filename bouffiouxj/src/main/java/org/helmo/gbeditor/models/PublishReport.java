@@ -0,0 +1,69 @@
+package org.helmo.gbeditor.models;
+
+import java.util.*;
+
+/**
+ * PublishReport gives the problems found by the PublishValidator in each book of a batch, by isbn.
+ */
+public final class PublishReport {
+
+	private final Map<String, List<PublishProblem>> problemsByIsbn;
+
+	/**
+	 * Constructor of the report
+	 *
+	 * @param problemsByIsbn the problems of each book, in the order of the books validated
+	 */
+	PublishReport(Map<String, List<PublishProblem>> problemsByIsbn) {
+		this.problemsByIsbn = problemsByIsbn;
+	}
+
+	/**
+	 * Gets if every book can be published
+	 *
+	 * @return true if no problem was found, false otherwise
+	 */
+	public boolean isValid() {
+		return problemsByIsbn.values().stream().allMatch(List::isEmpty);
+	}
+
+	/**
+	 * Gets the isbn of the books that can be published
+	 *
+	 * @return the isbn of the books without problem
+	 */
+	public List<String> getValidIsbns() {
+		List<String> result = new ArrayList<>();
+		problemsByIsbn.forEach((isbn, problems) -> {
+			if (problems.isEmpty()) {
+				result.add(isbn);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Gets the books that can not be published with their problems
+	 *
+	 * @return the problems by isbn of the rejected books
+	 */
+	public Map<String, List<PublishProblem>> getRejected() {
+		Map<String, List<PublishProblem>> result = new LinkedHashMap<>();
+		problemsByIsbn.forEach((isbn, problems) -> {
+			if (!problems.isEmpty()) {
+				result.put(isbn, problems);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Gets the problems of a book
+	 *
+	 * @param isbn the isbn of the book
+	 * @return its problems, empty if it can be published or was not validated
+	 */
+	public List<PublishProblem> getProblems(String isbn) {
+		return problemsByIsbn.getOrDefault(isbn, List.of());
+	}
+}
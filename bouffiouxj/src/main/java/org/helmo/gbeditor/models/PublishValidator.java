@@ -0,0 +1,87 @@
+package org.helmo.gbeditor.models;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
+
+/**
+ * PublishValidator checks that a book can be published: it has a first page, every page can be reached from it,
+ * every choice has a label and leads to a page of the book, and its isbn is valid.
+ * The graph is checked with the analysis of the book, computed once per version of the book.
+ */
+public final class PublishValidator {
+
+	private PublishValidator() {
+		// Classe utilitaire
+	}
+
+	/**
+	 * Checks that a book can be published
+	 *
+	 * @param book the book to check
+	 * @return the problems found, empty if the book can be published
+	 */
+	public static List<PublishProblem> validate(Book book) {
+		List<PublishProblem> problems = new ArrayList<>();
+		if (!ISBN.isValid(book.getMetadata(BOOK_ISBN))) {
+			problems.add(PublishProblem.INVALID_ISBN);
+		}
+		if (book.getPageCount() < 1) {
+			problems.add(PublishProblem.NO_FIRST_PAGE);
+			return problems;
+		}
+		var analysis = book.getAnalysis();
+		if (analysis.getChoicesOutsideBook() > 0) {
+			problems.add(PublishProblem.CHOICE_TO_MISSING_PAGE);
+		}
+		if (!analysis.getUnreachablePages().isEmpty()) {
+			problems.add(PublishProblem.ORPHAN_PAGES);
+		}
+		if (hasEmptyChoiceLabel(book)) {
+			problems.add(PublishProblem.EMPTY_CHOICE_LABEL);
+		}
+		return problems;
+	}
+
+	/**
+	 * Checks the books concurrently, one task per book on the given pool.
+	 * The pages of the books are loaded first on the calling thread: the repositories do not load them concurrently.
+	 *
+	 * @param books the books to check, each book must be given once
+	 * @param pool  the pool running the checks
+	 * @return the problems of each book
+	 */
+	public static PublishReport validateAll(Collection<Book> books, ForkJoinPool pool) {
+		books.forEach(Book::loadPages);
+		Map<String, ForkJoinTask<List<PublishProblem>>> tasks = new LinkedHashMap<>();
+		for (Book book : books) {
+			tasks.put(book.getMetadata(BOOK_ISBN), pool.submit(() -> validate(book)));
+		}
+		Map<String, List<PublishProblem>> problems = new LinkedHashMap<>();
+		tasks.forEach((isbn, task) -> problems.put(isbn, task.join()));
+		return new PublishReport(problems);
+	}
+
+	/**
+	 * Checks the books concurrently on the common pool
+	 *
+	 * @param books the books to check
+	 * @return the problems of each book
+	 */
+	public static PublishReport validateAll(Collection<Book> books) {
+		return validateAll(books, ForkJoinPool.commonPool());
+	}
+
+	private static boolean hasEmptyChoiceLabel(Book book) {
+		for (Page page : book.getPagesView()) {
+			for (String label : page.getChoicesView().keySet()) {
+				if (label == null || label.isBlank()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
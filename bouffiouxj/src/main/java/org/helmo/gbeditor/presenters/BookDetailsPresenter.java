@@ -2,23 +2,38 @@ package org.helmo.gbeditor.presenters;
 
 import org.helmo.gbeditor.models.Book;
 import org.helmo.gbeditor.models.Page;
+import org.helmo.gbeditor.models.PublishProblem;
+import org.helmo.gbeditor.models.PublishValidator;
 import org.helmo.gbeditor.presenters.interfaces.BookDetailsViewInterface;
 import org.helmo.gbeditor.presenters.interfaces.MainViewInterface;
 import org.helmo.gbeditor.presenters.interfaces.PresenterInterface;
 import org.helmo.gbeditor.presenters.interfaces.ViewInterface;
+import org.helmo.gbeditor.presenters.viewmodels.BookAnalysisViewModel;
 import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
 import org.helmo.gbeditor.presenters.viewmodels.PageViewModel;
 import org.helmo.gbeditor.repositories.RepositoryInterface;
+import org.helmo.gbeditor.repositories.SaveListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * BookDetailsPresenter is the presenter for the book details view.
  * It is used to display the details of a book.
+ * It also tells the user when the modifications could not be written in the background.
+ * After an edit of the pages, the view is only told what changed (a page inserted, moved, modified...).
+ * The presenter keeps the view models of the pages given to the view, so that it always hands out the same instance for a page.
  */
-public class BookDetailsPresenter implements PresenterInterface {
+public class BookDetailsPresenter implements PresenterInterface, SaveListener {
 	private final RepositoryInterface repo;
 	private MainPresenter mainPresenter;
 	private BookDetailsViewInterface view;
 	private Book bookDisplayed;
+	private final Map<String, PageViewModel> pageModels = new HashMap<>();
 	private MainViewInterface baseView;
 
 	/**
@@ -59,7 +74,10 @@ public class BookDetailsPresenter implements PresenterInterface {
 
 	public void askBookToView() {
 		if (bookDisplayed != null) {
-			view.setBookToDisplay(new BookViewModel(bookDisplayed));
+			var bookModel = new BookViewModel(bookDisplayed);
+			pageModels.clear();
+			bookModel.getPages().forEach(page -> pageModels.put(page.getId(), page));
+			view.setBookToDisplay(bookModel);
 		}
 	}
 
@@ -104,9 +122,10 @@ public class BookDetailsPresenter implements PresenterInterface {
 	 */
 	public void addPage(String text, int pos) {
 		if (bookDisplayed != null && !bookDisplayed.isPublished()) {
-			bookDisplayed.addPage(new Page(text), pos);
+			var page = new Page(text);
+			bookDisplayed.addPage(page, pos);
 			repo.updatesAddBook(bookDisplayed);
-			view.refresh();
+			view.pageInserted(indexOf(page.getId()), PageViewModel.of(page, pageModels));
 		}
 	}
 
@@ -116,8 +135,8 @@ public class BookDetailsPresenter implements PresenterInterface {
 	 * @param selectedPage the page to delete
 	 */
 	public void removePage(PageViewModel selectedPage) {
-		if (bookDisplayed != null && !bookDisplayed.isPublished() && selectedPage != null && bookDisplayed.getPages().contains(selectedPage.toPage())) {
-			if (bookDisplayed.hasChoicesTo(selectedPage.toPage())) {
+		if (bookDisplayed != null && !bookDisplayed.isPublished() && selectedPage != null && bookDisplayed.getPageById(selectedPage.getId()) != null) {
+			if (bookDisplayed.hasChoicesTo(bookDisplayed.getPageById(selectedPage.getId()))) {
 				view.confirmPageSuppression(selectedPage);
 			} else {
 				confirmPageDeletion(selectedPage);
@@ -138,14 +157,39 @@ public class BookDetailsPresenter implements PresenterInterface {
 
 	/**
 	 * This method is used to save a Page's state after modification.
+	 * The view model then takes the saved page as its original state.
 	 *
 	 * @param selected the page to save
 	 */
 	public void updatePage(PageViewModel selected) {
-		if (bookDisplayed != null && !bookDisplayed.isPublished() && selected != null) {
+		if (bookDisplayed != null && !bookDisplayed.isPublished() && selected != null && bookDisplayed.getPageById(selected.getId()) != null) {
+			int from = indexOf(selected.getId());
 			bookDisplayed.updatePage(selected.toPage());
 			repo.updatesAddBook(bookDisplayed);
-			view.refresh();
+			int to = indexOf(selected.getId());
+			if (from != to) {
+				view.pageMoved(from, to);
+			}
+			view.pageChanged(to, selected);
+			pageModels.put(selected.getId(), selected);
+			selected.rebase(bookDisplayed.getPageById(selected.getId()), pageModels);
+		}
+	}
+
+	/**
+	 * This method is used to drop the modifications of a page that were not saved:
+	 * the view model takes back the content and the choices of the page in the book, only this page is shown again.
+	 *
+	 * @param edited the view model of the page being edited
+	 */
+	public void cancelPageEdit(PageViewModel edited) {
+		if (bookDisplayed != null && edited != null) {
+			var page = bookDisplayed.getPageById(edited.getId());
+			if (page != null) {
+				pageModels.put(edited.getId(), edited);
+				edited.rebase(page, pageModels);
+				view.pageChanged(indexOf(page.getId()), edited);
+			}
 		}
 	}
 
@@ -157,32 +201,75 @@ public class BookDetailsPresenter implements PresenterInterface {
 	 */
 	public int getPageNumber(PageViewModel selectedPage) {
 		if (bookDisplayed != null && selectedPage != null) {
-			return bookDisplayed.getPageNumber(selectedPage.toPage());
+			return bookDisplayed.getPageNumberById(selectedPage.getId());
 		}
 		return -1;
 	}
 
+	/**
+	 * This method is used to ask the engine how many pages have a choice to a page
+	 *
+	 * @param selectedPage the page to check
+	 * @return the number of pages leading to it
+	 */
+	public int countPagesWithChoicesTo(PageViewModel selectedPage) {
+		if (bookDisplayed != null && selectedPage != null) {
+			var page = bookDisplayed.getPageById(selectedPage.getId());
+			return page == null ? 0 : bookDisplayed.getPagesWithChoicesTo(page).size();
+		}
+		return 0;
+	}
+
+	/**
+	 * This method is used to ask the engine the analysis of the pages of the book (unreachable pages, endings, cycles).
+	 * The analysis is only computed again when the pages or the choices have changed.
+	 *
+	 * @return the analysis, null if no book is displayed
+	 */
+	public BookAnalysisViewModel getAnalysis() {
+		return bookDisplayed == null ? null : new BookAnalysisViewModel(bookDisplayed);
+	}
+
 	/**
 	 * This method is used to confirm the deletion of a page
 	 *
 	 * @param selectedPage the page to delete
 	 */
 	public void confirmPageDeletion(PageViewModel selectedPage) {
-		if (selectedPage != null) {
-			bookDisplayed.removePage(selectedPage.toPage());
+		if (selectedPage != null && bookDisplayed.getPageById(selectedPage.getId()) != null) {
+			var page = bookDisplayed.getPageById(selectedPage.getId());
+			int index = indexOf(page.getId());
+			Map<Page, List<String>> removedChoices = new LinkedHashMap<>();
+			for (var source : bookDisplayed.getPagesWithChoicesTo(page)) {
+				source.getChoicesView().forEach((choice, target) -> {
+					if (target.equals(page)) {
+						removedChoices.computeIfAbsent(source, s -> new ArrayList<>()).add(choice);
+					}
+				});
+			}
+			bookDisplayed.removePage(page);
+			pageModels.remove(page.getId());
 			repo.updatesAddBook(bookDisplayed);
-			view.refresh();
+			view.pageRemoved(index);
+			removedChoices.forEach((source, choices) -> choices.forEach(choice -> view.choiceRemoved(indexOf(source.getId()), choice)));
 		}
 	}
 
 	/**
-	 * This method is used to get a Page from the engine by its identifier
+	 * This method is used to get a Page from the engine by its identifier.
+	 * The view model given to the view for this page is returned, it is only built if the view has none yet
+	 * (its choices then lead to the view models of the view).
 	 *
 	 * @param id the identifier of the page
-	 * @return the page
+	 * @return the view model of the page, null if the book has no page with this identifier
 	 */
 	public PageViewModel getPageById(String id) {
-		return new PageViewModel(bookDisplayed.getPageById(id));
+		var model = id == null ? null : pageModels.get(id);
+		if (model != null) {
+			return model;
+		}
+		var page = bookDisplayed.getPageById(id);
+		return page == null ? null : PageViewModel.of(page, pageModels);
 	}
 
 	/**
@@ -214,10 +301,15 @@ public class BookDetailsPresenter implements PresenterInterface {
 	}
 
 	/**
-	 * Publishes the book
+	 * Publishes the book if it passes the checks of the PublishValidator, tells the author what is wrong otherwise
 	 */
 	public void publishBook() {
 		if (bookDisplayed != null && !bookDisplayed.isPublished()) {
+			var problems = PublishValidator.validate(bookDisplayed);
+			if (!problems.isEmpty()) {
+				view.display(problems.stream().map(PublishProblem::getMessage).collect(Collectors.joining("\n")));
+				return;
+			}
 			bookDisplayed.publish();
 			repo.updatesAddBook(bookDisplayed);
 			view.refresh();
@@ -225,18 +317,37 @@ public class BookDetailsPresenter implements PresenterInterface {
 	}
 
 	public void movePageUp(PageViewModel selectedItem) {
-		if (bookDisplayed != null && !bookDisplayed.isPublished() && selectedItem != null && bookDisplayed.getPages().contains(selectedItem.toPage())) {
-			bookDisplayed.movePageUp(selectedItem.toPage());
+		if (bookDisplayed != null && !bookDisplayed.isPublished() && selectedItem != null && bookDisplayed.getPageById(selectedItem.getId()) != null) {
+			int from = indexOf(selectedItem.getId());
+			bookDisplayed.movePageUp(bookDisplayed.getPageById(selectedItem.getId()));
 			repo.updatesAddBook(bookDisplayed);
-			view.refresh();
+			int to = indexOf(selectedItem.getId());
+			if (from != to) {
+				view.pageMoved(from, to);
+			}
 		}
 	}
 
 	public void movePageDown(PageViewModel selectedItem) {
-		if (bookDisplayed != null && !bookDisplayed.isPublished() && selectedItem != null && bookDisplayed.getPages().contains(selectedItem.toPage())) {
-			bookDisplayed.movePageDown(selectedItem.toPage());
+		if (bookDisplayed != null && !bookDisplayed.isPublished() && selectedItem != null && bookDisplayed.getPageById(selectedItem.getId()) != null) {
+			int from = indexOf(selectedItem.getId());
+			bookDisplayed.movePageDown(bookDisplayed.getPageById(selectedItem.getId()));
 			repo.updatesAddBook(bookDisplayed);
-			view.refresh();
+			int to = indexOf(selectedItem.getId());
+			if (from != to) {
+				view.pageMoved(from, to);
+			}
 		}
 	}
+
+	@Override
+	public void saveFailed(String message) {
+		if (view != null) {
+			view.display("Erreur: " + message);
+		}
+	}
+
+	private int indexOf(String pageId) {
+		return bookDisplayed.getPageNumberById(pageId) - 1;
+	}
 }
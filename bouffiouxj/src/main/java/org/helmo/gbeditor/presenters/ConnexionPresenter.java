@@ -41,20 +41,8 @@ public class ConnexionPresenter implements PresenterInterface {
 
 	private boolean repoConnection(String name, String firstName) {
 		try {
-			var author = new Author(name, firstName);
-			var authors = repo.getAuthors();
-			if (!authors.contains(new Author(name, firstName))) {
-				authors.add(author);
-				repo.setCurrentAuthor(author);
-				repo.addAuthor(author);
-			} else {
-				for (Author a : authors) {
-					if (a.equals(author)) {
-						repo.setCurrentAuthor(a);
-						break;
-					}
-				}
-			}
+			Author.checkValidity(name, firstName);
+			repo.setCurrentAuthor(repo.registerAuthor(name, firstName));
 			return true;
 		} catch (IllegalArgumentException e) {
 			return false;
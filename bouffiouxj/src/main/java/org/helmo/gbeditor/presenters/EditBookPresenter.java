@@ -84,12 +84,17 @@ public class EditBookPresenter implements PresenterInterface {
 	}
 
 	/**
-	 * Asks the engine to preset the isbn with the author's id
+	 * Asks the engine to preset the isbn with the author's id and a book id the author does not use yet
 	 */
 	public void askISBN() {
 		currentAuthor = repo.getCurrentAuthor();
 		if (currentAuthor != null) {
 			view.presetISBN(new int[]{LINGUISTIC_GROUP, currentAuthor.getIdentifier()});
+			try {
+				view.setBookId(repo.getFreeBookId(currentAuthor));
+			} catch (IllegalArgumentException e) {
+				view.display(e.getMessage());
+			}
 		}
 	}
 
@@ -145,7 +150,7 @@ public class EditBookPresenter implements PresenterInterface {
 	 *
 	 * @param isbn the isbn to check
 	 */
-	public void askIsbnControlNumber(String isbn) {
+	public void askIsbnControlNumber(CharSequence isbn) {
 		view.setIsbnControlNumber(ISBN.computeCheckSum(isbn));
 	}
 
@@ -2,14 +2,22 @@ package org.helmo.gbeditor.presenters;
 
 import org.helmo.gbeditor.models.Author;
 import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.PublishProblem;
+import org.helmo.gbeditor.models.PublishValidator;
 import org.helmo.gbeditor.presenters.interfaces.MainViewInterface;
 import org.helmo.gbeditor.presenters.interfaces.PresenterInterface;
 import org.helmo.gbeditor.presenters.interfaces.ViewInterface;
 import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
 import org.helmo.gbeditor.repositories.RepositoryInterface;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
 
 /**
  * The MainPresenter is the presenter of the main view
@@ -90,10 +98,10 @@ public class MainPresenter implements PresenterInterface {
 	 */
 	public void bookClicked(BookViewModel book) {
 		setBaseViewOfDetailsPresenter();
-		if (!bookDetailsOpened || !bookShown.equals(book.toBook())) {
+		if (!bookDetailsOpened || bookShown.getIsbn().toLong() != book.getIsbnKey()) {
 			bookShown = repo.getBook(book.getIsbn());
 			if (bookShown != null) {
-				detailsPresenter.displayBook(repo.getBook(book.getIsbn() + ""));
+				detailsPresenter.displayBook(bookShown);
 				bookDetailsOpened = true;
 			}
 		}
@@ -121,6 +129,39 @@ public class MainPresenter implements PresenterInterface {
 		repo.setBookToEdit(book);
 	}
 
+	/**
+	 * This method is used to publish all the books of the author that pass the checks of the PublishValidator.
+	 * The books are checked concurrently, the author is told how many books have been published and why the others
+	 * have not.
+	 */
+	public void publishValidBooks() {
+		loadAuthor();
+		var books = repo.getBooksFromAuthor(currentAuthor);
+		if (books == null) {
+			return;
+		}
+		List<Book> unpublished = new ArrayList<>();
+		for (Book book : books) {
+			if (!book.isPublished()) {
+				unpublished.add(book);
+			}
+		}
+		var report = PublishValidator.validateAll(unpublished);
+		var validIsbns = new HashSet<>(report.getValidIsbns());
+		for (Book book : unpublished) {
+			if (validIsbns.contains(book.getMetadata(BOOK_ISBN))) {
+				book.publish();
+				repo.updatesAddBook(book);
+			}
+		}
+		var message = new StringJoiner("\n");
+		message.add(String.format("%d livre(s) publié(s)", validIsbns.size()));
+		report.getRejected().forEach((isbn, problems) -> message.add(String.format("%s : %s", isbn,
+				problems.stream().map(PublishProblem::getMessage).collect(Collectors.joining(", ")))));
+		view.display(message.toString());
+		askBooksFromAuthor();
+	}
+
 	/**
 	 * This method is used to handle the quit action from the view
 	 */
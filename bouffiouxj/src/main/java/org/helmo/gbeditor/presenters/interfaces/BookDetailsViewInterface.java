@@ -24,4 +24,43 @@ public interface BookDetailsViewInterface extends ViewInterface, DisplayBookView
 	 * @param selectedPage the page to delete
 	 */
 	void confirmPageSuppression(PageViewModel selectedPage);
+
+	/**
+	 * This method is used to show a page added to the book, without rebuilding the other pages
+	 *
+	 * @param index the position of the new page
+	 * @param page  the new page
+	 */
+	void pageInserted(int index, PageViewModel page);
+
+	/**
+	 * This method is used to stop showing a page removed from the book
+	 *
+	 * @param index the position the page had
+	 */
+	void pageRemoved(int index);
+
+	/**
+	 * This method is used to show a page at its new position
+	 *
+	 * @param from the old position of the page
+	 * @param to   the new position of the page
+	 */
+	void pageMoved(int from, int to);
+
+	/**
+	 * This method is used to show the new content or the new choices of a page
+	 *
+	 * @param index the position of the page
+	 * @param page  the page modified
+	 */
+	void pageChanged(int index, PageViewModel page);
+
+	/**
+	 * This method is used to stop showing a choice removed from a page (when the page it led to is deleted)
+	 *
+	 * @param index  the position of the page having the choice
+	 * @param choice the label of the choice
+	 */
+	void choiceRemoved(int index, String choice);
 }
@@ -0,0 +1,59 @@
+package org.helmo.gbeditor.presenters.viewmodels;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.BookAnalysis;
+import org.helmo.gbeditor.models.Page;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BookAnalysisViewModel gives the analysis of the graph of a book with the numbers of the pages (from 1).
+ */
+public class BookAnalysisViewModel {
+	private final List<Integer> unreachablePages;
+	private final List<Integer> deadEnds;
+	private final List<List<Integer>> cycles = new ArrayList<>();
+	private final Map<Integer, Integer> endingDistances = new LinkedHashMap<>();
+
+	public BookAnalysisViewModel(Book book) {
+		BookAnalysis analysis = book.getAnalysis();
+		this.unreachablePages = numbers(book, analysis.getUnreachablePages());
+		this.deadEnds = numbers(book, analysis.getDeadEnds());
+		for (var cycle : analysis.getCycles()) {
+			cycles.add(numbers(book, cycle));
+		}
+		analysis.getEndingDistances().forEach((page, distance) -> endingDistances.put(book.getPageNumberById(page.getId()), distance));
+	}
+
+	private static List<Integer> numbers(Book book, List<Page> pages) {
+		List<Integer> result = new ArrayList<>(pages.size());
+		for (var page : pages) {
+			result.add(book.getPageNumberById(page.getId()));
+		}
+		return result;
+	}
+
+	public List<Integer> getUnreachablePages() {
+		return unreachablePages;
+	}
+
+	public List<Integer> getDeadEnds() {
+		return deadEnds;
+	}
+
+	public List<List<Integer>> getCycles() {
+		return cycles;
+	}
+
+	/**
+	 * Gets the shortest number of choices from the first page to each ending reachable from it
+	 *
+	 * @return the number of choices by number of ending page
+	 */
+	public Map<Integer, Integer> getEndingDistances() {
+		return endingDistances;
+	}
+}
@@ -2,29 +2,35 @@ package org.helmo.gbeditor.presenters.viewmodels;
 
 import org.helmo.gbeditor.models.Book;
 import org.helmo.gbeditor.models.BookDataFields;
-import org.helmo.gbeditor.models.Page;
+import org.helmo.gbeditor.models.ISBN;
 
 import java.util.*;
 
 import static org.helmo.gbeditor.models.BookDataFields.*;
 
 public class BookViewModel {
+	/**
+	 * The key of a view model whose isbn is not valid
+	 */
+	private static final long NO_ISBN = -1;
+
 	private final boolean isPublished;
 	private AuthorViewModel author;
-	private final List<PageViewModel> pages = new ArrayList<>();
+	private final Book book;
+	private List<PageViewModel> pages = null;
 
 	private final Map<BookDataFields, String> metadata = new LinkedHashMap<>();
+	private long isbnKey;
 
 	public BookViewModel(Book b) {
 		metadata.put(TITLE, b.getMetadata(TITLE));
 		this.author = new AuthorViewModel(b.getAuthor());
 		metadata.put(SUMMARY, b.getMetadata(SUMMARY));
 		metadata.put(BOOK_ISBN, b.getMetadata(BOOK_ISBN));
+		this.isbnKey = b.getIsbn().toLong();
 		metadata.put(IMAGE_PATH, b.getMetadata(IMAGE_PATH));
 		this.isPublished = b.isPublished();
-		for (Page p : b.getPages()) {
-			pages.add(new PageViewModel(p));
-		}
+		this.book = b;
 	}
 
 	public String getTitle() {
@@ -57,6 +63,16 @@ public class BookViewModel {
 
 	public void setIsbn(String isbn) {
 		this.metadata.put(BOOK_ISBN, isbn);
+		this.isbnKey = ISBN.isValid(isbn) ? ISBN.parse(isbn).toLong() : NO_ISBN;
+	}
+
+	/**
+	 * Gets the isbn of the book packed in a long (ISBN.toLong), which identifies the book
+	 *
+	 * @return the packed isbn, -1 if the isbn is not valid
+	 */
+	public long getIsbnKey() {
+		return isbnKey;
 	}
 
 	public String getImagePath() {
@@ -71,14 +87,25 @@ public class BookViewModel {
 		return isPublished;
 	}
 
+	/**
+	 * Gets the pages of the book. They are only built (and loaded by the book if needed) on the first call,
+	 * the list of the books of an author does not need them. Each page has one view model, shared by its choices.
+	 *
+	 * @return the view models of the pages
+	 */
 	public List<PageViewModel> getPages() {
+		if (pages == null) {
+			pages = PageViewModel.of(book.getPagesView());
+		}
 		return pages;
 	}
 
 	public Book toBook() {
 		Book b = new Book(metadata.get(TITLE), author.toAuthor(), metadata.get(SUMMARY), metadata.get(BOOK_ISBN), metadata.get(IMAGE_PATH));
-		for (PageViewModel p : pages) {
-			b.addPage(p.toPage(), this.pages.indexOf(p));
+		var bookPages = getPages();
+		var newPages = PageViewModel.toPages(bookPages);
+		for (PageViewModel p : bookPages) {
+			b.addPage(newPages.get(p.getId()), Integer.MAX_VALUE);
 		}
 		if (isPublished) {
 			b.publish();
@@ -91,11 +118,11 @@ public class BookViewModel {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		BookViewModel that = (BookViewModel) o;
-		return metadata.get(BOOK_ISBN).equals(that.metadata.get(BOOK_ISBN));
+		return isbnKey == that.isbnKey && (isbnKey != NO_ISBN || Objects.equals(getIsbn(), that.getIsbn()));
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(metadata.get(BOOK_ISBN));
+		return Long.hashCode(isbnKey);
 	}
 }
@@ -2,23 +2,88 @@ package org.helmo.gbeditor.presenters.viewmodels;
 
 import org.helmo.gbeditor.models.Page;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 
 public class PageViewModel {
 	private String content;
 	private final String id;
 	private final Map<String, PageViewModel> choices;
-	private final Page originalPage;
+	private Page originalPage;
 
 	public PageViewModel(Page page) {
+		this(page, new HashMap<>());
+		linkChoices(List.of(this), new HashMap<>(Map.of(id, this)));
+	}
+
+	/**
+	 * Builds the view model of a page without its choices, they are linked afterwards.
+	 */
+	private PageViewModel(Page page, Map<String, PageViewModel> choices) {
 		originalPage = page;
 		this.content = page.getContent();
 		this.id = page.getId();
-		this.choices = new HashMap<>();
-		for (String choice : page.getChoices().keySet()) {
-			this.choices.put(choice, new PageViewModel(page.getChoices().get(choice)));
+		this.choices = choices;
+	}
+
+	/**
+	 * Builds the view models of the pages of a book in one pass.
+	 * Each page (by id) gets one view model, shared by all the choices leading to it, even when the choices form a cycle.
+	 *
+	 * @param pages the pages of the book
+	 * @return the view models of the pages, in the same order
+	 */
+	static List<PageViewModel> of(Collection<Page> pages) {
+		Map<String, PageViewModel> registry = new HashMap<>();
+		List<PageViewModel> models = new ArrayList<>(pages.size());
+		for (Page page : pages) {
+			var model = registry.get(page.getId());
+			if (model == null) {
+				model = new PageViewModel(page, new HashMap<>());
+				registry.put(model.id, model);
+			}
+			models.add(model);
+		}
+		linkChoices(models, registry);
+		return models;
+	}
+
+	/**
+	 * Gets the view model of a page from a registry, building it if the registry has none yet.
+	 * The choices of a new view model lead to the view models of the registry, the missing ones are built and added too.
+	 *
+	 * @param page     the page
+	 * @param registry the view models already built, by page id
+	 * @return the view model of the page, shared with the registry
+	 */
+	public static PageViewModel of(Page page, Map<String, PageViewModel> registry) {
+		var model = registry.get(page.getId());
+		if (model == null) {
+			model = new PageViewModel(page, new HashMap<>());
+			registry.put(model.id, model);
+			linkChoices(List.of(model), registry);
+		}
+		return model;
+	}
+
+	/**
+	 * Links the choices of the given view models, and of the view models created for the pages they lead to.
+	 *
+	 * @param models   the view models whose choices are not linked yet
+	 * @param registry the view models already built, by page id
+	 */
+	private static void linkChoices(Collection<PageViewModel> models, Map<String, PageViewModel> registry) {
+		Deque<PageViewModel> pending = new ArrayDeque<>(models);
+		while (!pending.isEmpty()) {
+			var model = pending.pop();
+			for (var choice : model.originalPage.getChoicesView().entrySet()) {
+				var target = registry.get(choice.getValue().getId());
+				if (target == null) {
+					target = new PageViewModel(choice.getValue(), new HashMap<>());
+					registry.put(target.id, target);
+					pending.push(target);
+				}
+				model.choices.put(choice.getKey(), target);
+			}
 		}
 	}
 
@@ -38,13 +103,42 @@ public class PageViewModel {
 		return choices;
 	}
 
+	/**
+	 * Builds the page of this view model, with copies of the pages its choices lead to (directly or not).
+	 * Each page is copied once, whatever the number of choices leading to it.
+	 *
+	 * @return the new page
+	 */
 	public Page toPage() {
-		Page page = new Page(content);
-		page.setId(id);
-		for (String choice : choices.keySet()) {
-			page.addChoice(choice, choices.get(choice).toPage());
+		return toPages(List.of(this)).get(id);
+	}
+
+	/**
+	 * Builds the pages of the given view models and of the view models their choices lead to,
+	 * in a time proportional to the number of pages and choices.
+	 *
+	 * @param models the view models to convert
+	 * @return the new pages by id
+	 */
+	static Map<String, Page> toPages(Collection<PageViewModel> models) {
+		Map<String, Page> pages = new HashMap<>();
+		List<PageViewModel> converted = new ArrayList<>();
+		Deque<PageViewModel> pending = new ArrayDeque<>(models);
+		while (!pending.isEmpty()) {
+			var model = pending.pop();
+			if (!pages.containsKey(model.id)) {
+				Page page = new Page(model.content);
+				page.setId(model.id);
+				pages.put(model.id, page);
+				converted.add(model);
+				pending.addAll(model.choices.values());
+			}
 		}
-		return page;
+		for (var model : converted) {
+			var page = pages.get(model.id);
+			model.choices.forEach((choice, target) -> page.addChoice(choice, pages.get(target.id)));
+		}
+		return pages;
 	}
 
 	public void removeChoice(String choice) {
@@ -55,18 +149,37 @@ public class PageViewModel {
 		choices.put(choice, page);
 	}
 
+	/**
+	 * Takes the given page as the new original state of this view model, with its content and its choices:
+	 * after a save, the page saved from this view model; after a cancelled edit, the page of the book.
+	 * The view model is no longer modified afterwards.
+	 *
+	 * @param page     the page, with the same id
+	 * @param registry the view models already built, by page id, which the choices lead to
+	 */
+	public void rebase(Page page, Map<String, PageViewModel> registry) {
+		if (page == null || !id.equals(page.getId())) {
+			throw new IllegalArgumentException("La page ne correspond pas à ce modèle");
+		}
+		this.originalPage = page;
+		this.content = page.getContent();
+		choices.clear();
+		linkChoices(List.of(this), registry);
+	}
+
 	public boolean hasBeenModified() {
 		if (!Objects.equals(content, originalPage.getContent())) {
 			return true;
 		}
-		if (originalPage.getChoices().size() != choices.size()) {
+		var originalChoices = originalPage.getChoicesView();
+		if (originalChoices.size() != choices.size()) {
 			return true;
 		}
 		for (String choice : choices.keySet()) {
-			if (!originalPage.getChoices().containsKey(choice)) {
+			if (!originalChoices.containsKey(choice)) {
 				return true;
 			}
-			if (!choices.get(choice).toPage().equals(originalPage.getChoices().get(choice))) {
+			if (!choices.get(choice).getId().equals(originalChoices.get(choice).getId())) {
 				return true;
 			}
 		}
@@ -0,0 +1,163 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.repositories.exceptions.IllegalImageExtensionException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * AbstractRepository contains what every repository shares whatever its storage:
+ * the state of the session (current author, book to edit), the authors, kept in an AuthorRegistry,
+ * and the images of the books, kept in an ImageStore.
+ */
+public abstract class AbstractRepository implements RepositoryInterface {
+
+	private static final byte[] JPG_BYTES = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+	private static final byte[] PNG_BYTES = new byte[]{(byte) 0x89, (byte) 0x50, (byte) 0x4E, (byte) 0x47, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A}; // Avec l'autorisation de M. Hendrikx pour le cast
+
+	private final ImageStore images;
+	private final AuthorRegistry authors = new AuthorRegistry();
+	private Author currentAuthor;
+	private Book bookToEdit;
+
+	/**
+	 * Constructor of the repository
+	 *
+	 * @param imgDirPath The path of the image directory to save the image it copies.
+	 */
+	protected AbstractRepository(Path imgDirPath) {
+		this.images = new ImageStore(imgDirPath, ImageStore.DEFAULT_GRACE_MILLIS);
+	}
+
+	/**
+	 * Copie l'image du livre dans le dossier d'images, sous le nom de l'empreinte SHA-256 de son contenu.
+	 * L'en-tête est vérifié et l'image est copiée depuis le même canal ; la copie est écrite dans un fichier temporaire
+	 * puis renommée, un fichier refusé ou une copie interrompue ne laisse donc rien dans le dossier.
+	 * Une image déjà présente dans le dossier (même contenu) n'est pas copiée une seconde fois.
+	 *
+	 * @param imagePath chemin de l'image
+	 * @return le chemin de l'image dans le dossier d'images, une chaîne vide si l'image n'a pas pu être copiée
+	 */
+	@Override
+	public String copyImage(String imagePath) {
+		var expectedHeader = expectedHeader(imagePath);
+		try (FileChannel source = FileChannel.open(Path.of(imagePath), StandardOpenOption.READ)) {
+			if (expectedHeader == null || !hasHeader(source, expectedHeader)) {
+				throw new IllegalImageExtensionException();
+			}
+			var extension = expectedHeader == JPG_BYTES ? "jpg" : "png";
+			return images.put(source, extension).toString();
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * Tells the image store that the books of the repository have changed: the images no book uses anymore
+	 * are deleted in the background.
+	 *
+	 * @param books all the books of the repository
+	 */
+	protected void imagesReferencedBy(Collection<Book> books) {
+		images.referencesChanged(books);
+	}
+
+	/**
+	 * Gets the registry of the authors, filled by the repository with the authors it stores and those of its books.
+	 *
+	 * @return the registry of the authors
+	 */
+	AuthorRegistry authorRegistry() {
+		return authors;
+	}
+
+	/**
+	 * Saves an author that has just been registered.
+	 *
+	 * @param author the new author
+	 */
+	protected abstract void saveAuthor(Author author);
+
+	@Override
+	public Set<Author> getAuthors() {
+		return authors.values();
+	}
+
+	@Override
+	public synchronized Author registerAuthor(String name, String firstName) {
+		var known = authors.get(name, firstName);
+		if (known != null) {
+			return known;
+		}
+		var author = authors.register(name, firstName);
+		saveAuthor(author);
+		return author;
+	}
+
+	@Override
+	public synchronized void addAuthor(Author author) {
+		if (authors.add(author)) {
+			saveAuthor(author);
+		}
+	}
+
+	@Override
+	public void setCurrentAuthor(Author author) {
+		this.currentAuthor = author;
+	}
+
+	@Override
+	public Author getCurrentAuthor() {
+		return currentAuthor;
+	}
+
+	@Override
+	public Book getBookToEdit() {
+		return this.bookToEdit;
+	}
+
+	@Override
+	public void setBookToEdit(Book book) {
+		if (book != null) {
+			this.bookToEdit = book;
+		}
+	}
+
+	/**
+	 * Donne les premiers octets attendus pour l'extension de l'image (jpg ou png), peut évoluer facilement dans le futur
+	 *
+	 * @param imagePath le chemin de l'image
+	 * @return les premiers octets attendus, null si l'extension n'est pas acceptée
+	 */
+	private static byte[] expectedHeader(String imagePath) {
+		int dot = imagePath.lastIndexOf('.');
+		if (dot < 0) {
+			return null;
+		}
+		switch (imagePath.substring(dot).toLowerCase(Locale.FRENCH)) {
+			case ".jpg":
+				return JPG_BYTES;
+			case ".png":
+				return PNG_BYTES;
+			default:
+				return null;
+		}
+	}
+
+	private static boolean hasHeader(FileChannel channel, byte[] expected) throws IOException {
+		var header = ByteBuffer.allocate(expected.length);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+			// Le fichier peut être lu en plusieurs fois
+		}
+		return !header.hasRemaining() && Arrays.equals(header.array(), expected);
+	}
+}
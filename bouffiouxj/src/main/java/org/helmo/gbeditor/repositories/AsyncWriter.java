@@ -0,0 +1,165 @@
+package org.helmo.gbeditor.repositories;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * AsyncWriter writes the modifications of a repository on a background thread so that the caller
+ * (the JavaFX thread) never waits for the disk.
+ * <p>
+ * The modifications are keyed (by isbn for instance): a modification replaces the pending one with the same key,
+ * so a burst of modifications of the same book is written once. The writer waits a little after the first
+ * pending modification to gather the burst, then gives all the pending modifications to the sink at once.
+ * When too many different modifications are pending, the caller waits for the writer (backpressure).
+ * The listeners are notified through the given executor (Platform::runLater for the views).
+ *
+ * @param <V> the type of the modifications
+ */
+class AsyncWriter<V> {
+
+	static final int DEFAULT_CAPACITY = 256;
+	static final long LINGER_MILLIS = 20;
+
+	private final Map<String, V> pending = new LinkedHashMap<>();
+	private final int capacity;
+	private final Sink<V> sink;
+	private final Executor callbackExecutor;
+	private final List<SaveListener> listeners = new CopyOnWriteArrayList<>();
+	private boolean writing = false;
+
+	/**
+	 * Constructor of the writer, its thread is started immediately.
+	 *
+	 * @param name             the name of the thread
+	 * @param capacity         the maximum number of pending modifications
+	 * @param sink             the function writing a group of modifications
+	 * @param callbackExecutor the executor running the notifications of the listeners
+	 */
+	AsyncWriter(String name, int capacity, Sink<V> sink, Executor callbackExecutor) {
+		this.capacity = capacity;
+		this.sink = sink;
+		this.callbackExecutor = callbackExecutor;
+		var thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Adds a listener notified after each write.
+	 *
+	 * @param listener the listener to add
+	 */
+	void addListener(SaveListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Submits a modification. It replaces the pending modification with the same key (and goes after the others).
+	 * If the queue is full, waits until the writer has taken the pending modifications.
+	 *
+	 * @param key          the key of the modification
+	 * @param modification the modification
+	 */
+	synchronized void submit(String key, V modification) {
+		while (pending.size() >= capacity && !pending.containsKey(key)) {
+			if (!await()) {
+				break;
+			}
+		}
+		pending.remove(key);
+		pending.put(key, modification);
+		notifyAll();
+	}
+
+	/**
+	 * Waits until all the submitted modifications are written.
+	 */
+	synchronized void flush() {
+		while (!pending.isEmpty() || writing) {
+			if (!await()) {
+				return;
+			}
+		}
+	}
+
+	private boolean await() {
+		try {
+			wait();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void run() {
+		while (!Thread.currentThread().isInterrupted()) {
+			var batch = take();
+			if (batch.isEmpty()) {
+				continue;
+			}
+			try {
+				sink.write(batch);
+				notifyListeners(listener -> listener.saved(batch.size()));
+			} catch (IOException | RuntimeException e) {
+				notifyListeners(listener -> listener.saveFailed("Impossible de sauvegarder les modifications (" + e.getMessage() + ")"));
+			} finally {
+				synchronized (this) {
+					writing = false;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for a modification, lets the burst it belongs to arrive, then takes all the pending modifications.
+	 */
+	private synchronized List<V> take() {
+		while (pending.isEmpty()) {
+			if (!await()) {
+				return List.of();
+			}
+		}
+		long end = System.currentTimeMillis() + LINGER_MILLIS;
+		long remaining;
+		while (pending.size() < capacity && (remaining = end - System.currentTimeMillis()) > 0) {
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		var batch = new ArrayList<>(pending.values());
+		pending.clear();
+		writing = true;
+		notifyAll();
+		return batch;
+	}
+
+	private void notifyListeners(Consumer<SaveListener> notification) {
+		for (var listener : listeners) {
+			callbackExecutor.execute(() -> notification.accept(listener));
+		}
+	}
+
+	/**
+	 * Writes a group of modifications
+	 *
+	 * @param <V> the type of the modifications
+	 */
+	@FunctionalInterface
+	interface Sink<V> {
+		/**
+		 * Writes the modifications, in the order they were submitted.
+		 *
+		 * @param modifications the modifications to write
+		 * @throws IOException if they can not be written
+		 */
+		void write(List<V> modifications) throws IOException;
+	}
+}
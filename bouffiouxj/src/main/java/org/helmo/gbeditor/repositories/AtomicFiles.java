@@ -0,0 +1,194 @@
+package org.helmo.gbeditor.repositories;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import org.helmo.gbeditor.models.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * AtomicFiles replaces the files of the repositories without ever leaving a half-written file behind.
+ * <p>
+ * The new content is written to a sibling temporary file and forced to the disk, the current file is kept
+ * as a backup (a hard link, nothing is copied), then the temporary file is atomically moved over the current one.
+ * After a crash, the file is either the old one or the new one; if it still can not be read, the backup can be restored.
+ */
+final class AtomicFiles {
+
+	static final String TEMP_SUFFIX = ".tmp";
+	static final String BACKUP_SUFFIX = ".bak";
+
+	private AtomicFiles() {
+		// Classe utilitaire
+	}
+
+	/**
+	 * Replaces the content of a file.
+	 *
+	 * @param path    the path of the file
+	 * @param content the function writing the new content
+	 * @throws IOException if the file can not be written, the current file is then left untouched
+	 *                     (as with any other exception or error thrown by the content, the temporary file is deleted)
+	 */
+	static void write(Path path, Content content) throws IOException {
+		var temp = sibling(path, TEMP_SUFFIX);
+		boolean written = false;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+			content.writeTo(out);
+			out.flush();
+			channel.force(true);
+			written = true;
+		} finally {
+			if (!written) {
+				Files.deleteIfExists(temp);
+			}
+		}
+		keepBackup(path);
+		try {
+			Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		forceDirectory(path);
+	}
+
+	/**
+	 * Replaces the content of a file with the json of an object.
+	 *
+	 * @param path  the path of the file
+	 * @param gson  the gson instance serializing the object
+	 * @param value the object to write
+	 * @throws IOException if the file can not be written
+	 */
+	static void writeJson(Path path, Gson gson, Object value) throws IOException {
+		write(path, out -> {
+			var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			try {
+				gson.toJson(value, writer);
+			} catch (JsonIOException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			writer.flush();
+		});
+	}
+
+	/**
+	 * Replaces the content of a file with a library of books, written by a BookJsonWriter.
+	 *
+	 * @param path  the path of the file
+	 * @param books the books to write
+	 * @throws IOException if the file can not be written
+	 */
+	static void writeBooks(Path path, Collection<Book> books) throws IOException {
+		write(path, out -> {
+			var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			new BookJsonWriter(writer).writeBooks(books);
+			writer.flush();
+		});
+	}
+
+	/**
+	 * Replaces the content of a file with a text.
+	 *
+	 * @param path the path of the file
+	 * @param text the text to write
+	 * @throws IOException if the file can not be written
+	 */
+	static void writeString(Path path, String text) throws IOException {
+		write(path, out -> out.write(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Replaces a file by its backup, the backup is kept.
+	 *
+	 * @param path the path of the file
+	 * @return true if the backup has been restored, false if there is no backup or it can not be copied
+	 */
+	static boolean restoreBackup(Path path) {
+		var backup = sibling(path, BACKUP_SUFFIX);
+		if (!Files.isRegularFile(backup)) {
+			return false;
+		}
+		var temp = sibling(path, TEMP_SUFFIX);
+		try {
+			Files.copy(backup, temp, StandardCopyOption.REPLACE_EXISTING);
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+			Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gives the path of a file next to the given one.
+	 *
+	 * @param path   the path of the file
+	 * @param suffix the suffix added to its name
+	 * @return the path of the sibling file
+	 */
+	static Path sibling(Path path, String suffix) {
+		return path.resolveSibling(path.getFileName() + suffix);
+	}
+
+	/**
+	 * Makes the current file the backup: a hard link to its content, or a copy if the file system has no links.
+	 */
+	private static void keepBackup(Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return;
+		}
+		var backup = sibling(path, BACKUP_SUFFIX);
+		Files.deleteIfExists(backup);
+		try {
+			Files.createLink(backup, path);
+		} catch (UnsupportedOperationException | IOException e) {
+			Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Forces the directory entry of the moved file to the disk (not possible on every system).
+	 */
+	private static void forceDirectory(Path path) {
+		var directory = path.toAbsolutePath().getParent();
+		if (directory == null) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException | UnsupportedOperationException e) {
+			// Windows ne permet pas d'ouvrir un dossier, le déplacement reste atomique
+		}
+	}
+
+	/**
+	 * Writes the content of a file
+	 */
+	@FunctionalInterface
+	interface Content {
+		/**
+		 * Writes the content to the stream, without closing it.
+		 *
+		 * @param out the stream of the temporary file
+		 * @throws IOException if the content can not be written
+		 */
+		void writeTo(OutputStream out) throws IOException;
+	}
+}
@@ -0,0 +1,171 @@
+package org.helmo.gbeditor.repositories;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.repositories.exceptions.AuthorIdsExhaustedException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * AuthorRegistry keeps the authors of a repository indexed by name (name and first name, as Author.equals)
+ * and by identifier, so that a login finds its author without scanning the others.
+ * <p>
+ * A new author gets the identifier derived from the hash of its names, or the next free one after it:
+ * the same author gets the same identifier in every library where it does not collide, and two authors
+ * of the registry never share an identifier (which would make their isbns collide).
+ * Authors loaded with an identifier already used (written by an older version) are still found by name,
+ * the identifier stays to the first one. The registry is thread-safe.
+ */
+class AuthorRegistry {
+
+	static final int IDENTIFIER_COUNT = 1_000_000;
+
+	private static final Gson GSON = new Gson();
+
+	private final Map<String, Author> byName = new LinkedHashMap<>();
+	private final Map<Integer, Author> byIdentifier = new HashMap<>();
+
+	/**
+	 * Gets an author by its names.
+	 *
+	 * @param name      the name of the author
+	 * @param firstName the first name of the author
+	 * @return the author, null if there is none
+	 */
+	synchronized Author get(String name, String firstName) {
+		return byName.get(nameKey(name, firstName));
+	}
+
+	/**
+	 * Gets an author by its identifier.
+	 *
+	 * @param identifier the identifier of the author
+	 * @return the author, null if there is none
+	 */
+	synchronized Author get(int identifier) {
+		return byIdentifier.get(identifier);
+	}
+
+	/**
+	 * Adds an author with its identifier.
+	 *
+	 * @param author the author to add
+	 * @return true if the author has been added, false if an author with the same names is already registered
+	 */
+	synchronized boolean add(Author author) {
+		if (byName.putIfAbsent(nameKey(author.getName(), author.getFirstName()), author) != null) {
+			return false;
+		}
+		byIdentifier.putIfAbsent(author.getIdentifier(), author);
+		return true;
+	}
+
+	/**
+	 * Adds authors with their identifiers.
+	 *
+	 * @param authors the authors to add
+	 * @return true if at least one author has been added
+	 */
+	synchronized boolean addAll(Collection<Author> authors) {
+		boolean added = false;
+		for (var author : authors) {
+			added |= add(author);
+		}
+		return added;
+	}
+
+	/**
+	 * Gets an author by its names, or creates and adds it with a free identifier.
+	 *
+	 * @param name      the name of the author
+	 * @param firstName the first name of the author
+	 * @return the registered author
+	 * @throws org.helmo.gbeditor.models.exceptions.IllegalAuthorNameException if a name is empty
+	 * @throws AuthorIdsExhaustedException                                     if every identifier is used
+	 */
+	synchronized Author register(String name, String firstName) {
+		var known = get(name, firstName);
+		if (known != null) {
+			return known;
+		}
+		var author = new Author(name, firstName, freeIdentifier(name, firstName));
+		add(author);
+		return author;
+	}
+
+	private int freeIdentifier(String name, String firstName) {
+		int identifier = Math.floorMod(Objects.hash(name, firstName), IDENTIFIER_COUNT);
+		for (int i = 0; i < IDENTIFIER_COUNT; i++) {
+			if (!byIdentifier.containsKey(identifier)) {
+				return identifier;
+			}
+			identifier = identifier + 1 == IDENTIFIER_COUNT ? 0 : identifier + 1;
+		}
+		throw new AuthorIdsExhaustedException();
+	}
+
+	/**
+	 * Gets the registered authors.
+	 *
+	 * @return a new set of the authors, in registration order
+	 */
+	synchronized Set<Author> values() {
+		return new LinkedHashSet<>(byName.values());
+	}
+
+	/**
+	 * Adds the authors written in a json file by writeTo. The invalid authors are ignored.
+	 *
+	 * @param path the path of the file
+	 * @throws IOException if the file exists but can not be read
+	 */
+	void readFrom(Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return;
+		}
+		Author[] authors;
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			authors = GSON.fromJson(reader, Author[].class);
+		} catch (JsonParseException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		if (authors == null) {
+			return;
+		}
+		for (var author : authors) {
+			try {
+				if (author != null) {
+					add(new Author(author.getName(), author.getFirstName(), author.getIdentifier()));
+				}
+			} catch (IllegalArgumentException e) {
+				// Auteur invalide : il sera réenregistré à sa connexion
+			}
+		}
+	}
+
+	/**
+	 * Replaces a json file by the registered authors.
+	 *
+	 * @param path the path of the file
+	 * @throws IOException if the file can not be written
+	 */
+	void writeTo(Path path) throws IOException {
+		AtomicFiles.writeJson(path, GSON, values());
+	}
+
+	private static String nameKey(String name, String firstName) {
+		return name + '\n' + firstName;
+	}
+}
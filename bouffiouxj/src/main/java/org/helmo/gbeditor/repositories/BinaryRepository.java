@@ -0,0 +1,103 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * BinaryRepository is a class that implements the Repository interface.
+ * It is used to load and save books from a binary snapshot (see BookBinaryFile) instead of a json file.
+ * The snapshot is read when the repository is opened, but only the parts of the file that are needed are decoded
+ * (the pages of a book when they are first asked for).
+ */
+public class BinaryRepository extends AbstractRepository {
+
+	private static final String AUTHORS_SUFFIX = ".authors";
+
+	private final Path bookPath;
+	private final Path authorsPath;
+	private BookIndex index;
+
+	/**
+	 * Constructor of the BinaryRepository class.
+	 * It takes the path of the binary file and the path of the image directory.
+	 *
+	 * @param bookPath   The path of the binary file.
+	 * @param imgDirPath The path of the image directory to save the image it copies.
+	 */
+	public BinaryRepository(Path bookPath, Path imgDirPath) {
+		super(imgDirPath);
+		this.bookPath = bookPath;
+		this.authorsPath = AtomicFiles.sibling(bookPath, AUTHORS_SUFFIX);
+		this.index = new BookIndex(BookBinaryFile.readBooks(bookPath));
+		try {
+			authorRegistry().readFrom(authorsPath);
+		} catch (IOException e) {
+			// Fichier illisible : les auteurs des livres restent enregistrés
+		}
+		authorRegistry().addAll(index.authors());
+		imagesReferencedBy(index.values());
+	}
+
+	@Override
+	public Set<Book> getBooks() {
+		return new LinkedHashSet<>(index.values());
+	}
+
+	@Override
+	public boolean saveBooks(Set<Book> books) {
+		try {
+			BookBinaryFile.write(new LinkedHashSet<>(books), bookPath);
+		} catch (IOException e) {
+			return false;
+		}
+		this.index = new BookIndex(books);
+		authorRegistry().addAll(index.authors());
+		imagesReferencedBy(index.values());
+		return true;
+	}
+
+	@Override
+	public boolean deleteBook(Book book) {
+		if (!index.contains(book)) {
+			return false;
+		}
+		book.loadPages();
+		index.remove(book);
+		return saveBooks(new LinkedHashSet<>(index.values()));
+	}
+
+	@Override
+	public Set<Book> getBooksFromAuthor(Author currentAuthor) {
+		return index.getByAuthor(currentAuthor);
+	}
+
+	@Override
+	public Book getBook(String isbn) {
+		return index.get(isbn);
+	}
+
+	@Override
+	public int getFreeBookId(Author author) {
+		return index.firstFreeBookId(author);
+	}
+
+	@Override
+	protected void saveAuthor(Author author) {
+		try {
+			authorRegistry().writeTo(authorsPath);
+		} catch (IOException e) {
+			// L'auteur reste enregistré en mémoire
+		}
+	}
+
+	@Override
+	public void updatesAddBook(Book book) {
+		index.put(book);
+		saveBooks(new LinkedHashSet<>(index.values()));
+	}
+}
@@ -0,0 +1,354 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.helmo.gbeditor.models.BookDataFields.*;
+
+/**
+ * BookBinaryFile reads and writes the library in a compact binary layout:
+ * <pre>
+ * header   : magic, version, number of strings, books, pages and choices
+ * strings  : one int offset per string, then the UTF-8 bytes of the strings (each one prefixed by its length)
+ * books    : fixed-width records (strings are indexes in the string table, pages are a range of the page records)
+ * pages    : fixed-width records (id as two longs, content, range of the choice records)
+ * choices  : fixed-width records (label, destination id as two longs, destination content)
+ * </pre>
+ * The file is read at once into a heap buffer, in which a record is decoded only when it is asked for,
+ * and a string only when a record needs it. The pages of a book can be decoded when they are first needed,
+ * the buffer stays alive as long as a book still has to load its pages.
+ * The file is not memory-mapped: Java can not release a mapping before the buffer is collected,
+ * and Windows refuses to replace a mapped file, so the library could not be saved while a book still had deferred pages.
+ */
+class BookBinaryFile {
+
+	static final int MAGIC = 0x47424531; // "GBE1"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 4 * 7;
+	static final int BOOK_RECORD_SIZE = 4 * 10;
+	static final int PAGE_RECORD_SIZE = 8 * 2 + 4 * 4;
+	static final int CHOICE_RECORD_SIZE = 4 * 2 + 8 * 2;
+	private static final int NO_STRING = -1;
+
+	private final ByteBuffer buffer;
+	private final int stringCount;
+	private final int bookCount;
+	private final int pageCount;
+	private final int stringsStart;
+	private final int booksStart;
+	private final int pagesStart;
+	private final int choicesStart;
+
+	private BookBinaryFile(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Format de fichier inconnu");
+		}
+		this.stringCount = buffer.getInt(8);
+		this.bookCount = buffer.getInt(12);
+		this.pageCount = buffer.getInt(16);
+		this.stringsStart = HEADER_SIZE;
+		this.booksStart = buffer.getInt(20);
+		this.pagesStart = booksStart + bookCount * BOOK_RECORD_SIZE;
+		this.choicesStart = pagesStart + pageCount * PAGE_RECORD_SIZE;
+	}
+
+	/**
+	 * Reads a binary library in memory, the file is closed when the method returns.
+	 *
+	 * @param path the path of the file
+	 * @return the file read
+	 * @throws IOException if the file can not be read or is not a binary library
+	 */
+	static BookBinaryFile open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Fichier trop volumineux");
+			}
+			var buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException("Fichier tronqué pendant la lecture");
+				}
+			}
+			return new BookBinaryFile(buffer.clear());
+		}
+	}
+
+	/**
+	 * Reads all the books of a binary library, an empty set if the file does not exist or can not be read.
+	 * If the file can not be read, it is replaced by the backup kept by the last write.
+	 *
+	 * @param path the path of the file
+	 * @return the books in the order of the file
+	 */
+	static Set<Book> readBooks(Path path) {
+		if (!Files.isRegularFile(path)) {
+			AtomicFiles.restoreBackup(path);
+		}
+		var books = tryReadBooks(path);
+		if (books == null && AtomicFiles.restoreBackup(path)) {
+			books = tryReadBooks(path);
+		}
+		return books == null ? new LinkedHashSet<>() : books;
+	}
+
+	private static Set<Book> tryReadBooks(Path path) {
+		if (!Files.isRegularFile(path)) {
+			return new LinkedHashSet<>();
+		}
+		try {
+			return open(path).readBooks(true);
+		} catch (IOException | IndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes all the books of the file.
+	 *
+	 * @param deferPages true to only decode the pages of a book when they are first needed, false to decode them now
+	 * @return the books in the order of the file
+	 */
+	Set<Book> readBooks(boolean deferPages) {
+		Set<Book> books = new LinkedHashSet<>();
+		for (int i = 0; i < bookCount; i++) {
+			var book = readBook(i, deferPages);
+			if (book != null) {
+				books.add(book);
+			}
+		}
+		return books;
+	}
+
+	/**
+	 * Decodes one book.
+	 *
+	 * @param index      the index of the book record
+	 * @param deferPages true to only decode the pages when they are first needed, false to decode them now
+	 * @return the book, null if its record is not valid
+	 */
+	Book readBook(int index, boolean deferPages) {
+		int record = booksStart + index * BOOK_RECORD_SIZE;
+		Book book;
+		try {
+			var author = new Author(string(buffer.getInt(record + 16)), string(buffer.getInt(record + 20)), buffer.getInt(record + 24));
+			book = new Book(string(buffer.getInt(record)), author, string(buffer.getInt(record + 4)), string(buffer.getInt(record + 8)), string(buffer.getInt(record + 12)));
+			if (deferPages) {
+				book.deferPages(buffer.getInt(record + 36), () -> readPages(record));
+			} else {
+				for (var page : readPages(record)) {
+					book.addPage(page, Integer.MAX_VALUE);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		if ((buffer.getInt(record + 28) & 1) != 0 && book.getPageCount() > 0) {
+			book.publish();
+		}
+		return book;
+	}
+
+	/**
+	 * Decodes the pages of a book, their choices pointing to the pages of the book.
+	 * Invalid pages and choices are skipped.
+	 *
+	 * @param record the position of the book record
+	 * @return the pages of the book
+	 */
+	private List<Page> readPages(int record) {
+		int firstPage = buffer.getInt(record + 32);
+		int count = buffer.getInt(record + 36);
+		Map<String, Page> pagesById = new HashMap<>();
+		List<Page> pages = new ArrayList<>(count);
+		List<Integer> records = new ArrayList<>(count);
+		for (int p = firstPage; p < firstPage + count; p++) {
+			int pageRecord = pagesStart + p * PAGE_RECORD_SIZE;
+			try {
+				var page = newPage(buffer.getLong(pageRecord), buffer.getLong(pageRecord + 8), buffer.getInt(pageRecord + 16));
+				if (pagesById.putIfAbsent(page.getId(), page) == null) {
+					pages.add(page);
+					records.add(pageRecord);
+				}
+			} catch (IllegalArgumentException e) {
+				// Page invalide, elle est ignorée
+			}
+		}
+		for (int p = 0; p < pages.size(); p++) {
+			linkChoices(pages.get(p), records.get(p), pagesById);
+		}
+		return pages;
+	}
+
+	private void linkChoices(Page page, int pageRecord, Map<String, Page> pagesById) {
+		int firstChoice = buffer.getInt(pageRecord + 20);
+		int count = buffer.getInt(pageRecord + 24);
+		for (int c = firstChoice; c < firstChoice + count; c++) {
+			int choiceRecord = choicesStart + c * CHOICE_RECORD_SIZE;
+			long most = buffer.getLong(choiceRecord + 8);
+			long least = buffer.getLong(choiceRecord + 16);
+			var target = pagesById.get(new UUID(most, least).toString());
+			try {
+				if (target == null) {
+					target = newPage(most, least, buffer.getInt(choiceRecord + 4));
+				}
+				page.addChoice(string(buffer.getInt(choiceRecord)), target);
+			} catch (IllegalArgumentException e) {
+				// Choix invalide, il est ignoré
+			}
+		}
+	}
+
+	private Page newPage(long most, long least, int content) {
+		var page = new Page(string(content));
+		page.setId(new UUID(most, least).toString());
+		return page;
+	}
+
+	/**
+	 * Decodes a string of the string table.
+	 *
+	 * @param index the index of the string
+	 * @return the string, null for the missing string
+	 */
+	String string(int index) {
+		if (index == NO_STRING || index >= stringCount) {
+			return null;
+		}
+		int offset = buffer.getInt(stringsStart + index * 4);
+		int length = buffer.getInt(offset);
+		byte[] bytes = new byte[length];
+		buffer.duplicate().position(offset + 4).get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	int getBookCount() {
+		return bookCount;
+	}
+
+	/**
+	 * Writes the books in the binary layout. The file is replaced atomically (see AtomicFiles).
+	 *
+	 * @param books the books to write
+	 * @param path  the path of the file
+	 * @throws IOException if the file can not be written
+	 */
+	static void write(Collection<Book> books, Path path) throws IOException {
+		var strings = new StringTable();
+		var bookRecords = new ArrayList<int[]>(books.size());
+		var pages = new ArrayList<Page>();
+		var pageRecords = new ArrayList<int[]>();
+		var choices = new ArrayList<Page>();
+		var choiceRecords = new ArrayList<int[]>();
+		for (Book book : books) {
+			var author = book.getAuthor();
+			var bookPages = book.getPagesView();
+			bookRecords.add(new int[]{strings.add(book.getMetadata(TITLE)), strings.add(book.getMetadata(SUMMARY)),
+					strings.add(book.getMetadata(BOOK_ISBN)), strings.add(book.getMetadata(IMAGE_PATH)),
+					strings.add(author.getName()), strings.add(author.getFirstName()), author.getIdentifier(),
+					book.isPublished() ? 1 : 0, pages.size(), bookPages.size()});
+			for (Page page : bookPages) {
+				var pageChoices = page.getChoicesView();
+				pages.add(page);
+				pageRecords.add(new int[]{strings.add(page.getContent()), choices.size(), pageChoices.size()});
+				pageChoices.forEach((label, target) -> {
+					choices.add(target);
+					choiceRecords.add(new int[]{strings.add(label), strings.add(target.getContent())});
+				});
+			}
+		}
+		int booksStart = HEADER_SIZE + strings.size();
+		AtomicFiles.write(path, stream -> {
+			var out = new DataOutputStream(stream);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(strings.count());
+			out.writeInt(bookRecords.size());
+			out.writeInt(pages.size());
+			out.writeInt(booksStart);
+			out.writeInt(choices.size());
+			strings.write(out, HEADER_SIZE);
+			for (int[] record : bookRecords) {
+				for (int value : record) {
+					out.writeInt(value);
+				}
+			}
+			for (int i = 0; i < pages.size(); i++) {
+				var id = UUID.fromString(pages.get(i).getId());
+				out.writeLong(id.getMostSignificantBits());
+				out.writeLong(id.getLeastSignificantBits());
+				int[] record = pageRecords.get(i);
+				out.writeInt(record[0]);
+				out.writeInt(record[1]);
+				out.writeInt(record[2]);
+				out.writeInt(0);
+			}
+			for (int i = 0; i < choices.size(); i++) {
+				int[] record = choiceRecords.get(i);
+				var id = UUID.fromString(choices.get(i).getId());
+				out.writeInt(record[0]);
+				out.writeInt(record[1]);
+				out.writeLong(id.getMostSignificantBits());
+				out.writeLong(id.getLeastSignificantBits());
+			}
+			out.flush();
+		});
+	}
+
+	/**
+	 * Strings of the file, each one written once
+	 */
+	private static class StringTable {
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private final List<byte[]> values = new ArrayList<>();
+		private int bytes = 0;
+
+		private int add(String value) {
+			if (value == null) {
+				return NO_STRING;
+			}
+			return indexes.computeIfAbsent(value, v -> {
+				var encoded = v.getBytes(StandardCharsets.UTF_8);
+				values.add(encoded);
+				bytes += 4 + encoded.length;
+				return values.size() - 1;
+			});
+		}
+
+		private int count() {
+			return values.size();
+		}
+
+		/**
+		 * Size of the table in the file (offsets and values)
+		 */
+		private int size() {
+			return values.size() * 4 + bytes;
+		}
+
+		private void write(DataOutputStream out, int start) throws IOException {
+			int offset = start + values.size() * 4;
+			for (byte[] value : values) {
+				out.writeInt(offset);
+				offset += 4 + value.length;
+			}
+			for (byte[] value : values) {
+				out.writeInt(value.length);
+				out.write(value);
+			}
+		}
+	}
+}
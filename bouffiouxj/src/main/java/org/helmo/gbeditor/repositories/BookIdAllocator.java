@@ -0,0 +1,94 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.ISBN;
+import org.helmo.gbeditor.repositories.exceptions.BookIdsExhaustedException;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BookIdAllocator tracks the book ids (the two digits of an isbn after the author id) used by each author,
+ * in a bitset per author, to give free ids instead of drawing them at random until one is free.
+ * <p>
+ * An author has only 100 ids: finding a free one reads at most two words of its bitset, and an author without
+ * free id is reported at once. The ids are tracked by author id whatever the linguistic group of the isbn.
+ * The allocator is thread-safe.
+ */
+class BookIdAllocator {
+
+	static final int IDS_PER_AUTHOR = 100;
+
+	private final Map<Integer, BitSet> usedIds = new HashMap<>();
+
+	/**
+	 * Marks the book id of an isbn as used.
+	 *
+	 * @param isbn the isbn of a book
+	 * @return true if the id was free, false if another book already uses it
+	 */
+	synchronized boolean claim(ISBN isbn) {
+		var used = usedIds.computeIfAbsent(isbn.getIdAuthor(), id -> new BitSet(IDS_PER_AUTHOR));
+		if (used.get(isbn.getIdBook())) {
+			return false;
+		}
+		used.set(isbn.getIdBook());
+		return true;
+	}
+
+	/**
+	 * Marks the book id of an isbn as free again.
+	 *
+	 * @param isbn the isbn of a book that is not used anymore
+	 */
+	synchronized void release(ISBN isbn) {
+		var used = usedIds.get(isbn.getIdAuthor());
+		if (used != null) {
+			used.clear(isbn.getIdBook());
+			if (used.isEmpty()) {
+				usedIds.remove(isbn.getIdAuthor());
+			}
+		}
+	}
+
+	/**
+	 * Gets the smallest book id an author does not use yet, without reserving it.
+	 *
+	 * @param idAuthor the id of the author
+	 * @return the free book id
+	 * @throws BookIdsExhaustedException if the author uses all the ids
+	 */
+	synchronized int firstFree(int idAuthor) {
+		var used = usedIds.get(idAuthor);
+		int id = used == null ? 0 : used.nextClearBit(0);
+		if (id >= IDS_PER_AUTHOR) {
+			throw new BookIdsExhaustedException(idAuthor);
+		}
+		return id;
+	}
+
+	/**
+	 * Reserves the smallest book id an author does not use yet.
+	 *
+	 * @param linguisticGroup the linguistic group of the isbn
+	 * @param idAuthor        the id of the author
+	 * @return the isbn with the reserved id
+	 * @throws BookIdsExhaustedException if the author uses all the ids
+	 */
+	synchronized ISBN allocate(int linguisticGroup, int idAuthor) {
+		var isbn = ISBN.of(linguisticGroup, idAuthor, firstFree(idAuthor));
+		claim(isbn);
+		return isbn;
+	}
+
+	/**
+	 * Counts the book ids an author can still use.
+	 *
+	 * @param idAuthor the id of the author
+	 * @return the number of free ids
+	 */
+	synchronized int freeCount(int idAuthor) {
+		var used = usedIds.get(idAuthor);
+		return IDS_PER_AUTHOR - (used == null ? 0 : used.cardinality());
+	}
+}
@@ -0,0 +1,166 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.ISBN;
+
+import java.util.*;
+
+/**
+ * BookIndex keeps the books of a repository indexed by isbn and by author so that the lookups
+ * do not have to scan the whole library.
+ * The isbn index keeps the insertion order of the books; it is keyed by the ISBN of the books (compared on its packed
+ * form), the texts given to find or remove a book are parsed once.
+ */
+class BookIndex {
+
+	private final Map<ISBN, Book> byIsbn = new LinkedHashMap<>();
+	private final Map<Author, Set<Book>> byAuthor = new HashMap<>();
+	private final BookIdAllocator bookIds = new BookIdAllocator();
+
+	/**
+	 * Constructor of an empty index
+	 */
+	BookIndex() {
+		// Index vide
+	}
+
+	/**
+	 * Constructor of an index containing the given books
+	 *
+	 * @param books the books to index
+	 */
+	BookIndex(Collection<Book> books) {
+		books.forEach(this::put);
+	}
+
+	/**
+	 * Adds a book to the index or replaces the book with the same isbn (keeping its position).
+	 *
+	 * @param book the book to add
+	 */
+	void put(Book book) {
+		var previous = byIsbn.put(book.getIsbn(), book);
+		if (previous != null) {
+			unlinkAuthor(previous);
+		} else {
+			bookIds.claim(book.getIsbn());
+		}
+		byAuthor.computeIfAbsent(book.getAuthor(), a -> new LinkedHashSet<>()).add(book);
+	}
+
+	/**
+	 * Removes the book with the same isbn as the given book.
+	 *
+	 * @param book the book to remove
+	 * @return true if a book has been removed, false otherwise
+	 */
+	boolean remove(Book book) {
+		return removeIsbn(book.getIsbn()) != null;
+	}
+
+	/**
+	 * Removes the book with the given isbn.
+	 *
+	 * @param isbn the isbn of the book to remove
+	 * @return the removed book, null if there was none
+	 */
+	Book removeIsbn(String isbn) {
+		return ISBN.isValid(isbn) ? removeIsbn(ISBN.parse(isbn)) : null;
+	}
+
+	/**
+	 * Removes the book with the given isbn.
+	 *
+	 * @param isbn the isbn of the book to remove
+	 * @return the removed book, null if there was none
+	 */
+	Book removeIsbn(ISBN isbn) {
+		var removed = byIsbn.remove(isbn);
+		if (removed != null) {
+			unlinkAuthor(removed);
+			bookIds.release(isbn);
+		}
+		return removed;
+	}
+
+	private void unlinkAuthor(Book book) {
+		var books = byAuthor.get(book.getAuthor());
+		if (books != null) {
+			books.remove(book);
+			if (books.isEmpty()) {
+				byAuthor.remove(book.getAuthor());
+			}
+		}
+	}
+
+	/**
+	 * Gets a book by its isbn, written as in the books or without its dashes.
+	 *
+	 * @param isbn the isbn of the book
+	 * @return the book, null if there is none
+	 */
+	Book get(String isbn) {
+		return ISBN.isValid(isbn) ? get(ISBN.parse(isbn)) : null;
+	}
+
+	/**
+	 * Gets a book by its isbn.
+	 *
+	 * @param isbn the isbn of the book
+	 * @return the book, null if there is none
+	 */
+	Book get(ISBN isbn) {
+		return byIsbn.get(isbn);
+	}
+
+	/**
+	 * Determines if a book with the same isbn is indexed.
+	 *
+	 * @param book the book to look for
+	 * @return true if the book is indexed, false otherwise
+	 */
+	boolean contains(Book book) {
+		return book != null && byIsbn.containsKey(book.getIsbn());
+	}
+
+	/**
+	 * Gets the books of an author.
+	 *
+	 * @param author the author of the books
+	 * @return a new set of the books of the author
+	 */
+	Set<Book> getByAuthor(Author author) {
+		var books = byAuthor.get(author);
+		return books == null ? new LinkedHashSet<>() : new LinkedHashSet<>(books);
+	}
+
+	/**
+	 * Gets the smallest book id an author does not use yet in the indexed books.
+	 *
+	 * @param author the author
+	 * @return the free book id
+	 * @throws org.helmo.gbeditor.repositories.exceptions.BookIdsExhaustedException if the author uses all the ids
+	 */
+	int firstFreeBookId(Author author) {
+		return bookIds.firstFree(author.getIdentifier());
+	}
+
+	/**
+	 * Gets the authors having at least one book.
+	 *
+	 * @return a read-only view of the authors
+	 */
+	Set<Author> authors() {
+		return Collections.unmodifiableSet(byAuthor.keySet());
+	}
+
+	/**
+	 * Gets all the indexed books.
+	 *
+	 * @return a read-only view of the books, in insertion order
+	 */
+	Collection<Book> values() {
+		return Collections.unmodifiableCollection(byIsbn.values());
+	}
+}
@@ -0,0 +1,350 @@
+package org.helmo.gbeditor.repositories;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.helmo.gbeditor.models.Book;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
+
+/**
+ * BookJournal is the write-ahead log used by the JsonRepository in journaled mode.
+ * Each mutation is appended as one compact line next to the json file (PUT of one book or DELETE of one isbn)
+ * instead of rewriting the whole library. When enough entries have been written, the log is rotated and
+ * a background thread folds it into a new snapshot.
+ * <hr>
+ * Le snapshot n'est jamais réécrit depuis les objets en mémoire (qui sont modifiés par l'interface),
+ * le compacteur relit le snapshot et le journal sur disque.
+ */
+class BookJournal {
+
+	static final int COMPACTION_THRESHOLD = 100;
+	private static final String PUT = "PUT";
+	private static final String DELETE = "DELETE";
+
+	private final Path snapshotPath;
+	private final Path journalPath;
+	private final Path compactingPath;
+	private final Function<Path, Set<Book>> snapshotLoader;
+	private final Object snapshotLock = new Object();
+	private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+		var thread = new Thread(runnable, "journal-compactor");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private int entries = 0;
+	private volatile boolean snapshotRewritten = false;
+
+	/**
+	 * Constructor of the journal.
+	 *
+	 * @param snapshotPath   the path of the json snapshot the journal belongs to
+	 * @param snapshotLoader the function used to read a snapshot file
+	 */
+	BookJournal(Path snapshotPath, Function<Path, Set<Book>> snapshotLoader) {
+		this.snapshotPath = snapshotPath;
+		this.journalPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+		this.compactingPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal.old");
+		this.snapshotLoader = snapshotLoader;
+	}
+
+	/**
+	 * Applies the entries of the journal (the one being compacted first, then the current one) to the given books.
+	 *
+	 * @param books the books loaded from the snapshot
+	 */
+	synchronized void replay(BookIndex books) {
+		replay(compactingPath, books);
+		entries = replay(journalPath, books);
+	}
+
+	private int replay(Path path, BookIndex books) {
+		int count = 0;
+		if (!Files.isRegularFile(path)) {
+			return count;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isBlank()) {
+					apply(readEntry(line), books);
+					count++;
+				}
+			}
+		} catch (IOException | IllegalStateException | NumberFormatException e) {
+			// Une entrée tronquée (crash pendant l'écriture) ne peut être que la dernière, on s'arrête là
+		}
+		return count;
+	}
+
+	private static Entry readEntry(String line) throws IOException {
+		String op = null;
+		String isbn = null;
+		Book book = null;
+		try (JsonReader reader = new JsonReader(new StringReader(line))) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+					case "op":
+						op = reader.nextString();
+						break;
+					case "isbn":
+						isbn = reader.nextString();
+						break;
+					case "book":
+						book = new BookJsonReader(reader).readBook();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		return new Entry(op, isbn, book);
+	}
+
+	private static void apply(Entry entry, BookIndex books) {
+		if (entry.isbn == null) {
+			return;
+		}
+		if (PUT.equals(entry.op)) {
+			if (entry.book != null) {
+				books.put(entry.book);
+			}
+		} else if (DELETE.equals(entry.op)) {
+			books.removeIsbn(entry.isbn);
+		}
+	}
+
+	/**
+	 * Appends the new state of a book to the journal.
+	 *
+	 * @param book the book added or modified
+	 * @return true if the entry has been written, false otherwise
+	 */
+	boolean put(Book book) {
+		return append(putLine(book));
+	}
+
+	/**
+	 * Appends the deletion of a book to the journal.
+	 *
+	 * @param book the book deleted
+	 * @return true if the entry has been written, false otherwise
+	 */
+	boolean delete(Book book) {
+		return append(deleteLine(book));
+	}
+
+	/**
+	 * Formats the entry saving the new state of a book, without writing it.
+	 *
+	 * @param book the book added or modified
+	 * @return the line of the journal
+	 */
+	String putLine(Book book) {
+		return entryLine(PUT, book.getMetadata(BOOK_ISBN), book);
+	}
+
+	/**
+	 * Formats the entry deleting a book, without writing it.
+	 *
+	 * @param book the book deleted
+	 * @return the line of the journal
+	 */
+	String deleteLine(Book book) {
+		return entryLine(DELETE, book.getMetadata(BOOK_ISBN), null);
+	}
+
+	private static String entryLine(String op, String isbn, Book book) {
+		var out = new StringWriter();
+		try (JsonWriter writer = new JsonWriter(out)) {
+			writer.beginObject();
+			writer.name("op").value(op);
+			writer.name("isbn").value(isbn);
+			if (book != null) {
+				writer.name("book");
+				new BookJsonWriter(writer).writeBook(book);
+			}
+			writer.endObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toString();
+	}
+
+	private boolean append(String line) {
+		try {
+			appendLines(List.of(line));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Appends entries formatted beforehand, in one write.
+	 *
+	 * @param lines the lines of the journal
+	 * @throws IOException if the journal can not be written
+	 */
+	synchronized void appendLines(List<String> lines) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+			for (var line : lines) {
+				writer.write(line);
+				writer.newLine();
+			}
+		}
+		entries += lines.size();
+		if (entries >= COMPACTION_THRESHOLD) {
+			rotate();
+		}
+	}
+
+	/**
+	 * Moves the current journal aside so that new entries go to a fresh file while the old one is compacted.
+	 * If a compaction is already pending, the journal keeps growing until the next append.
+	 */
+	private void rotate() {
+		if (Files.exists(compactingPath)) {
+			return;
+		}
+		try {
+			Files.move(journalPath, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+			entries = 0;
+			compactor.execute(this::compact);
+		} catch (IOException e) {
+			// On réessaiera à la prochaine entrée
+		}
+	}
+
+	/**
+	 * Folds the rotated journal into a new snapshot.
+	 */
+	void compact() {
+		synchronized (snapshotLock) {
+			if (!Files.exists(compactingPath)) {
+				return;
+			}
+			var books = new BookIndex(snapshotLoader.apply(snapshotPath));
+			replay(compactingPath, books);
+			if (writeSnapshot(books.values())) {
+				snapshotRewritten = true;
+				try {
+					Files.deleteIfExists(compactingPath);
+				} catch (IOException e) {
+					// Rejouer le journal déjà compacté est sans effet (dernière écriture gagnante)
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tells if the snapshot has been rewritten from the books since it was loaded (by a compaction or a save).
+	 * The books are then written under the isbns they were given when they were read, each isbn once.
+	 * It must be called while reading the snapshot (see readSnapshot) to match the file being read.
+	 *
+	 * @return true if the snapshot has been rewritten, false if it is still the file the books were read from
+	 */
+	boolean isSnapshotRewritten() {
+		return snapshotRewritten;
+	}
+
+	/**
+	 * Reads the snapshot while no compaction is rewriting it.
+	 *
+	 * @param reader the function reading the snapshot file
+	 * @param <T>    the type of the result
+	 * @return the result of the reader
+	 */
+	<T> T readSnapshot(Supplier<T> reader) {
+		synchronized (snapshotLock) {
+			return reader.get();
+		}
+	}
+
+	/**
+	 * Writes the full library as the new snapshot and discards the journal it now contains.
+	 *
+	 * @param books the whole library
+	 * @return true if the snapshot has been written, false otherwise
+	 */
+	boolean saveSnapshot(Collection<Book> books) {
+		synchronized (snapshotLock) {
+			if (!writeSnapshot(books)) {
+				return false;
+			}
+			snapshotRewritten = true;
+			return discardJournal();
+		}
+	}
+
+	/**
+	 * Writes the full library, serialized beforehand, as the new snapshot and discards the journal it now contains.
+	 *
+	 * @param json the whole library in json
+	 * @throws IOException if the snapshot can not be written
+	 */
+	void saveSnapshot(String json) throws IOException {
+		synchronized (snapshotLock) {
+			AtomicFiles.writeString(snapshotPath, json);
+			snapshotRewritten = true;
+			if (!discardJournal()) {
+				throw new IOException("Le journal n'a pas pu être vidé");
+			}
+		}
+	}
+
+	private synchronized boolean discardJournal() {
+		try {
+			Files.deleteIfExists(compactingPath);
+			Files.deleteIfExists(journalPath);
+			entries = 0;
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private boolean writeSnapshot(Collection<Book> books) {
+		try {
+			AtomicFiles.writeBooks(snapshotPath, books);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * One line of the journal
+	 */
+	private static class Entry {
+		private final String op;
+		private final String isbn;
+		private final Book book;
+
+		private Entry(String op, String isbn, Book book) {
+			this.op = op;
+			this.isbn = isbn;
+			this.book = book;
+		}
+	}
+}
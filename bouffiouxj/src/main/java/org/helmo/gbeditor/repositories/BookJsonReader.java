@@ -0,0 +1,555 @@
+package org.helmo.gbeditor.repositories;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.BookDataFields;
+import org.helmo.gbeditor.models.Page;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+import static org.helmo.gbeditor.models.BookDataFields.*;
+import static org.helmo.gbeditor.models.BookMetadata.LINGUISTIC_GROUP;
+
+/**
+ * BookJsonReader decodes the json library one book at a time with the token API of Gson,
+ * directly into the domain model (without an intermediate Book[] built by reflection).
+ * Only the pages of the book being read are kept aside, to resolve its choices once all its pages are known.
+ * <p>
+ * The library can also be read without its pages: they are skipped (only counted) and each book gets a
+ * PageSource to fetch them later, identified by a PageKey (the isbn written in the file and its occurrence).
+ */
+class BookJsonReader {
+
+	private static final Map<String, BookDataFields> FIELDS = new HashMap<>();
+
+	static {
+		for (var field : BookDataFields.values()) {
+			FIELDS.put(field.name(), field);
+		}
+	}
+
+	private final JsonReader reader;
+
+	/**
+	 * Constructor of the reader
+	 *
+	 * @param reader the reader of the json document
+	 */
+	BookJsonReader(Reader reader) {
+		this(new JsonReader(reader));
+	}
+
+	/**
+	 * Constructor of the reader
+	 *
+	 * @param reader the json reader, positioned before a book or an array of books
+	 */
+	BookJsonReader(JsonReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads a whole library (a json array of books).
+	 * A book whose isbn is already used by a previous book gets a new isbn, once all the valid isbns of the file
+	 * are known: it never takes the isbn of a book further in the file.
+	 *
+	 * @return the books in the order of the file
+	 * @throws IOException if the document can not be read
+	 */
+	Set<Book> readBooks() throws IOException {
+		return readBooks(null);
+	}
+
+	/**
+	 * Reads a whole library (a json array of books), deferring the loading of the pages to the given source.
+	 *
+	 * @param pageSource the source of the pages, null to read the pages now
+	 * @return the books in the order of the file
+	 * @throws IOException if the document can not be read
+	 */
+	Set<Book> readBooks(PageSource pageSource) throws IOException {
+		Set<Book> books = new LinkedHashSet<>();
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return books;
+		}
+		var bookIds = new BookIdAllocator();
+		Map<String, Integer> occurrences = new HashMap<>();
+		List<Book> read = new ArrayList<>();
+		List<BookRecord> renamed = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			var record = readRecord(pageSource == null ? null : Collections.emptySet(), occurrences);
+			var author = record.author();
+			if (author != null) {
+				var book = record.bookWithItsIsbn(author, bookIds);
+				if (book == null) {
+					// Le livre recevra un numéro libre une fois tous les isbn du fichier réservés
+					record.position = read.size();
+					renamed.add(record);
+				} else {
+					record.complete(book, pageSource);
+				}
+				read.add(book);
+			}
+		}
+		reader.endArray();
+		for (var record : renamed) {
+			var book = record.bookWithAFreeId(record.author(), bookIds);
+			if (book != null) {
+				read.set(record.position, record.complete(book, pageSource));
+			}
+		}
+		for (var book : read) {
+			if (book != null) {
+				books.add(book);
+			}
+		}
+		return books;
+	}
+
+	/**
+	 * Reads the pages of some books of a library (a json array of books), skipping the pages of the other books.
+	 * The reading stops as soon as all the wanted books have been found.
+	 *
+	 * @param keys the books whose pages are wanted, null for all the books
+	 * @return the pages of the books found, by key
+	 * @throws IOException if the document can not be read
+	 */
+	Map<PageKey, List<Page>> readPages(Set<PageKey> keys) throws IOException {
+		Map<PageKey, List<Page>> pages = new HashMap<>();
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return pages;
+		}
+		Map<String, Integer> occurrences = new HashMap<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			var record = readRecord(keys, occurrences);
+			if (keys == null || keys.contains(record.key)) {
+				pages.put(record.key, record.toPages());
+				if (keys != null && pages.size() == keys.size()) {
+					// Le reste du fichier n'est pas lu
+					return pages;
+				}
+			}
+		}
+		reader.endArray();
+		return pages;
+	}
+
+	/**
+	 * Reads one book.
+	 *
+	 * @return the book, null if it is not valid
+	 * @throws IOException if the document can not be read
+	 */
+	Book readBook() throws IOException {
+		return readRecord(null, new HashMap<>()).toBook(new BookIdAllocator(), null);
+	}
+
+	/**
+	 * Reads one book
+	 *
+	 * @param wantedPages the books whose pages must be read (the others are only counted), null to read all the pages
+	 * @param occurrences the number of books already read for each isbn
+	 */
+	private BookRecord readRecord(Set<PageKey> wantedPages, Map<String, Integer> occurrences) throws IOException {
+		var record = new BookRecord();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "metadata":
+					readMetadata(record);
+					break;
+				case "pages":
+					if (wantedPages == null || record.fields.get(BOOK_ISBN) == null || wantedPages.contains(record.key(occurrences))) {
+						readPages(record);
+					} else {
+						countPages(record);
+					}
+					break;
+				case "isPublished":
+					record.published = reader.nextBoolean();
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		record.key(occurrences);
+		occurrences.merge(record.key.isbn, 1, Integer::sum);
+		return record;
+	}
+
+	private void readMetadata(BookRecord record) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "author":
+					readAuthor(record);
+					break;
+				case "metadata":
+					readFields(record.fields);
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	private void readAuthor(BookRecord record) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "name":
+					record.authorName = nextString();
+					break;
+				case "firstName":
+					record.authorFirstName = nextString();
+					break;
+				case "identifier":
+					record.authorIdentifier = reader.nextInt();
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	private void readFields(Map<BookDataFields, String> fields) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			var field = FIELDS.get(reader.nextName());
+			var value = nextString();
+			if (field != null) {
+				fields.put(field, value);
+			}
+		}
+		reader.endObject();
+	}
+
+	private void readPages(BookRecord record) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			record.pages.add(readPage(record));
+		}
+		reader.endArray();
+		record.pageCount = record.pages.size();
+		record.pagesRead = true;
+	}
+
+	private void countPages(BookRecord record) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.skipValue();
+			record.pageCount++;
+		}
+		reader.endArray();
+	}
+
+	private PageRecord readPage(BookRecord record) throws IOException {
+		var page = new PageRecord();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "id":
+					page.id = nextString();
+					break;
+				case "content":
+					page.content = nextString();
+					break;
+				case "choices":
+					readChoices(page, record);
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return page;
+	}
+
+	/**
+	 * Reads the choices of a page. The destination of a choice is written as a whole page
+	 * but only its id (and its content, in case it is not in the book) are needed.
+	 */
+	private void readChoices(PageRecord page, BookRecord record) throws IOException {
+		reader.beginObject();
+		while (reader.hasNext()) {
+			var choice = reader.nextName();
+			var target = new PageRecord();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+					case "id":
+						target.id = nextString();
+						break;
+					case "content":
+						target.content = nextString();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+			page.choices.put(choice, target.id);
+			record.targets.putIfAbsent(target.id, target);
+		}
+		reader.endObject();
+	}
+
+	private String nextString() throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		return reader.nextString();
+	}
+
+	/**
+	 * Raw data of the book being read
+	 */
+	private static class BookRecord {
+		private String authorName;
+		private String authorFirstName;
+		private int authorIdentifier;
+		private boolean published;
+		private int pageCount;
+		private boolean pagesRead;
+		private int position;
+		private PageKey key;
+		private final Map<BookDataFields, String> fields = new EnumMap<>(BookDataFields.class);
+		private final List<PageRecord> pages = new ArrayList<>();
+		private final Map<String, PageRecord> targets = new HashMap<>();
+
+		/**
+		 * Gets the key of the book, computed once from the isbn of the file and the books already read
+		 */
+		private PageKey key(Map<String, Integer> occurrences) {
+			if (key == null) {
+				var isbn = Objects.requireNonNullElse(fields.get(BOOK_ISBN), "");
+				key = new PageKey(isbn, occurrences.getOrDefault(isbn, 0));
+			}
+			return key;
+		}
+
+		/**
+		 * Builds the book of the record. A book without valid isbn, or with the isbn of a book read before,
+		 * gets the first book id its author does not use.
+		 *
+		 * @return the book, null if it is not valid or if its author has no free book id
+		 */
+		private Book toBook(BookIdAllocator bookIds, PageSource pageSource) {
+			var author = author();
+			if (author == null) {
+				return null;
+			}
+			var book = bookWithItsIsbn(author, bookIds);
+			if (book == null) {
+				book = bookWithAFreeId(author, bookIds);
+			}
+			return book == null ? null : complete(book, pageSource);
+		}
+
+		/**
+		 * Builds the author of the book
+		 *
+		 * @return the author, null if it is not valid
+		 */
+		private Author author() {
+			try {
+				return new Author(authorName, authorFirstName, authorIdentifier);
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Builds the book with the isbn written in the file and claims it
+		 *
+		 * @return the book, null if it is not valid or if its isbn is already claimed
+		 */
+		private Book bookWithItsIsbn(Author author, BookIdAllocator bookIds) {
+			try {
+				var book = newBook(author, fields.get(BOOK_ISBN));
+				return bookIds.claim(book.getIsbn()) ? book : null;
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Builds the book with the first book id its author does not use
+		 *
+		 * @return the book, null if it is not valid or if its author has no free book id
+		 */
+		private Book bookWithAFreeId(Author author, BookIdAllocator bookIds) {
+			try {
+				return newBook(author, bookIds.allocate(LINGUISTIC_GROUP, author.getIdentifier()).toString());
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Gives its pages (or the way to load them) and its state to the book
+		 *
+		 * @return the book
+		 */
+		private Book complete(Book book, PageSource pageSource) {
+			if (pageSource == null || pagesRead) {
+				for (var page : toPages()) {
+					book.addPage(page, Integer.MAX_VALUE);
+				}
+			} else {
+				var pageKey = key.withBookIsbn(book.getMetadata(BOOK_ISBN));
+				book.deferPages(pageCount, () -> pageSource.loadPages(pageKey));
+			}
+			if (published && book.getPageCount() > 0) {
+				book.publish();
+			}
+			return book;
+		}
+
+		/**
+		 * Builds the pages of the book, their choices pointing to the pages of the book
+		 */
+		private List<Page> toPages() {
+			Map<String, Page> pagesById = new HashMap<>();
+			List<Page> bookPages = new ArrayList<>(pages.size());
+			for (var record : pages) {
+				var page = record.toPage();
+				if (page != null && !pagesById.containsKey(page.getId())) {
+					pagesById.put(page.getId(), page);
+					bookPages.add(page);
+				} else {
+					bookPages.add(null);
+				}
+			}
+			List<Page> result = new ArrayList<>(pagesById.size());
+			for (int i = 0; i < pages.size(); i++) {
+				if (bookPages.get(i) != null) {
+					linkChoices(bookPages.get(i), pages.get(i), pagesById);
+					result.add(bookPages.get(i));
+				}
+			}
+			return result;
+		}
+
+		private void linkChoices(Page page, PageRecord record, Map<String, Page> pagesById) {
+			record.choices.forEach((choice, targetId) -> {
+				var target = pagesById.get(targetId);
+				if (target == null && targets.containsKey(targetId)) {
+					target = targets.get(targetId).toPage();
+				}
+				if (target != null) {
+					try {
+						page.addChoice(choice, target);
+					} catch (IllegalArgumentException e) {
+						// Choix invalide (vers la page elle-même, libellé vide) : il est ignoré
+					}
+				}
+			});
+		}
+
+		private Book newBook(Author author, String isbn) {
+			return new Book(fields.get(TITLE), author, fields.get(SUMMARY), isbn, fields.get(IMAGE_PATH));
+		}
+	}
+
+	/**
+	 * Raw data of a page
+	 */
+	private static class PageRecord {
+		private String id;
+		private String content;
+		private final Map<String, String> choices = new LinkedHashMap<>();
+
+		private Page toPage() {
+			try {
+				var page = new Page(content);
+				if (id != null) {
+					page.setId(id);
+				}
+				return page;
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Identifies a book in a json library: the isbn written in the file (which is replaced when it is not valid
+	 * or already used) and the number of books with the same isbn before it.
+	 * The key of a book read without its pages also keeps the isbn the book was given, which is not compared:
+	 * it locates the book once the library has been rewritten from the books (see rewritten).
+	 */
+	static final class PageKey {
+		private final String isbn;
+		private final int occurrence;
+		private final String bookIsbn;
+
+		PageKey(String isbn, int occurrence) {
+			this(isbn, occurrence, null);
+		}
+
+		private PageKey(String isbn, int occurrence, String bookIsbn) {
+			this.isbn = isbn;
+			this.occurrence = occurrence;
+			this.bookIsbn = bookIsbn;
+		}
+
+		/**
+		 * Gives the same key, remembering the isbn of the book read with it
+		 *
+		 * @param bookIsbn the isbn of the book (the one of the file, or the one it was given instead)
+		 * @return the key of the book
+		 */
+		PageKey withBookIsbn(String bookIsbn) {
+			return new PageKey(isbn, occurrence, bookIsbn);
+		}
+
+		/**
+		 * Gives the key of the book in a library written from the books, where each isbn appears once
+		 *
+		 * @return the key of the book in the rewritten library
+		 */
+		PageKey rewritten() {
+			return bookIsbn == null ? this : new PageKey(bookIsbn, 0);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			PageKey that = (PageKey) o;
+			return occurrence == that.occurrence && isbn.equals(that.isbn);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(isbn, occurrence);
+		}
+	}
+
+	/**
+	 * Source of the pages of the books read without their pages
+	 */
+	@FunctionalInterface
+	interface PageSource {
+		/**
+		 * Loads the pages of a book.
+		 *
+		 * @param key the key of the book in the library
+		 * @return the pages of the book, empty if it is not found
+		 */
+		List<Page> loadPages(PageKey key);
+	}
+}
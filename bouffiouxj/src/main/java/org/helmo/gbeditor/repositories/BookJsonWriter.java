@@ -0,0 +1,154 @@
+package org.helmo.gbeditor.repositories;
+
+import com.google.gson.stream.JsonWriter;
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.BookDataFields;
+import org.helmo.gbeditor.models.ISBN;
+import org.helmo.gbeditor.models.Page;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.helmo.gbeditor.models.BookDataFields.*;
+
+/**
+ * BookJsonWriter encodes the books with the token API of Gson, in the format read by BookJsonReader.
+ * <p>
+ * The destination of a choice is written as a reference to the page (its id, and its content in case it is not
+ * in the book), not as a copy of the page with its own choices: the choices of a book can form loops,
+ * which the reflection of Gson followed until the stack overflowed.
+ * The rest of the document keeps the shape written by Gson before (including the isbn as its four numbers).
+ */
+class BookJsonWriter {
+
+	private static final BookDataFields[] FIELD_ORDER = {TITLE, AUTHOR_MATRICULE, BOOK_ISBN, SUMMARY, IMAGE_PATH};
+
+	private final JsonWriter writer;
+
+	/**
+	 * Constructor of the writer
+	 *
+	 * @param writer the writer of the json document
+	 */
+	BookJsonWriter(Writer writer) {
+		this(new JsonWriter(writer));
+	}
+
+	/**
+	 * Constructor of the writer
+	 *
+	 * @param writer the json writer, positioned where a book or an array of books is expected
+	 */
+	BookJsonWriter(JsonWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes the books of a library in one line.
+	 *
+	 * @param books the books to write
+	 * @return the json array of the books
+	 */
+	static String toJson(Collection<Book> books) {
+		var out = new StringWriter();
+		try {
+			new BookJsonWriter(out).writeBooks(books);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Writes a whole library (a json array of books). The pages of the books are loaded if they are not yet.
+	 *
+	 * @param books the books to write
+	 * @throws IOException if the document can not be written
+	 */
+	void writeBooks(Collection<Book> books) throws IOException {
+		writer.beginArray();
+		for (var book : books) {
+			writeBook(book);
+		}
+		writer.endArray();
+		writer.flush();
+	}
+
+	/**
+	 * Writes one book. Its pages are loaded if they are not yet.
+	 *
+	 * @param book the book to write
+	 * @throws IOException if the document can not be written
+	 */
+	void writeBook(Book book) throws IOException {
+		writer.beginObject();
+		writer.name("metadata");
+		writeMetadata(book);
+		writer.name("pages").beginArray();
+		for (var page : book.getPagesView()) {
+			writePage(page);
+		}
+		writer.endArray();
+		writer.name("isPublished").value(book.isPublished());
+		writer.endObject();
+	}
+
+	private void writeMetadata(Book book) throws IOException {
+		writer.beginObject();
+		writer.name("author");
+		writeAuthor(book.getAuthor());
+		writer.name("isbn");
+		writeIsbn(book.getIsbn());
+		writer.name("metadata").beginObject();
+		for (var field : FIELD_ORDER) {
+			var value = book.getMetadata(field);
+			if (value != null) {
+				writer.name(field.name()).value(value);
+			}
+		}
+		writer.endObject();
+		writer.endObject();
+	}
+
+	private void writeAuthor(Author author) throws IOException {
+		writer.beginObject();
+		writer.name("name").value(author.getName());
+		writer.name("firstName").value(author.getFirstName());
+		writer.name("identifier").value(author.getIdentifier());
+		writer.endObject();
+	}
+
+	private void writeIsbn(ISBN isbn) throws IOException {
+		writer.beginObject();
+		writer.name("linguisticGroup").value(isbn.getLinguisticGroup());
+		writer.name("idAuthor").value(isbn.getIdAuthor());
+		writer.name("idBook").value(isbn.getIdBook());
+		writer.name("checkSum").value(isbn.getCheckSum());
+		writer.endObject();
+	}
+
+	private void writePage(Page page) throws IOException {
+		writer.beginObject();
+		writer.name("id").value(page.getId());
+		writer.name("content").value(page.getContent());
+		writer.name("choices").beginObject();
+		for (Map.Entry<String, Page> choice : page.getChoicesView().entrySet()) {
+			writer.name(choice.getKey());
+			writePageReference(choice.getValue());
+		}
+		writer.endObject();
+		writer.endObject();
+	}
+
+	private void writePageReference(Page page) throws IOException {
+		writer.beginObject();
+		writer.name("id").value(page.getId());
+		writer.name("content").value(page.getContent());
+		writer.endObject();
+	}
+}
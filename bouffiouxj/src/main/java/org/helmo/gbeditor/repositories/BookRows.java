@@ -0,0 +1,87 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+
+import java.util.*;
+
+import static org.helmo.gbeditor.models.BookDataFields.*;
+
+/**
+ * BookRows is a copy of the rows of a book as they are stored in the database.
+ * The JdbcRepository compares it with the new state of the book to only write the rows that changed.
+ * <hr>
+ * Les objets du modèle sont modifiés directement par l'interface, on ne peut donc pas les comparer
+ * avec eux-mêmes : cette copie est faite à chaque écriture.
+ */
+class BookRows {
+
+	final String isbn;
+	final Author author;
+	final String title;
+	final String summary;
+	final String imagePath;
+	final boolean published;
+	final List<String> pageIds;
+	final Map<String, String> contents;
+	final Map<String, Map<String, String>> choices;
+
+	private BookRows(Book book) {
+		this.isbn = book.getMetadata(BOOK_ISBN);
+		this.author = book.getAuthor();
+		this.title = book.getMetadata(TITLE);
+		this.summary = book.getMetadata(SUMMARY);
+		this.imagePath = book.getMetadata(IMAGE_PATH);
+		this.published = book.isPublished();
+		var pages = book.getPagesView();
+		this.pageIds = new ArrayList<>(pages.size());
+		this.contents = new HashMap<>();
+		this.choices = new HashMap<>();
+		for (Page page : pages) {
+			pageIds.add(page.getId());
+			contents.put(page.getId(), page.getContent());
+		}
+		for (Page page : pages) {
+			Map<String, String> pageChoices = new HashMap<>();
+			page.getChoicesView().forEach((label, target) -> {
+				// Un choix vers une page hors du livre ne pourrait pas être relu
+				if (contents.containsKey(target.getId())) {
+					pageChoices.put(label, target.getId());
+				}
+			});
+			choices.put(page.getId(), pageChoices);
+		}
+	}
+
+	/**
+	 * Copies the current state of a book.
+	 *
+	 * @param book the book to copy
+	 * @return the rows of the book
+	 */
+	static BookRows of(Book book) {
+		return new BookRows(book);
+	}
+
+	/**
+	 * Determines if the row of the book itself (not its pages) is the same in both states.
+	 *
+	 * @param other the other state of the book
+	 * @return true if the row did not change, false otherwise
+	 */
+	boolean sameBookRow(BookRows other) {
+		return published == other.published && Objects.equals(title, other.title)
+				&& Objects.equals(summary, other.summary) && Objects.equals(imagePath, other.imagePath);
+	}
+
+	/**
+	 * Gets the choices of a page.
+	 *
+	 * @param pageId the id of the page
+	 * @return the choices (label to id of the destination), empty if the page is not in the book
+	 */
+	Map<String, String> choicesOf(String pageId) {
+		return choices.getOrDefault(pageId, Collections.emptyMap());
+	}
+}
@@ -0,0 +1,147 @@
+package org.helmo.gbeditor.repositories;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * ConnectionPool keeps a few open connections to a database so that each operation of a repository
+ * does not have to open (and authenticate) a new one.
+ * The connections are created when they are first needed, up to the size of the pool.
+ */
+class ConnectionPool implements AutoCloseable {
+
+	private final String url;
+	private final int size;
+	private final BlockingQueue<Connection> idle;
+	private final List<Connection> created = new ArrayList<>();
+
+	/**
+	 * Constructor of the pool
+	 *
+	 * @param url  the jdbc url of the database
+	 * @param size the maximum number of connections opened at the same time
+	 */
+	ConnectionPool(String url, int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("La taille du pool doit être positive");
+		}
+		this.url = url;
+		this.size = size;
+		this.idle = new ArrayBlockingQueue<>(size);
+	}
+
+	/**
+	 * Runs some work with a connection of the pool. The connection is given back to the pool afterwards.
+	 *
+	 * @param work the work to run
+	 * @param <T>  the type of the result
+	 * @return the result of the work
+	 * @throws SQLException if the work or the connection fails
+	 */
+	<T> T withConnection(SqlWork<T> work) throws SQLException {
+		var connection = acquire();
+		try {
+			return work.run(connection);
+		} finally {
+			release(connection);
+		}
+	}
+
+	/**
+	 * Runs some work in a transaction: it is committed if the work succeeds and rolled back otherwise.
+	 *
+	 * @param work the work to run
+	 * @param <T>  the type of the result
+	 * @return the result of the work
+	 * @throws SQLException if the work or the connection fails
+	 */
+	<T> T inTransaction(SqlWork<T> work) throws SQLException {
+		return withConnection(connection -> {
+			connection.setAutoCommit(false);
+			try {
+				var result = work.run(connection);
+				connection.commit();
+				return result;
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(true);
+			}
+		});
+	}
+
+	private Connection acquire() throws SQLException {
+		var connection = idle.poll();
+		if (connection != null) {
+			return connection;
+		}
+		synchronized (created) {
+			if (created.size() < size) {
+				connection = DriverManager.getConnection(url);
+				created.add(connection);
+				return connection;
+			}
+		}
+		try {
+			return idle.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Attente d'une connexion interrompue", e);
+		}
+	}
+
+	private void release(Connection connection) {
+		try {
+			if (connection.isClosed()) {
+				synchronized (created) {
+					created.remove(connection);
+				}
+				return;
+			}
+		} catch (SQLException e) {
+			// Connexion inutilisable, elle sera remplacée
+		}
+		idle.offer(connection);
+	}
+
+	/**
+	 * Closes all the connections of the pool.
+	 */
+	@Override
+	public void close() {
+		synchronized (created) {
+			for (var connection : created) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					// La connexion est déjà fermée
+				}
+			}
+			created.clear();
+			idle.clear();
+		}
+	}
+
+	/**
+	 * Work done with a connection
+	 *
+	 * @param <T> the type of the result
+	 */
+	@FunctionalInterface
+	interface SqlWork<T> {
+		/**
+		 * Runs the work.
+		 *
+		 * @param connection the connection to use
+		 * @return the result of the work
+		 * @throws SQLException if the work fails
+		 */
+		T run(Connection connection) throws SQLException;
+	}
+}
@@ -0,0 +1,217 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.helmo.gbeditor.models.BookDataFields.IMAGE_PATH;
+
+/**
+ * ImageStore keeps the covers of the books in the image directory, each one in a file named after the SHA-256
+ * of its content ("hash.png" or "hash.jpg").
+ * <p>
+ * Two covers can not overwrite each other anymore and an image imported twice is stored once. The store counts
+ * the books referencing each file (their IMAGE_PATH) when the repository tells it its books have changed, and
+ * a background sweep then deletes the files no book references anymore. A file imported less than a grace period
+ * ago is never deleted: the book using it may not be saved yet. The other files of the directory are left untouched.
+ */
+class ImageStore {
+
+	static final long DEFAULT_GRACE_MILLIS = 10 * 60 * 1000L;
+	static final long SWEEP_DELAY_MILLIS = 2000;
+	private static final int HASH_BUFFER_SIZE = 64 * 1024;
+	private static final Pattern IMAGE_NAME = Pattern.compile("[0-9a-f]{64}\\.(jpg|png)");
+
+	private final Path imgDirPath;
+	private final long graceMillis;
+	private ScheduledExecutorService sweeper = null;
+	private Map<String, Integer> referenceCounts = null;
+	private boolean sweepScheduled = false;
+
+	/**
+	 * Constructor of the store
+	 *
+	 * @param imgDirPath  the image directory
+	 * @param graceMillis the time during which a file just imported can not be deleted
+	 */
+	ImageStore(Path imgDirPath, long graceMillis) {
+		this.imgDirPath = imgDirPath;
+		this.graceMillis = graceMillis;
+	}
+
+	/**
+	 * Stores the content of a channel, read from its start. Nothing is written if the same content is already stored.
+	 *
+	 * @param source    the channel of the image
+	 * @param extension the extension of the stored file (without dot)
+	 * @return the path of the stored file
+	 * @throws IOException if the image can not be read or written
+	 */
+	Path put(FileChannel source, String extension) throws IOException {
+		var destination = imgDirPath.resolve(sha256(source) + "." + extension);
+		if (Files.isRegularFile(destination)) {
+			// Réimportée : la grâce repart pour le livre qui va l'utiliser
+			Files.setLastModifiedTime(destination, FileTime.fromMillis(System.currentTimeMillis()));
+			return destination;
+		}
+		Files.createDirectories(imgDirPath);
+		var temp = Files.createTempFile(imgDirPath, destination.getFileName().toString(), AtomicFiles.TEMP_SUFFIX);
+		try {
+			try (FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				long size = source.size();
+				long position = 0;
+				while (position < size) {
+					position += source.transferTo(position, size - position, target);
+				}
+				target.force(true);
+			}
+			try {
+				Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return destination;
+	}
+
+	/**
+	 * Counts the references of the books to the stored files and schedules a sweep.
+	 * Called by the repository (on its own thread) after its books have changed; the books are only read here.
+	 *
+	 * @param books all the books of the repository
+	 */
+	void referencesChanged(Collection<Book> books) {
+		var counts = referenceCounts(books);
+		synchronized (this) {
+			referenceCounts = counts;
+			if (sweepScheduled) {
+				return;
+			}
+			sweepScheduled = true;
+			if (sweeper == null) {
+				sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+					var thread = new Thread(runnable, "image-sweeper");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+		}
+		sweeper.schedule(this::sweepLatest, SWEEP_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private void sweepLatest() {
+		Map<String, Integer> counts;
+		synchronized (this) {
+			sweepScheduled = false;
+			counts = referenceCounts;
+		}
+		sweep(counts);
+	}
+
+	/**
+	 * Counts the books referencing each stored file.
+	 *
+	 * @param books the books
+	 * @return the number of books by name of stored file
+	 */
+	Map<String, Integer> referenceCounts(Collection<Book> books) {
+		Map<String, Integer> counts = new HashMap<>();
+		for (Book book : books) {
+			var name = storedName(book.getMetadata(IMAGE_PATH));
+			if (name != null) {
+				counts.merge(name, 1, Integer::sum);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Deletes the stored files that are not referenced and older than the grace period.
+	 *
+	 * @param counts the number of books by name of stored file
+	 * @return the number of files deleted
+	 */
+	int sweep(Map<String, Integer> counts) {
+		if (!Files.isDirectory(imgDirPath)) {
+			return 0;
+		}
+		long limit = System.currentTimeMillis() - graceMillis;
+		int deleted = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(imgDirPath)) {
+			for (Path file : files) {
+				var name = file.getFileName().toString();
+				if (IMAGE_NAME.matcher(name).matches() && !counts.containsKey(name) && isOlderThan(file, limit) && Files.deleteIfExists(file)) {
+					deleted++;
+				}
+			}
+		} catch (IOException | DirectoryIteratorException e) {
+			// Le ménage sera refait à la prochaine modification
+		}
+		return deleted;
+	}
+
+	private static boolean isOlderThan(Path file, long limit) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis() < limit;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the name of the stored file an image path refers to.
+	 *
+	 * @return the name of the file, null if the path is not a file of the store
+	 */
+	private static String storedName(String imagePath) {
+		if (imagePath == null || imagePath.isEmpty()) {
+			return null;
+		}
+		int separator = Math.max(imagePath.lastIndexOf('/'), imagePath.lastIndexOf('\\'));
+		var name = imagePath.substring(separator + 1);
+		return IMAGE_NAME.matcher(name).matches() ? name : null;
+	}
+
+	/**
+	 * Computes the SHA-256 of the content of a channel, streamed from its start (the position of the channel is not used).
+	 *
+	 * @param channel the channel to read
+	 * @return the hash in lowercase hexadecimal
+	 * @throws IOException if the channel can not be read
+	 */
+	static String sha256(FileChannel channel) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		var buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+		long position = 0;
+		int read;
+		while ((read = channel.read(buffer, position)) > 0) {
+			position += read;
+			buffer.flip();
+			digest.update(buffer);
+			buffer.clear();
+		}
+		var hash = new StringBuilder(64);
+		for (byte b : digest.digest()) {
+			hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hash.toString();
+	}
+}
@@ -0,0 +1,469 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+import org.helmo.gbeditor.repositories.exceptions.ConnectionFailedException;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLDataException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
+
+/**
+ * JdbcRepository is a class that implements the Repository interface.
+ * It stores the books in a relational database (authors, books, pages and choices tables).
+ * The books are kept in memory like in the JsonRepository, but a modification only writes the rows
+ * that changed since the last write of the book (moving a page updates two rows, adding a choice inserts one).
+ * A modification that can not be written is logged and reported to the save listeners, the book keeps its last written state.
+ */
+public class JdbcRepository extends AbstractRepository implements AutoCloseable {
+
+	static final int DEFAULT_POOL_SIZE = 4;
+	/**
+	 * Maximum length of the label of a choice, it is part of the primary key of the choices so it can not be a CLOB
+	 */
+	static final int MAX_CHOICE_LABEL = 1024;
+	private static final System.Logger LOGGER = System.getLogger(JdbcRepository.class.getName());
+	private static final String STRING_TRUNCATION = "22001";
+	private static final String TABLE_EXISTS = "X0Y32";
+	private static final String[] SCHEMA = {
+			"CREATE TABLE authors (name VARCHAR(255) NOT NULL, first_name VARCHAR(255) NOT NULL, identifier INTEGER NOT NULL, "
+					+ "PRIMARY KEY (name, first_name))",
+			"CREATE TABLE books (isbn VARCHAR(13) NOT NULL PRIMARY KEY, author_name VARCHAR(255) NOT NULL, author_first_name VARCHAR(255) NOT NULL, "
+					+ "title VARCHAR(150) NOT NULL, summary VARCHAR(500) NOT NULL, image_path VARCHAR(1024), published BOOLEAN NOT NULL, "
+					+ "FOREIGN KEY (author_name, author_first_name) REFERENCES authors (name, first_name))",
+			"CREATE TABLE pages (book_isbn VARCHAR(13) NOT NULL, page_id CHAR(36) NOT NULL, page_number INTEGER NOT NULL, content CLOB NOT NULL, "
+					+ "PRIMARY KEY (book_isbn, page_id), FOREIGN KEY (book_isbn) REFERENCES books (isbn) ON DELETE CASCADE)",
+			"CREATE TABLE choices (book_isbn VARCHAR(13) NOT NULL, page_id CHAR(36) NOT NULL, choice_label VARCHAR(" + MAX_CHOICE_LABEL + ") NOT NULL, target_id CHAR(36) NOT NULL, "
+					+ "PRIMARY KEY (book_isbn, page_id, choice_label), FOREIGN KEY (book_isbn, page_id) REFERENCES pages (book_isbn, page_id) ON DELETE CASCADE)"
+	};
+	private static final String DELETE_BOOK = "DELETE FROM books WHERE isbn = ?";
+	private static final String INSERT_AUTHOR = "INSERT INTO authors (name, first_name, identifier) VALUES (?, ?, ?)";
+	private static final String INSERT_BOOK = "INSERT INTO books (isbn, author_name, author_first_name, title, summary, image_path, published) VALUES (?, ?, ?, ?, ?, ?, ?)";
+	private static final String UPDATE_BOOK = "UPDATE books SET title = ?, summary = ?, image_path = ?, published = ? WHERE isbn = ?";
+	private static final String DELETE_CHOICE = "DELETE FROM choices WHERE book_isbn = ? AND page_id = ? AND choice_label = ?";
+	private static final String DELETE_PAGE = "DELETE FROM pages WHERE book_isbn = ? AND page_id = ?";
+	private static final String INSERT_PAGE = "INSERT INTO pages (book_isbn, page_id, page_number, content) VALUES (?, ?, ?, ?)";
+	private static final String UPDATE_PAGE_NUMBER = "UPDATE pages SET page_number = ? WHERE book_isbn = ? AND page_id = ?";
+	private static final String UPDATE_PAGE_CONTENT = "UPDATE pages SET content = ? WHERE book_isbn = ? AND page_id = ?";
+	private static final String INSERT_CHOICE = "INSERT INTO choices (book_isbn, page_id, choice_label, target_id) VALUES (?, ?, ?, ?)";
+	private static final String UPDATE_CHOICE = "UPDATE choices SET target_id = ? WHERE book_isbn = ? AND page_id = ? AND choice_label = ?";
+	/**
+	 * Order in which the batched statements are executed, so that a row is never written before the rows it references
+	 */
+	private static final List<String> WRITE_ORDER = List.of(DELETE_BOOK, INSERT_AUTHOR, INSERT_BOOK, UPDATE_BOOK, DELETE_CHOICE, DELETE_PAGE,
+			INSERT_PAGE, UPDATE_PAGE_NUMBER, UPDATE_PAGE_CONTENT, INSERT_CHOICE, UPDATE_CHOICE);
+
+	private final ConnectionPool pool;
+	private final BookIndex index = new BookIndex();
+	private final Set<Author> storedAuthors = new HashSet<>();
+	private final Map<String, BookRows> persisted = new HashMap<>();
+	private final List<SaveListener> listeners = new CopyOnWriteArrayList<>();
+	private int lastWrittenRows = 0;
+
+	/**
+	 * Constructor of the JdbcRepository class.
+	 * It creates the tables if they do not exist yet and loads the books.
+	 *
+	 * @param url        The jdbc url of the database.
+	 * @param imgDirPath The path of the image directory to save the image it copies.
+	 */
+	public JdbcRepository(String url, Path imgDirPath) {
+		this(url, imgDirPath, DEFAULT_POOL_SIZE);
+	}
+
+	/**
+	 * Constructor of the JdbcRepository class.
+	 * It creates the tables if they do not exist yet and loads the books.
+	 *
+	 * @param url        The jdbc url of the database.
+	 * @param imgDirPath The path of the image directory to save the image it copies.
+	 * @param poolSize   The maximum number of connections opened at the same time.
+	 */
+	public JdbcRepository(String url, Path imgDirPath, int poolSize) {
+		super(imgDirPath);
+		this.pool = new ConnectionPool(url, poolSize);
+		try {
+			pool.withConnection(connection -> {
+				createSchema(connection);
+				load(connection);
+				return null;
+			});
+		} catch (SQLException e) {
+			pool.close();
+			throw new ConnectionFailedException(e);
+		}
+		imagesReferencedBy(index.values());
+	}
+
+	private static void createSchema(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			for (String table : SCHEMA) {
+				try {
+					statement.executeUpdate(table);
+				} catch (SQLException e) {
+					if (!TABLE_EXISTS.equals(e.getSQLState())) {
+						throw e;
+					}
+				}
+			}
+		}
+	}
+
+	private void load(Connection connection) throws SQLException {
+		Map<String, Author> authorsByName = new HashMap<>();
+		try (Statement statement = connection.createStatement();
+			 ResultSet rows = statement.executeQuery("SELECT name, first_name, identifier FROM authors")) {
+			while (rows.next()) {
+				try {
+					var author = new Author(rows.getString(1), rows.getString(2), rows.getInt(3));
+					authorsByName.put(authorKey(author.getName(), author.getFirstName()), author);
+					storedAuthors.add(author);
+					authorRegistry().add(author);
+				} catch (IllegalArgumentException e) {
+					// Auteur invalide : ses livres seront ignorés
+				}
+			}
+		}
+		Map<String, Book> books = new LinkedHashMap<>();
+		Set<String> published = new HashSet<>();
+		try (Statement statement = connection.createStatement();
+			 ResultSet rows = statement.executeQuery("SELECT isbn, author_name, author_first_name, title, summary, image_path, published FROM books")) {
+			while (rows.next()) {
+				var author = authorsByName.get(authorKey(rows.getString(2), rows.getString(3)));
+				try {
+					books.put(rows.getString(1), new Book(rows.getString(4), author, rows.getString(5), rows.getString(1), rows.getString(6)));
+					if (rows.getBoolean(7)) {
+						published.add(rows.getString(1));
+					}
+				} catch (IllegalArgumentException e) {
+					// Livre invalide, il est ignoré
+				}
+			}
+		}
+		Map<String, Map<String, Page>> pages = new HashMap<>();
+		try (Statement statement = connection.createStatement();
+			 ResultSet rows = statement.executeQuery("SELECT book_isbn, page_id, content FROM pages ORDER BY book_isbn, page_number")) {
+			while (rows.next()) {
+				var book = books.get(rows.getString(1));
+				if (book != null) {
+					try {
+						var page = new Page(rows.getString(3));
+						page.setId(rows.getString(2).trim());
+						book.addPage(page, Integer.MAX_VALUE);
+						pages.computeIfAbsent(rows.getString(1), isbn -> new HashMap<>()).put(page.getId(), page);
+					} catch (IllegalArgumentException e) {
+						// Page invalide, elle est ignorée
+					}
+				}
+			}
+		}
+		try (Statement statement = connection.createStatement();
+			 ResultSet rows = statement.executeQuery("SELECT book_isbn, page_id, choice_label, target_id FROM choices")) {
+			while (rows.next()) {
+				var bookPages = pages.getOrDefault(rows.getString(1), Collections.emptyMap());
+				var page = bookPages.get(rows.getString(2).trim());
+				var target = bookPages.get(rows.getString(4).trim());
+				if (page != null && target != null) {
+					try {
+						page.addChoice(rows.getString(3), target);
+					} catch (IllegalArgumentException e) {
+						// Choix invalide, il est ignoré
+					}
+				}
+			}
+		}
+		for (var book : books.values()) {
+			if (published.contains(book.getMetadata(BOOK_ISBN)) && book.getPageCount() > 0) {
+				book.publish();
+			}
+			index.put(book);
+			persisted.put(book.getMetadata(BOOK_ISBN), BookRows.of(book));
+		}
+	}
+
+	private static String authorKey(String name, String firstName) {
+		return name + '\n' + firstName;
+	}
+
+	@Override
+	public Set<Book> getBooks() {
+		return new LinkedHashSet<>(index.values());
+	}
+
+	@Override
+	public synchronized boolean saveBooks(Set<Book> books) {
+		Map<String, BookRows> states = new LinkedHashMap<>();
+		for (var book : books) {
+			states.put(book.getMetadata(BOOK_ISBN), BookRows.of(book));
+		}
+		Set<String> removed = new HashSet<>(persisted.keySet());
+		removed.removeAll(states.keySet());
+		try {
+			lastWrittenRows = pool.inTransaction(connection -> {
+				try (var batch = new Batch(connection)) {
+					for (String isbn : removed) {
+						batch.add(DELETE_BOOK, isbn);
+					}
+					for (var state : states.values()) {
+						write(batch, persisted.get(state.isbn), state);
+					}
+					return batch.execute();
+				}
+			});
+		} catch (SQLException e) {
+			LOGGER.log(System.Logger.Level.WARNING, "Impossible de sauvegarder la bibliothèque", e);
+			return false;
+		}
+		removed.forEach(persisted::remove);
+		persisted.putAll(states);
+		removed.forEach(index::removeIsbn);
+		books.forEach(index::put);
+		for (var state : states.values()) {
+			storedAuthors.add(state.author);
+			authorRegistry().add(state.author);
+		}
+		imagesReferencedBy(index.values());
+		return true;
+	}
+
+	@Override
+	public synchronized boolean deleteBook(Book book) {
+		if (!index.contains(book)) {
+			return false;
+		}
+		var isbn = book.getMetadata(BOOK_ISBN);
+		try {
+			lastWrittenRows = pool.inTransaction(connection -> {
+				try (var batch = new Batch(connection)) {
+					batch.add(DELETE_BOOK, isbn);
+					return batch.execute();
+				}
+			});
+		} catch (SQLException e) {
+			LOGGER.log(System.Logger.Level.WARNING, "Impossible de supprimer le livre " + isbn, e);
+			return false;
+		}
+		persisted.remove(isbn);
+		index.remove(book);
+		imagesReferencedBy(index.values());
+		return true;
+	}
+
+	@Override
+	public Set<Book> getBooksFromAuthor(Author currentAuthor) {
+		return index.getByAuthor(currentAuthor);
+	}
+
+	@Override
+	public Book getBook(String isbn) {
+		return index.get(isbn);
+	}
+
+	@Override
+	public synchronized int getFreeBookId(Author author) {
+		return index.firstFreeBookId(author);
+	}
+
+	@Override
+	protected synchronized void saveAuthor(Author author) {
+		if (storedAuthors.contains(author)) {
+			return;
+		}
+		try {
+			lastWrittenRows = pool.inTransaction(connection -> {
+				try (var batch = new Batch(connection)) {
+					insertAuthor(batch, author);
+					return batch.execute();
+				}
+			});
+			storedAuthors.add(author);
+		} catch (SQLException e) {
+			// L'auteur sera inséré avec son premier livre
+		}
+	}
+
+	@Override
+	public synchronized void updatesAddBook(Book book) {
+		var state = BookRows.of(book);
+		try {
+			lastWrittenRows = pool.inTransaction(connection -> {
+				try (var batch = new Batch(connection)) {
+					write(batch, persisted.get(state.isbn), state);
+					return batch.execute();
+				}
+			});
+		} catch (SQLException e) {
+			LOGGER.log(System.Logger.Level.WARNING, "Impossible de sauvegarder le livre " + state.isbn, e);
+			var message = "Impossible de sauvegarder le livre " + state.isbn + " (" + e.getMessage() + ")";
+			listeners.forEach(listener -> listener.saveFailed(message));
+			return;
+		}
+		persisted.put(state.isbn, state);
+		index.put(book);
+		storedAuthors.add(book.getAuthor());
+		authorRegistry().add(book.getAuthor());
+		imagesReferencedBy(index.values());
+	}
+
+	/**
+	 * Adds a listener notified, in the thread of the modification, when a modification could not be written.
+	 *
+	 * @param listener the listener to add
+	 */
+	@Override
+	public void addSaveListener(SaveListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Gets the number of rows written by the last modification.
+	 *
+	 * @return the number of rows inserted, updated or deleted
+	 */
+	int getLastWrittenRows() {
+		return lastWrittenRows;
+	}
+
+	@Override
+	public void close() {
+		pool.close();
+	}
+
+	private void insertAuthor(Batch batch, Author author) throws SQLException {
+		batch.add(INSERT_AUTHOR, author.getName(), author.getFirstName(), author.getIdentifier());
+	}
+
+	/**
+	 * Adds to the batch the statements turning the old rows of a book into the new ones.
+	 *
+	 * @param batch the batch of statements
+	 * @param old   the rows in the database, null if the book is not in it
+	 * @param now   the new rows
+	 * @throws SQLException if a statement can not be prepared, or if a label of a choice is longer than its column
+	 */
+	private void write(Batch batch, BookRows old, BookRows now) throws SQLException {
+		checkChoiceLabels(now);
+		if (old == null) {
+			if (!storedAuthors.contains(now.author) && batch.authorsAdded.add(now.author)) {
+				insertAuthor(batch, now.author);
+			}
+			batch.add(INSERT_BOOK, now.isbn, now.author.getName(), now.author.getFirstName(), now.title, now.summary, now.imagePath, now.published);
+		} else if (!now.sameBookRow(old)) {
+			batch.add(UPDATE_BOOK, now.title, now.summary, now.imagePath, now.published, now.isbn);
+		}
+		Map<String, Integer> oldNumbers = new HashMap<>();
+		if (old != null) {
+			for (int i = 0; i < old.pageIds.size(); i++) {
+				oldNumbers.put(old.pageIds.get(i), i);
+			}
+			for (String pageId : old.pageIds) {
+				var choices = now.choicesOf(pageId);
+				for (String label : old.choicesOf(pageId).keySet()) {
+					if (!choices.containsKey(label)) {
+						batch.add(DELETE_CHOICE, now.isbn, pageId, label);
+					}
+				}
+				if (!now.contents.containsKey(pageId)) {
+					batch.add(DELETE_PAGE, now.isbn, pageId);
+				}
+			}
+		}
+		for (int i = 0; i < now.pageIds.size(); i++) {
+			var pageId = now.pageIds.get(i);
+			var oldNumber = oldNumbers.get(pageId);
+			if (oldNumber == null) {
+				batch.add(INSERT_PAGE, now.isbn, pageId, i, now.contents.get(pageId));
+			} else {
+				if (oldNumber != i) {
+					batch.add(UPDATE_PAGE_NUMBER, i, now.isbn, pageId);
+				}
+				if (!now.contents.get(pageId).equals(old.contents.get(pageId))) {
+					batch.add(UPDATE_PAGE_CONTENT, now.contents.get(pageId), now.isbn, pageId);
+				}
+			}
+			var oldChoices = old == null ? Collections.<String, String>emptyMap() : old.choicesOf(pageId);
+			for (var choice : now.choicesOf(pageId).entrySet()) {
+				var oldTarget = oldChoices.get(choice.getKey());
+				if (oldTarget == null) {
+					batch.add(INSERT_CHOICE, now.isbn, pageId, choice.getKey(), choice.getValue());
+				} else if (!oldTarget.equals(choice.getValue())) {
+					batch.add(UPDATE_CHOICE, choice.getValue(), now.isbn, pageId, choice.getKey());
+				}
+			}
+		}
+	}
+
+	private static void checkChoiceLabels(BookRows rows) throws SQLException {
+		for (var pageChoices : rows.choices.values()) {
+			for (String label : pageChoices.keySet()) {
+				if (label.length() > MAX_CHOICE_LABEL) {
+					throw new SQLDataException("Le libellé d'un choix dépasse " + MAX_CHOICE_LABEL + " caractères", STRING_TRUNCATION);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Statements of a transaction, prepared once and executed as batches in the order of WRITE_ORDER
+	 */
+	private static class Batch implements AutoCloseable {
+		private final Connection connection;
+		private final Map<String, PreparedStatement> statements = new HashMap<>();
+		private final Set<Author> authorsAdded = new HashSet<>();
+
+		private Batch(Connection connection) {
+			this.connection = connection;
+		}
+
+		private void add(String sql, Object... parameters) throws SQLException {
+			var statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			}
+			for (int i = 0; i < parameters.length; i++) {
+				if (parameters[i] == null) {
+					statement.setNull(i + 1, Types.VARCHAR);
+				} else {
+					statement.setObject(i + 1, parameters[i]);
+				}
+			}
+			statement.addBatch();
+		}
+
+		/**
+		 * Executes the batches.
+		 *
+		 * @return the number of rows written
+		 */
+		private int execute() throws SQLException {
+			int rows = 0;
+			for (String sql : WRITE_ORDER) {
+				var statement = statements.get(sql);
+				if (statement != null) {
+					for (int count : statement.executeBatch()) {
+						rows += Math.max(count, 0);
+					}
+				}
+			}
+			return rows;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			for (var statement : statements.values()) {
+				statement.close();
+			}
+		}
+	}
+}
@@ -1,40 +1,49 @@
 package org.helmo.gbeditor.repositories;
 
-import com.google.gson.Gson;
 import org.helmo.gbeditor.models.Author;
 import org.helmo.gbeditor.models.Book;
-import org.helmo.gbeditor.models.BookDataFields;
 import org.helmo.gbeditor.models.Page;
-import org.helmo.gbeditor.repositories.exceptions.IllegalImageExtensionException;
+import org.helmo.gbeditor.repositories.BookJsonReader.PageKey;
 
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
-import static org.helmo.gbeditor.models.BookDataFields.*;
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
 
 /**
  * JsonRepository is a class that implements the Repository interface.
  * It is used to load and save books from a json file.
+ * Only the metadata of the books is read when the file is loaded, the pages of a book are read from the file
+ * the first time they are needed.
+ * When it is given an executor for its notifications, the files are written by a background thread:
+ * the modifications are serialized by the caller and written later, several at once (see AsyncWriter).
  * <hr>
  * N'ayant pas le cours de Structure de Données, je n'ai pas implémenté les méthodes de manière optimale.
- * De plus, cette classe est le seul endroit que je vais utiliser pour manipuler les fichiers dans ce projet.
+ * De plus, le paquet repositories est le seul endroit que je vais utiliser pour manipuler les fichiers dans ce projet.
  */
-public class JsonRepository implements RepositoryInterface {
+public class JsonRepository extends AbstractRepository {
 
-	private static final byte[] JPG_BYTES = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
-	private static final byte[] PNG_BYTES = new byte[]{(byte) 0x89, (byte) 0x50, (byte) 0x4E, (byte) 0x47, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A}; // Avec l'autorisation de M. Hendrikx pour le cast
+	private static final String LIBRARY_KEY = "library";
+	private static final String AUTHORS_SUFFIX = ".authors";
 
-	private final Gson gson = new Gson();
 	private final Path bookPath;
-	private final Path imgDirPath;
-	private Set<Book> allBooks;
-	private Set<Author> authors;
-	private Author currentAuthor;
-	private Book bookToEdit;
+	private final Path authorsPath;
+	private final BookJournal journal;
+	private BookIndex index;
+	private final AsyncWriter<PendingWrite> writer;
+	private Map<PageKey, List<Page>> prefetchedPages = null;
+	private boolean prefetchedFromRewrittenSnapshot = false;
 
 	/**
 	 * Constructor of the JsonRepository class.
@@ -44,206 +53,330 @@ public class JsonRepository implements RepositoryInterface {
 	 * @param imgDirPath The path of the image directory to save the image it copies.
 	 */
 	public JsonRepository(Path bookPath, Path imgDirPath) {
+		this(bookPath, imgDirPath, false);
+	}
+
+	/**
+	 * Constructor of the JsonRepository class.
+	 * In journaled mode, the modifications of a single book are appended to a journal next to the json file
+	 * instead of rewriting the whole file, and the journal is folded into the json file in the background.
+	 *
+	 * @param bookPath   The path of the json file.
+	 * @param imgDirPath The path of the image directory to save the image it copies.
+	 * @param journaled  true to use the journaled mode, false to rewrite the json file on each modification.
+	 */
+	public JsonRepository(Path bookPath, Path imgDirPath, boolean journaled) {
+		this(bookPath, imgDirPath, journaled, null);
+	}
+
+	/**
+	 * Constructor of the JsonRepository class.
+	 * With an executor, the modifications are written in the background and the listeners are notified
+	 * through the executor once they are on disk (or if they could not be written).
+	 *
+	 * @param bookPath         The path of the json file.
+	 * @param imgDirPath       The path of the image directory to save the image it copies.
+	 * @param journaled        true to use the journaled mode, false to rewrite the json file on each modification.
+	 * @param callbackExecutor The executor of the notifications, null to write synchronously.
+	 */
+	public JsonRepository(Path bookPath, Path imgDirPath, boolean journaled, Executor callbackExecutor) {
+		super(imgDirPath);
 		this.bookPath = bookPath;
-		this.imgDirPath = imgDirPath;
-		this.allBooks = loadBooks();
-		this.authors = loadAuthors();
+		this.authorsPath = AtomicFiles.sibling(bookPath, AUTHORS_SUFFIX);
+		this.journal = journaled ? new BookJournal(bookPath, path -> loadBooks(path, false)) : null;
+		this.index = new BookIndex(recoverBooks());
+		if (journal != null) {
+			journal.replay(index);
+		}
+		loadAuthors();
+		this.writer = callbackExecutor == null ? null : new AsyncWriter<>("json-writer", AsyncWriter.DEFAULT_CAPACITY, this::writePending, callbackExecutor);
+		imagesReferencedBy(index.values());
 	}
 
 	@Override
 	public Set<Book> getBooks() {
-		return new LinkedHashSet<>(allBooks);
-	}
-
-	private Set<Book> loadBooks() {
-		if (Files.exists(bookPath) && Files.isRegularFile(bookPath) && Files.isReadable(bookPath)) {
-			try (BufferedReader reader = Files.newBufferedReader(bookPath)) {
-				List<Book> bookList = new LinkedList<>();
-				gson.newJsonReader(reader);
-				if (reader.ready()) {
-					Arrays.asList(gson.fromJson(reader, Book[].class)).forEach(bLoaded -> {
-						Book book;
-						try {
-							book = new Book(bLoaded.getMetadata(TITLE), bLoaded.getAuthor(), bLoaded.getMetadata(SUMMARY), bLoaded.getMetadata(BOOK_ISBN), bLoaded.getMetadata(IMAGE_PATH));
-						} catch (IllegalArgumentException e) {
-							book = new Book(bLoaded.getMetadata(TITLE), bLoaded.getAuthor(), bLoaded.getMetadata(SUMMARY), bLoaded.getMetadata(BOOK_ISBN));
-						}
-						while (bookList.contains(book)) {
-							book = new Book(bLoaded.getMetadata(TITLE), bLoaded.getAuthor(), bLoaded.getMetadata(SUMMARY), "", bLoaded.getMetadata(IMAGE_PATH));
-						}
-						var bLoadedPages = bLoaded.getPages();
-						for (Page p : bLoaded.getPages()) {
-							book.addPage(p, bLoadedPages.indexOf(p));
-						}
-						if (bLoaded.isPublished()) {
-							book.publish();
-						}
-						bookList.add(book);
-					});
-				}
-				return new LinkedHashSet<>(bookList);
-			} catch (IOException e) {
-				return new LinkedHashSet<>();
+		return new LinkedHashSet<>(index.values());
+	}
+
+	private Set<Book> loadBooks(Path path, boolean deferPages) {
+		try {
+			return readBooks(path, deferPages);
+		} catch (IOException e) {
+			return new LinkedHashSet<>();
+		}
+	}
+
+	/**
+	 * Loads the library on startup. If the json file can not be read (a crash while it was written by an older version),
+	 * it is replaced by the backup kept by the last save.
+	 *
+	 * @return the books of the library
+	 */
+	private Set<Book> recoverBooks() {
+		if (!Files.exists(bookPath)) {
+			AtomicFiles.restoreBackup(bookPath);
+		}
+		try {
+			return readBooks(bookPath, true);
+		} catch (IOException e) {
+			return AtomicFiles.restoreBackup(bookPath) ? loadBooks(bookPath, true) : new LinkedHashSet<>();
+		}
+	}
+
+	private Set<Book> readBooks(Path path, boolean deferPages) throws IOException {
+		if (Files.exists(path) && Files.isRegularFile(path) && Files.isReadable(path)) {
+			try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				return new BookJsonReader(reader).readBooks(deferPages ? this::loadPages : null);
+			} catch (IllegalStateException e) {
+				throw new IOException(e.getMessage(), e);
 			}
 		}
 		return new LinkedHashSet<>();
 	}
 
+	/**
+	 * Reads the pages of one book from the json file (or takes them from the pages read for a whole write).
+	 * Once the journal has rewritten the snapshot, the book is found under the isbn it was given when it was read
+	 * (the snapshot is written from the books, with their isbns).
+	 *
+	 * @param key the key of the book in the file it was read from
+	 * @return the pages of the book, empty if the book is not in the file anymore
+	 */
+	private List<Page> loadPages(PageKey key) {
+		if (journal != null) {
+			return journal.readSnapshot(() -> loadPages(journal.isSnapshotRewritten() ? key.rewritten() : key, journal.isSnapshotRewritten()));
+		}
+		return loadPages(key, false);
+	}
+
+	private List<Page> loadPages(PageKey fileKey, boolean rewritten) {
+		if (prefetchedPages != null && prefetchedFromRewrittenSnapshot == rewritten && prefetchedPages.containsKey(fileKey)) {
+			return prefetchedPages.remove(fileKey);
+		}
+		return readPagesFromFile(Set.of(fileKey)).getOrDefault(fileKey, new ArrayList<>());
+	}
+
+	private Map<PageKey, List<Page>> readPagesFromFile(Set<PageKey> keys) {
+		if (Files.isRegularFile(bookPath)) {
+			try (BufferedReader reader = Files.newBufferedReader(bookPath, StandardCharsets.UTF_8)) {
+				return new BookJsonReader(reader).readPages(keys);
+			} catch (IOException | IllegalStateException e) {
+				return Map.of();
+			}
+		}
+		return Map.of();
+	}
+
+	/**
+	 * Loads the pages of the given books that are not loaded yet, reading the json file only once.
+	 * The books must be in memory with their pages before being written.
+	 *
+	 * @param books the books about to be written
+	 */
+	private void loadPendingPages(Collection<Book> books) {
+		if (books.stream().allMatch(Book::arePagesLoaded)) {
+			return;
+		}
+		if (journal != null) {
+			journal.readSnapshot(() -> {
+				prefetchedPages = new HashMap<>(readPagesFromFile(null));
+				prefetchedFromRewrittenSnapshot = journal.isSnapshotRewritten();
+				return null;
+			});
+		} else {
+			prefetchedPages = new HashMap<>(readPagesFromFile(null));
+		}
+		try {
+			books.forEach(Book::loadPages);
+		} finally {
+			prefetchedPages = null;
+		}
+	}
+
 	@Override
 	public boolean saveBooks(Set<Book> books) {
-		if (!Files.exists(bookPath)) {
-			try {
-				Files.createFile(bookPath);
-			} catch (IOException e) {
+		loadPendingPages(books);
+		if (writer != null) {
+			this.index = new BookIndex(books);
+			authorRegistry().addAll(index.authors());
+			imagesReferencedBy(index.values());
+			submitLibrary();
+			return true;
+		}
+		if (journal != null) {
+			if (!journal.saveSnapshot(new LinkedHashSet<>(books))) {
 				return false;
 			}
+			this.index = new BookIndex(books);
+			authorRegistry().addAll(index.authors());
+			imagesReferencedBy(index.values());
+			return true;
 		}
-		try (BufferedWriter writer = Files.newBufferedWriter(bookPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
-			Set<Book> books2Save = new LinkedHashSet<>(books);
-			gson.toJson(books2Save, writer);
+		try {
+			AtomicFiles.writeBooks(bookPath, books);
 		} catch (IOException e) {
 			return false;
 		}
 		reload();
+		imagesReferencedBy(index.values());
 		return true;
 	}
 
 	private void reload() {
-		this.allBooks = loadBooks();
-		this.authors = loadAuthors();
+		this.index = new BookIndex(loadBooks(bookPath, true));
+		authorRegistry().addAll(index.authors());
 	}
 
 	@Override
 	public boolean deleteBook(Book book) {
-		Set<Book> books = getBooks();
-		for (Book b : books) {
-			if (b.equals(book)) {
-				books.remove(b);
-				return saveBooks(new HashSet<>(books));
+		if (!index.contains(book)) {
+			return false;
+		}
+		// Le livre peut être réenregistré ensuite (modification de ses métadonnées) : ses pages doivent être lues
+		// tant qu'il est encore dans le fichier
+		book.loadPages();
+		if (writer != null) {
+			index.remove(book);
+			imagesReferencedBy(index.values());
+			if (journal != null) {
+				writer.submit(book.getMetadata(BOOK_ISBN), new PendingWrite(false, journal.deleteLine(book)));
+			} else {
+				submitLibrary();
 			}
+			return true;
 		}
-		return false;
-	}
-
-	@Override
-	public Set<Author> getAuthors() {
-		return new LinkedHashSet<>(authors);
-	}
-
-	private Set<Author> loadAuthors() {
-		Set<Book> books = loadBooks();
-		Set<Author> authors = new LinkedHashSet<>();
-		for (Book book : books) {
-			authors.add(book.getAuthor());
+		if (journal != null) {
+			if (!journal.delete(book)) {
+				return false;
+			}
+			index.remove(book);
+			imagesReferencedBy(index.values());
+			return true;
 		}
-		return authors;
+		index.remove(book);
+		return saveBooks(new LinkedHashSet<>(index.values()));
 	}
 
 	/**
-	 * Déplace l'image du livre dans le dossier d'images
-	 *
-	 * @param imagePath chemin de l'image
-	 * @return le chemin de l'image dans le dossier d'images, null si l'image n'a pas pu être déplacée
+	 * Loads the authors from their file next to the json file, then the authors of the books missing from it
+	 * (libraries written before the file existed).
 	 */
-	@Override
-	public String copyImage(String imagePath) {
-		Path imageStored = Path.of(imagePath);
-		Path imageDestination = imgDirPath.resolve(imageStored.getFileName());
-		try (InputStream inputStream = new FileInputStream(imageStored.toFile()); OutputStream outputStream = new FileOutputStream(imageDestination.toFile())) {
-			if (!imageTrueExtension(imagePath)) {
-				throw new IllegalImageExtensionException();
-			}
-			byte[] buf = new byte[1024];
-			int length = inputStream.read(buf);
-			do {
-				outputStream.write(buf, 0, length);
-			} while ((length = inputStream.read(buf)) > 0);
-			return imageDestination.toString();
+	private void loadAuthors() {
+		try {
+			authorRegistry().readFrom(authorsPath);
 		} catch (IOException e) {
-			return "";
+			// Fichier illisible : les auteurs des livres restent enregistrés
 		}
+		authorRegistry().addAll(index.authors());
 	}
 
 	@Override
-	public void setCurrentAuthor(Author author) {
-		this.currentAuthor = author;
+	protected void saveAuthor(Author author) {
+		try {
+			authorRegistry().writeTo(authorsPath);
+		} catch (IOException e) {
+			// L'auteur reste enregistré en mémoire, il retrouvera le même matricule à sa prochaine connexion s'il est encore libre
+		}
 	}
 
 	@Override
-	public Author getCurrentAuthor() {
-		return currentAuthor;
+	public Set<Book> getBooksFromAuthor(Author currentAuthor) {
+		return index.getByAuthor(currentAuthor);
 	}
 
 	@Override
-	public Book getBookToEdit() {
-		return this.bookToEdit;
+	public Book getBook(String isbn) {
+		return index.get(isbn);
 	}
 
 	@Override
-	public void setBookToEdit(Book book) {
-		if (book != null) {
-			this.bookToEdit = book;
-		}
+	public int getFreeBookId(Author author) {
+		return index.firstFreeBookId(author);
 	}
 
 	@Override
-	public Set<Book> getBooksFromAuthor(Author currentAuthor) {
-		Set<Book> result = new HashSet<>();
-		for (Book book : allBooks) {
-			if (book.getAuthor().equals(currentAuthor)) {
-				result.add(book);
+	public void updatesAddBook(Book book) {
+		index.put(book);
+		authorRegistry().add(book.getAuthor());
+		if (journal != null) {
+			imagesReferencedBy(index.values());
+			book.loadPages();
+			if (writer != null) {
+				writer.submit(book.getMetadata(BOOK_ISBN), new PendingWrite(false, journal.putLine(book)));
+			} else {
+				journal.put(book);
 			}
+			return;
 		}
-		return result;
+		if (writer != null) {
+			imagesReferencedBy(index.values());
+			submitLibrary();
+			return;
+		}
+		saveBooks(new LinkedHashSet<>(index.values()));
 	}
 
 	@Override
-	public Book getBook(String isbn) {
-		for (Book book : allBooks) {
-			if (book.getMetadata(BookDataFields.BOOK_ISBN).equals(isbn)) {
-				return book;
-			}
+	public void flush() {
+		if (writer != null) {
+			writer.flush();
 		}
-		return null;
 	}
 
 	@Override
-	public void addAuthor(Author author) {
-		authors.add(author);
-		saveBooks(allBooks);
+	public void addSaveListener(SaveListener listener) {
+		if (writer != null) {
+			writer.addListener(listener);
+		}
 	}
 
-	@Override
-	public void updatesAddBook(Book book) {
-		allBooks.add(book);
-		saveBooks(allBooks);
+	/**
+	 * Serializes the whole library now and gives it to the writer.
+	 * It replaces a library waiting to be written, the journal entries submitted before are contained in it.
+	 */
+	private void submitLibrary() {
+		var books = index.values();
+		loadPendingPages(books);
+		writer.submit(LIBRARY_KEY, new PendingWrite(true, BookJsonWriter.toJson(books)));
 	}
 
 	/**
-	 * Vérifie si l'extension de l'image correspond bien aux premiers octets de l'image (jpg ou png), peut évoluer
-	 * facilement dans le futur
-	 *
-	 * @param imagePath le chemin de l'image
-	 * @return true si l'extension correspond au contenu, false sinon
+	 * Writes the modifications taken by the writer: the last whole library first (the journal entries before it
+	 * are contained in it), then the journal entries after it in one append.
 	 */
-	private static boolean imageTrueExtension(String imagePath) throws IOException {
-		switch (imagePath.substring(imagePath.lastIndexOf('.')).toLowerCase(Locale.FRENCH)) {
-			case ".jpg":
-				return checkImage(imagePath, 3, JPG_BYTES);
-			case ".png":
-				return checkImage(imagePath, 8, PNG_BYTES);
-			default:
-				return false;
+	private void writePending(List<PendingWrite> writes) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (var write : writes) {
+			if (write.library) {
+				lines.clear();
+				writeLibrary(write.json);
+			} else {
+				lines.add(write.json);
+			}
+		}
+		if (!lines.isEmpty()) {
+			journal.appendLines(lines);
 		}
 	}
 
-	private static boolean checkImage(String imagePath, int x, byte[] jpgBytes) {
-		try (InputStream inputStream = new FileInputStream(imagePath)) {
-			byte[] buf = new byte[x];
-			inputStream.read(buf);
-			return Arrays.equals(buf, jpgBytes);
-		} catch (IOException e) {
-			return false;
+	private void writeLibrary(String json) throws IOException {
+		if (journal != null) {
+			journal.saveSnapshot(json);
+		} else {
+			AtomicFiles.writeString(bookPath, json);
+		}
+	}
+
+	/**
+	 * A modification serialized by the caller: the whole library or one line of the journal
+	 */
+	private static class PendingWrite {
+		private final boolean library;
+		private final String json;
+
+		private PendingWrite(boolean library, String json) {
+			this.library = library;
+			this.json = json;
 		}
 	}
-}
\ No newline at end of file
+}
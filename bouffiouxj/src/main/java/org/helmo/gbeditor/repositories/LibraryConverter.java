@@ -0,0 +1,55 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Book;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * LibraryConverter migrates a library between the json file of the JsonRepository
+ * and the binary file of the BinaryRepository.
+ */
+public final class LibraryConverter {
+
+	private LibraryConverter() {
+		// Classe utilitaire
+	}
+
+	/**
+	 * Converts a json library into a binary library.
+	 *
+	 * @param jsonPath   the path of the json file to read
+	 * @param binaryPath the path of the binary file to write
+	 * @return the number of books converted
+	 * @throws IOException if a file can not be read or written
+	 */
+	public static int jsonToBinary(Path jsonPath, Path binaryPath) throws IOException {
+		Set<Book> books;
+		try (BufferedReader reader = Files.newBufferedReader(jsonPath, StandardCharsets.UTF_8)) {
+			books = new BookJsonReader(reader).readBooks();
+		}
+		BookBinaryFile.write(books, binaryPath);
+		return books.size();
+	}
+
+	/**
+	 * Converts a binary library into a json library.
+	 *
+	 * @param binaryPath the path of the binary file to read
+	 * @param jsonPath   the path of the json file to write
+	 * @return the number of books converted
+	 * @throws IOException if a file can not be read or written
+	 */
+	public static int binaryToJson(Path binaryPath, Path jsonPath) throws IOException {
+		var books = BookBinaryFile.open(binaryPath).readBooks(false);
+		try (BufferedWriter writer = Files.newBufferedWriter(jsonPath, StandardCharsets.UTF_8)) {
+			new BookJsonWriter(writer).writeBooks(books);
+		}
+		return books.size();
+	}
+}
@@ -93,14 +93,49 @@ public interface RepositoryInterface {
 	Book getBook(String isbn);
 
 	/**
-	 * Adds and saves an author.
+	 * Gets the smallest book id an author does not use yet, to suggest it for a new book (it is not reserved).
+	 * @param author The author of the new book.
+	 * @return The free book id.
+	 * @throws org.helmo.gbeditor.repositories.exceptions.BookIdsExhaustedException if the author uses all the book ids.
+	 */
+	int getFreeBookId(Author author);
+
+	/**
+	 * Adds and saves an author, unless an author with the same names is already registered.
 	 * @param author The author to add.
 	 */
 	void addAuthor(Author author);
 
+	/**
+	 * Gets the author with the given names, or registers and saves it with an identifier no other author uses.
+	 * @param name The name of the author.
+	 * @param firstName The first name of the author.
+	 * @return The registered author.
+	 * @throws IllegalArgumentException if a name is empty or if there is no free identifier left.
+	 */
+	Author registerAuthor(String name, String firstName);
+
 	/**
 	 * Adds and saves a book.
 	 * @param book The book to add.
 	 */
 	void updatesAddBook(Book book);
+
+	/**
+	 * Waits until all the modifications given to the repository are written.
+	 * Nothing to wait for by default, the modifications are written immediately.
+	 */
+	default void flush() {
+		// Écriture synchrone par défaut
+	}
+
+	/**
+	 * Adds a listener notified when the modifications are written in the background.
+	 * A repository writing immediately only notifies it of the modifications it could not write, if it reports them.
+	 *
+	 * @param listener the listener to add
+	 */
+	default void addSaveListener(SaveListener listener) {
+		// Écriture synchrone par défaut
+	}
 }
@@ -0,0 +1,24 @@
+package org.helmo.gbeditor.repositories;
+
+/**
+ * SaveListener is notified when a repository writing in the background has written (or failed to write)
+ * the modifications it was given.
+ */
+public interface SaveListener {
+
+	/**
+	 * Called when a group of modifications has been written.
+	 *
+	 * @param count the number of modifications written together
+	 */
+	default void saved(int count) {
+		// Rien à faire par défaut
+	}
+
+	/**
+	 * Called when a group of modifications could not be written.
+	 *
+	 * @param message the reason of the failure
+	 */
+	void saveFailed(String message);
+}
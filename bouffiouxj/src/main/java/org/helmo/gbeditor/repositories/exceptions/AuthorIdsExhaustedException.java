@@ -0,0 +1,13 @@
+package org.helmo.gbeditor.repositories.exceptions;
+
+/**
+ * This exception is thrown when every author identifier is already used
+ */
+public class AuthorIdsExhaustedException extends IllegalArgumentException {
+	/**
+	 * AuthorIdsExhaustedException constructor
+	 */
+	public AuthorIdsExhaustedException() {
+		super("Tous les matricules d'auteur sont déjà utilisés");
+	}
+}
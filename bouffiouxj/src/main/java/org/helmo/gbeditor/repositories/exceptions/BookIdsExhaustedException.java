@@ -0,0 +1,15 @@
+package org.helmo.gbeditor.repositories.exceptions;
+
+/**
+ * This exception is thrown when an author already uses all the book ids of its isbns
+ */
+public class BookIdsExhaustedException extends IllegalArgumentException {
+	/**
+	 * BookIdsExhaustedException constructor
+	 *
+	 * @param idAuthor the id of the author
+	 */
+	public BookIdsExhaustedException(int idAuthor) {
+		super(String.format("L'auteur %d a déjà utilisé les 100 identifiants de livre de ses isbn", idAuthor));
+	}
+}
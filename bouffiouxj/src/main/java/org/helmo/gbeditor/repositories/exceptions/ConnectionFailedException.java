@@ -0,0 +1,15 @@
+package org.helmo.gbeditor.repositories.exceptions;
+
+/**
+ * This exception is thrown when the database of a repository can not be reached or initialized
+ */
+public class ConnectionFailedException extends IllegalArgumentException {
+	/**
+	 * ConnectionFailedException constructor
+	 *
+	 * @param cause the error raised by the database
+	 */
+	public ConnectionFailedException(Throwable cause) {
+		super("Impossible de se connecter à la base de données", cause);
+	}
+}
@@ -37,7 +37,12 @@ public class BookDetailsView implements BookDetailsViewInterface {
 	private static final int HEIGHT = 800;
 	private static final int SMALL_SPACING = 5;
 	private static final int BIG_SPACING = 10;
+	private static final int COVER_WIDTH = 100;
+	private static final int COVER_HEIGHT = 150;
+	private final CoverImages covers;
 	private ObservableList<PageViewModel> pages;
+	private TableView<PageViewModel> pagesTable;
+	private final Label analysisLabel = new Label();
 	private String summary;
 	private String isbn;
 	private String imagePath;
@@ -46,7 +51,18 @@ public class BookDetailsView implements BookDetailsViewInterface {
 	private boolean published;
 
 	public BookDetailsView(BookDetailsPresenter presenter) {
+		this(presenter, new CoverImages(null));
+	}
+
+	/**
+	 * Constructor of the view
+	 *
+	 * @param presenter the presenter of the view
+	 * @param covers    the thumbnails of the covers, shared with the main view
+	 */
+	public BookDetailsView(BookDetailsPresenter presenter, CoverImages covers) {
 		this.presenter = presenter;
+		this.covers = covers;
 		presenter.setView(this);
 		stage.setOnCloseRequest(event -> presenter.closeView());
 	}
@@ -124,11 +140,10 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		mainPane.setTop(title);
 		BorderPane.setMargin(title, insets);
 
-		var iv = new ImageView(new Image(Objects.requireNonNull(getClass().getResource("/placeholder.png")).toExternalForm()));
-		if (imagePath != null && !imagePath.isEmpty()) {
-			iv = new ImageView(new Image(imagePath));
-		}
-		iv.setFitWidth(100);
+		var iv = new ImageView();
+		covers.show(imagePath, COVER_WIDTH, COVER_HEIGHT, iv);
+		iv.setFitWidth(COVER_WIDTH);
+		iv.setFitHeight(COVER_HEIGHT);
 		iv.setPreserveRatio(true);
 
 		var imageBox = new VBox();
@@ -145,6 +160,16 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		summary.setWrapText(true);
 		bookBox.getChildren().add(summary);
 
+		analysisLabel.setWrapText(true);
+		analysisLabel.getStyleClass().add("message");
+		bookBox.getChildren().add(analysisLabel);
+		if (!published) {
+			var analyseBtn = new Button("🔍 Analyser");
+			analyseBtn.setOnAction(e -> showAnalysis());
+			bookBox.getChildren().add(analyseBtn);
+		}
+		showAnalysis();
+
 		var scrollPane = new ScrollPane();
 		scrollPane.setContent(bookBox);
 		scrollPane.setFitToWidth(true);
@@ -175,6 +200,7 @@ public class BookDetailsView implements BookDetailsViewInterface {
 
 		var rightPane = new BorderPane();
 		var tableView = fillPagesTable(bookPages);
+		this.pagesTable = tableView;
 		rightPane.setCenter(tableView);
 
 		var pageInputs = new VBox();
@@ -190,7 +216,7 @@ public class BookDetailsView implements BookDetailsViewInterface {
 					pagePosition.setText(oldValue);
 				}
 			});
-			pagePosition.setText(String.valueOf(bookPages.size() + 1));
+			pagePosition.setText(String.valueOf(pages.size() + 1));
 			positionBox.getChildren().addAll(positionLabel, pagePosition);
 			var contentInput = new TextArea();
 			contentInput.setPromptText("Contenu de la page");
@@ -205,7 +231,7 @@ public class BookDetailsView implements BookDetailsViewInterface {
 			var addPageBtn = new Button("➕");
 			addPageBtn.setOnAction(e -> {
 				if (!contentInput.getText().isEmpty()) {
-					var position = Integer.parseInt(pagePosition.getText().isBlank() ? bookPages.size() + 1 + "" : pagePosition.getText());
+					var position = Integer.parseInt(pagePosition.getText().isBlank() ? pages.size() + 1 + "" : pagePosition.getText());
 					presenter.addPage(contentInput.getText(), position);
 					contentInput.clear();
 				}
@@ -237,6 +263,105 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		popupConfirmPageDeletion(selectedPage);
 	}
 
+	@Override
+	public void pageInserted(int index, PageViewModel page) {
+		if (pages != null) {
+			pages.add(index, page);
+			renumberPages();
+		}
+	}
+
+	@Override
+	public void pageRemoved(int index) {
+		if (pages != null) {
+			pages.remove(index);
+			renumberPages();
+		}
+	}
+
+	@Override
+	public void pageMoved(int from, int to) {
+		if (pages != null) {
+			var page = pages.remove(from);
+			pages.add(to, page);
+			pagesTable.getSelectionModel().select(to);
+			renumberPages();
+		}
+	}
+
+	@Override
+	public void pageChanged(int index, PageViewModel page) {
+		if (pages != null) {
+			pages.set(index, page);
+			analysisOutdated();
+		}
+	}
+
+	@Override
+	public void choiceRemoved(int index, String choice) {
+		if (pages != null) {
+			var page = pages.get(index);
+			page.removeChoice(choice);
+			pages.set(index, page);
+			analysisOutdated();
+		}
+	}
+
+	/**
+	 * The numbers shown in the table follow the positions of the pages: only the visible rows are drawn again.
+	 */
+	private void renumberPages() {
+		pagesTable.refresh();
+		analysisOutdated();
+	}
+
+	/**
+	 * The analysis goes through all the pages and choices of the book: it is not computed again after each edit,
+	 * the author asks for it with the button once the pages have changed.
+	 */
+	private void analysisOutdated() {
+		analysisLabel.setText("Les pages ont changé : cliquez sur Analyser pour mettre l'analyse à jour");
+	}
+
+	/**
+	 * Tells the author which pages can not be reached from the first one, where the book ends and where it loops.
+	 */
+	private void showAnalysis() {
+		var analysis = presenter.getAnalysis();
+		if (analysis == null) {
+			analysisLabel.setText("");
+			return;
+		}
+		var text = new StringJoiner("\n");
+		if (!analysis.getUnreachablePages().isEmpty()) {
+			text.add("Pages inaccessibles depuis la page 1 : " + abbreviate(analysis.getUnreachablePages()));
+		}
+		if (!analysis.getEndingDistances().isEmpty()) {
+			var endings = new StringJoiner(", ");
+			analysis.getEndingDistances().entrySet().stream().limit(GLIMPSE_SIZE)
+					.forEach(ending -> endings.add(String.format("page %d (%d choix)", ending.getKey(), ending.getValue())));
+			if (analysis.getEndingDistances().size() > GLIMPSE_SIZE) {
+				endings.add("...");
+			}
+			text.add("Fins : " + endings);
+		}
+		var cycles = analysis.getCycles();
+		for (var cycle : cycles.subList(0, Math.min(cycles.size(), GLIMPSE_SIZE))) {
+			text.add("Boucle : pages " + abbreviate(cycle));
+		}
+		if (cycles.size() > GLIMPSE_SIZE) {
+			text.add(String.format("... et %d autres boucles", cycles.size() - GLIMPSE_SIZE));
+		}
+		analysisLabel.setText(text.toString());
+	}
+
+	private static String abbreviate(List<Integer> pageNumbers) {
+		if (pageNumbers.size() <= GLIMPSE_SIZE) {
+			return pageNumbers.toString();
+		}
+		return pageNumbers.subList(0, GLIMPSE_SIZE) + String.format(" et %d autres", pageNumbers.size() - GLIMPSE_SIZE);
+	}
+
 	@Override
 	public void setBookToDisplay(BookViewModel bookToDisplay) {
 		this.title = bookToDisplay.getTitle();
@@ -248,13 +373,7 @@ public class BookDetailsView implements BookDetailsViewInterface {
 	}
 
 	private void popupConfirmPageDeletion(PageViewModel selectedPage) {
-		var references = 0;
-		for (PageViewModel p : pages) {
-			System.out.println(p.getChoices());
-			if (p.getChoices().containsValue(selectedPage)) {
-				references++;
-			}
-		}
+		var references = presenter.countPagesWithChoicesTo(selectedPage);
 		var alert = new Alert(Alert.AlertType.CONFIRMATION);
 		alert.setTitle("Suppression de page");
 		alert.setHeaderText(String.format("Cette page est référencée dans %d autre(s) page(s), êtes-vous sûr ?", references));
@@ -379,23 +498,7 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		choicesBox.setAlignment(Pos.CENTER);
 		var choices = selectedPage.getChoices();
 		for (var choice : choices.keySet()) {
-			var choiceBox = new HBox();
-			choiceBox.setSpacing(SMALL_SPACING);
-			choiceBox.setAlignment(Pos.CENTER);
-			var choiceLabel = new Label(choice);
-			final var directionLabel = new Label("➡");
-			var destinationPage = choices.get(choice);
-			var content = destinationPage.getContent();
-			var destinationLabel = new Label(formatPage(destinationPage, content));
-			var deleteChoiceBtn = new Button("❌");
-			deleteChoiceBtn.setOnAction(event -> {
-				if (!choiceLabel.getText().isBlank() && !destinationLabel.getText().isBlank()) {
-					selectedPage.removeChoice(choiceLabel.getText());
-					refresh();
-				}
-			});
-			choiceBox.getChildren().addAll(choiceLabel, directionLabel, destinationLabel, deleteChoiceBtn);
-			choicesBox.getChildren().add(choiceBox);
+			choicesBox.getChildren().add(choiceBox(selectedPage, choice, choices.get(choice), choicesBox));
 		}
 		var saveBtn = new Button("✔");
 		saveBtn.setOnAction(e -> {
@@ -414,8 +517,12 @@ public class BookDetailsView implements BookDetailsViewInterface {
 			saveChoiceBtn.setOnAction(event -> {
 				var item = destinationField.getItems().size() > 0 ? destinationField.getItems().get(0) : null;
 				if (!choiceField.getText().isBlank() && item != null) {
-					selectedPage.addChoice(choiceField.getText(), presenter.getPageById(destinationField.getItems().get(0).getId()));
-					refresh();
+					var destinationPage = presenter.getPageById(destinationField.getItems().get(0).getId());
+					if (destinationPage != null) {
+						selectedPage.addChoice(choiceField.getText(), destinationPage);
+						var index = choicesBox.getChildren().indexOf(choiceBox);
+						choicesBox.getChildren().set(index, choiceBox(selectedPage, choiceField.getText(), destinationPage, choicesBox));
+					}
 				}
 			});
 			choiceBox.getChildren().addAll(choiceField, destinationField, saveChoiceBtn);
@@ -424,7 +531,7 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		var cancelBtn = new Button("✖");
 		cancelBtn.setOnAction(e -> {
 			if (selectedPage.hasBeenModified() || !Objects.equals(contentField.getText(), selectedPage.getContent())) {
-				alertConfirmQuitWithoutSaving(popup);
+				alertConfirmQuitWithoutSaving(popup, selectedPage);
 			} else {
 				popup.hide();
 			}
@@ -437,7 +544,29 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		fillAndPlacePopup(popup, popupRoot);
 	}
 
-	private void alertConfirmQuitWithoutSaving(Popup popup) {
+	/**
+	 * Builds the line of a choice in the popup editing a page, the line disappears when the choice is deleted.
+	 */
+	private HBox choiceBox(PageViewModel selectedPage, String choice, PageViewModel destinationPage, VBox choicesBox) {
+		var choiceBox = new HBox();
+		choiceBox.setSpacing(SMALL_SPACING);
+		choiceBox.setAlignment(Pos.CENTER);
+		var choiceLabel = new Label(choice);
+		final var directionLabel = new Label("➡");
+		var content = destinationPage.getContent();
+		var destinationLabel = new Label(formatPage(destinationPage, content));
+		var deleteChoiceBtn = new Button("❌");
+		deleteChoiceBtn.setOnAction(event -> {
+			if (!choiceLabel.getText().isBlank() && !destinationLabel.getText().isBlank()) {
+				selectedPage.removeChoice(choiceLabel.getText());
+				choicesBox.getChildren().remove(choiceBox);
+			}
+		});
+		choiceBox.getChildren().addAll(choiceLabel, directionLabel, destinationLabel, deleteChoiceBtn);
+		return choiceBox;
+	}
+
+	private void alertConfirmQuitWithoutSaving(Popup popup, PageViewModel editedPage) {
 		Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
 		alert.setTitle("Confirmation");
 		alert.setHeaderText("Quitter sans sauvegarder ?");
@@ -445,6 +574,8 @@ public class BookDetailsView implements BookDetailsViewInterface {
 		Optional<ButtonType> result = alert.showAndWait();
 		if (result.isPresent() && result.get() == ButtonType.OK) {
 			popup.hide();
+			//Les modifications non sauvegardées de la page sont abandonnées
+			presenter.cancelPageEdit(editedPage);
 		} else {
 			alert.close();
 		}
@@ -0,0 +1,172 @@
+package org.helmo.gbeditor.views;
+
+import javafx.collections.FXCollections;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * CoverGrid displays the covers of the books of the author, four per row.
+ * <p>
+ * It is a list of rows: the list only creates the rows visible in the viewport and gives them another row
+ * to display when the user scrolls. Each row keeps its tiles (title, cover and isbn), a tile is only bound
+ * to a book when it becomes visible, so scrolling and refreshing do not depend on the number of books.
+ */
+class CoverGrid extends ListView<Integer> {
+
+	static final int ITEMS_PER_ROW = 4;
+	private static final int COVER_WIDTH = 75;
+	private static final int COVER_HEIGHT = 110;
+	private static final int TILE_WIDTH = 140;
+	private static final int ROW_HEIGHT = 175;
+	private static final String PUBLISHED_STYLE = "-fx-border-width: 2px; -fx-border-color: #1c1c96; -fx-border-style: dotted;";
+
+	private final Consumer<BookViewModel> onBookClicked;
+	private final CoverImages covers;
+	private List<BookViewModel> books = List.of();
+
+	/**
+	 * Constructor of the grid
+	 *
+	 * @param covers        the thumbnails of the covers
+	 * @param onBookClicked called with the book of the tile clicked by the user
+	 */
+	CoverGrid(CoverImages covers, Consumer<BookViewModel> onBookClicked) {
+		this.covers = covers;
+		this.onBookClicked = onBookClicked;
+		getStyleClass().add("cover-grid");
+		setFixedCellSize(ROW_HEIGHT);
+		setFocusTraversable(false);
+		setCellFactory(list -> new RowCell());
+		setPlaceholder(new Label("Vous n'avez pas encore créé de livre."));
+	}
+
+	/**
+	 * Displays other books. Only the visible rows are bound again.
+	 *
+	 * @param books the books to display
+	 */
+	void setBooks(Collection<BookViewModel> books) {
+		this.books = new ArrayList<>(books);
+		setItems(FXCollections.observableList(new RowIndexes((this.books.size() + ITEMS_PER_ROW - 1) / ITEMS_PER_ROW)));
+	}
+
+	/**
+	 * The numbers of the rows, computed instead of stored
+	 */
+	private static class RowIndexes extends AbstractList<Integer> {
+		private final int size;
+
+		RowIndexes(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public Integer get(int index) {
+			Objects.checkIndex(index, size);
+			return index;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * A row of the grid, its tiles are reused for each row it displays
+	 */
+	private class RowCell extends ListCell<Integer> {
+		private final Tile[] tiles = new Tile[ITEMS_PER_ROW];
+		private final HBox box = new HBox(10);
+
+		RowCell() {
+			for (int i = 0; i < ITEMS_PER_ROW; i++) {
+				tiles[i] = new Tile();
+				box.getChildren().add(tiles[i]);
+			}
+			box.setAlignment(Pos.CENTER);
+		}
+
+		@Override
+		protected void updateItem(Integer row, boolean empty) {
+			super.updateItem(row, empty);
+			if (empty || row == null) {
+				for (Tile tile : tiles) {
+					tile.bind(null);
+				}
+				setGraphic(null);
+				return;
+			}
+			for (int i = 0; i < ITEMS_PER_ROW; i++) {
+				int index = row * ITEMS_PER_ROW + i;
+				tiles[i].bind(index < books.size() ? books.get(index) : null);
+			}
+			setGraphic(box);
+		}
+	}
+
+	/**
+	 * The thumbnail of one book
+	 */
+	private class Tile extends BorderPane {
+		private final Label title = new Label();
+		private final ImageView cover = new ImageView();
+		private final Label isbn = new Label();
+		private BookViewModel book;
+
+		Tile() {
+			title.getStyleClass().add("thumbnail-title");
+			title.setAlignment(Pos.CENTER);
+			title.setMaxWidth(TILE_WIDTH);
+			setTop(title);
+			BorderPane.setAlignment(title, Pos.CENTER);
+			cover.setFitWidth(COVER_WIDTH);
+			cover.setFitHeight(COVER_HEIGHT);
+			cover.setPreserveRatio(true);
+			setCenter(cover);
+			var bottomBox = new HBox(isbn);
+			bottomBox.setAlignment(Pos.CENTER);
+			isbn.getStyleClass().add("thumbnail-isbn");
+			setBottom(bottomBox);
+			setPrefWidth(TILE_WIDTH);
+			setOnMouseClicked(e -> {
+				if (book != null) {
+					onBookClicked.accept(book);
+				}
+			});
+		}
+
+		/**
+		 * Shows a book in the tile, or hides the tile if there is none (end of the last row)
+		 */
+		void bind(BookViewModel book) {
+			if (book == this.book && book != null) {
+				return;
+			}
+			this.book = book;
+			setVisible(book != null);
+			if (book == null) {
+				cover.setUserData(null);
+				cover.setImage(null);
+				return;
+			}
+			title.setText(book.getTitle());
+			isbn.setText(book.getIsbn());
+			setStyle(book.isPublished() ? PUBLISHED_STYLE : "");
+			covers.show(book.getImagePath(), COVER_WIDTH, COVER_HEIGHT, cover);
+		}
+	}
+}
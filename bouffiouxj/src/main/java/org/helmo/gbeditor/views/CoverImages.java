@@ -0,0 +1,189 @@
+package org.helmo.gbeditor.views;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * CoverImages gives the covers of the books at the size they are displayed.
+ * <p>
+ * The covers are decoded on background threads, the placeholder is displayed meanwhile. A cover is decoded
+ * once at full resolution to create its thumbnail, which is saved in the thumbnail directory: the next starts
+ * of the application only read the small file. The last thumbnails displayed are kept in memory.
+ */
+public class CoverImages {
+
+	static final int DEFAULT_CAPACITY = 200;
+	private static final int THREADS = 2;
+	private static final String THUMBNAIL_FORMAT = "png";
+
+	private final Path thumbnailDir;
+	private final Map<String, Image> thumbnails;
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+		var thread = new Thread(runnable, "cover-thumbnails");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Image placeholder = new Image(Objects.requireNonNull(getClass().getResource("/placeholder.png")).toExternalForm());
+
+	/**
+	 * Constructor of the covers
+	 *
+	 * @param thumbnailDir the directory where the thumbnails are saved, null to keep them in memory only
+	 */
+	public CoverImages(Path thumbnailDir) {
+		this(thumbnailDir, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor of the covers
+	 *
+	 * @param thumbnailDir the directory where the thumbnails are saved, null to keep them in memory only
+	 * @param capacity     the number of thumbnails kept in memory
+	 */
+	public CoverImages(Path thumbnailDir, int capacity) {
+		this.thumbnailDir = thumbnailDir;
+		this.thumbnails = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Displays a cover in an image view. If the thumbnail is not ready, the placeholder is displayed until it is.
+	 * The image view can be given another cover meanwhile (recycled cells), only the last one is displayed.
+	 *
+	 * @param imagePath the path of the cover, null or empty if the book has none
+	 * @param width     the width of the thumbnail
+	 * @param height    the height of the thumbnail
+	 * @param target    the image view displaying it
+	 */
+	void show(String imagePath, int width, int height, ImageView target) {
+		if (imagePath == null || imagePath.isEmpty()) {
+			target.setUserData(null);
+			target.setImage(placeholder);
+			return;
+		}
+		var key = imagePath + '@' + width + 'x' + height;
+		target.setUserData(key);
+		Image cached;
+		synchronized (thumbnails) {
+			cached = thumbnails.get(key);
+		}
+		if (cached != null) {
+			target.setImage(cached);
+			return;
+		}
+		target.setImage(placeholder);
+		executor.execute(() -> {
+			var thumbnail = thumbnail(imagePath, width, height);
+			synchronized (thumbnails) {
+				thumbnails.put(key, thumbnail);
+			}
+			Platform.runLater(() -> {
+				if (key.equals(target.getUserData())) {
+					target.setImage(thumbnail);
+				}
+			});
+		});
+	}
+
+	private Image thumbnail(String imagePath, int width, int height) {
+		Path source;
+		try {
+			source = imagePath.startsWith("file:") ? Path.of(URI.create(imagePath)) : Path.of(imagePath);
+		} catch (IllegalArgumentException | FileSystemNotFoundException e) {
+			return placeholder;
+		}
+		if (!Files.isRegularFile(source)) {
+			return placeholder;
+		}
+		if (thumbnailDir != null) {
+			var saved = thumbnailDir.resolve(thumbnailName(source, width, height));
+			if (isUpToDate(saved, source)) {
+				return new Image(saved.toUri().toString());
+			}
+			if (save(source, saved, width, height)) {
+				return new Image(saved.toUri().toString());
+			}
+		}
+		// Pas de dossier de miniatures (ou pas accessible), JavaFX réduit l'image au décodage
+		var image = new Image(source.toUri().toString(), width, height, true, true);
+		return image.isError() ? placeholder : image;
+	}
+
+	/**
+	 * Names the thumbnail of a cover from its absolute path and the size, so that two covers with the same file name
+	 * do not share their thumbnail.
+	 */
+	private static String thumbnailName(Path source, int width, int height) {
+		var id = UUID.nameUUIDFromBytes(source.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+		return id + "_" + width + "x" + height + "." + THUMBNAIL_FORMAT;
+	}
+
+	private static boolean isUpToDate(Path thumbnail, Path source) {
+		try {
+			FileTime created = Files.getLastModifiedTime(thumbnail);
+			return created.compareTo(Files.getLastModifiedTime(source)) >= 0;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Decodes a cover, reduces it to fit in the given size and saves it as a png.
+	 *
+	 * @return true if the thumbnail has been saved, false if the cover can not be read or the thumbnail written
+	 */
+	private boolean save(Path source, Path thumbnail, int width, int height) {
+		try {
+			BufferedImage original = ImageIO.read(source.toFile());
+			if (original == null) {
+				return false;
+			}
+			double ratio = Math.min(1.0, Math.min((double) width / original.getWidth(), (double) height / original.getHeight()));
+			int scaledWidth = Math.max(1, (int) Math.round(original.getWidth() * ratio));
+			int scaledHeight = Math.max(1, (int) Math.round(original.getHeight() * ratio));
+			var scaled = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D graphics = scaled.createGraphics();
+			try {
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				graphics.drawImage(original, 0, 0, scaledWidth, scaledHeight, null);
+			} finally {
+				graphics.dispose();
+			}
+			Files.createDirectories(thumbnailDir);
+			var temp = Files.createTempFile(thumbnailDir, thumbnail.getFileName().toString(), ".tmp");
+			try {
+				if (ImageIO.write(scaled, THUMBNAIL_FORMAT, temp.toFile())) {
+					Files.move(temp, thumbnail, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					return true;
+				}
+				return false;
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException | RuntimeException e) {
+			return false;
+		}
+	}
+}
@@ -22,7 +22,6 @@ import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
 
 import java.io.File;
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 /**
  * View for the creation of a book
@@ -49,6 +48,7 @@ public class EditBookView implements EditBookViewInterface {
 	private final Label authorName = new Label("");
 	private final Label baseIsbnLabel = new Label("9-999999-");
 	private final Label isbnControlLabel = new Label("-?");
+	private final StringBuilder isbnPrefix = new StringBuilder();
 	private String title = "";
 	private String imagePath = "";
 	private String summary = "";
@@ -215,12 +215,18 @@ public class EditBookView implements EditBookViewInterface {
 			if (newValue.length() > MAX_BOOK_ID) {
 				inputIsbn.setText(oldValue);
 				display(String.format("Vous avez atteint la limite de %d caractères pour l'identifiant du livre.", MAX_BOOK_ID));
-			} else if (Pattern.matches("[^0-9]", newValue)) {
+			} else if (!isDigits(newValue)) {
 				inputIsbn.setText(oldValue);
 				display("L'identifiant du livre ne peut contenir que des chiffres.");
 			} else {
 				if (newValue.length() > 0) {
-					presenter.askIsbnControlNumber(baseIsbnLabel.getText() + String.format("%02d", Integer.parseInt(newValue)));
+					// Préfixe réutilisé à chaque frappe : "9-999999-" puis l'identifiant sur deux chiffres
+					isbnPrefix.setLength(0);
+					isbnPrefix.append(baseIsbnLabel.getText());
+					if (newValue.length() < MAX_BOOK_ID) {
+						isbnPrefix.append('0');
+					}
+					presenter.askIsbnControlNumber(isbnPrefix.append(newValue));
 				} else {
 					isbnControlLabel.setText("-?"); // If the isbn is empty, we display a question mark
 				}
@@ -269,7 +275,9 @@ public class EditBookView implements EditBookViewInterface {
 		presenter.askBookToEdit();
 		if (bookCreation) {
 			inputTitle.setText("");
+			bookId = "";
 			presenter.askISBN();
+			inputIsbn.setText(bookId);
 			inputSummary.setText("");
 		} else {
 			inputTitle.setText(title);
@@ -322,6 +330,15 @@ public class EditBookView implements EditBookViewInterface {
 		}
 	}
 
+	private static boolean isDigits(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private String getFullIsbn() {
 		return baseIsbnLabel.getText() + inputIsbn.getText() + isbnControlLabel.getText();
 	}
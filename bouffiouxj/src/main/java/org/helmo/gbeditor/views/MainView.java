@@ -4,11 +4,7 @@ import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.Window;
 import org.helmo.gbeditor.presenters.MainPresenter;
@@ -17,9 +13,6 @@ import org.helmo.gbeditor.presenters.interfaces.MainViewInterface;
 import org.helmo.gbeditor.presenters.interfaces.ViewInterface;
 import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
 
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -33,68 +26,34 @@ public class MainView implements MainViewInterface {
 
 	private final MainPresenter presenter;
 	private ViewInterface baseView;
-	private final GridPane gridPane = new GridPane();
+	private final CoverGrid coverGrid;
 	private final BorderPane topPane = new BorderPane();
 	private final BorderPane mainPane = new BorderPane();
-	private Set<BookViewModel> booksFromAuthor = new LinkedHashSet<>();
 
 	/**
-	 * Constructor of the MainView class
+	 * Constructor of the MainView class, the thumbnails of the covers are only kept in memory
 	 *
 	 * @param mainPresenter the presenter of the view
 	 */
 	public MainView(MainPresenter mainPresenter) {
+		this(mainPresenter, new CoverImages(null));
+	}
+
+	/**
+	 * Constructor of the MainView class
+	 *
+	 * @param mainPresenter the presenter of the view
+	 * @param covers        the thumbnails of the covers
+	 */
+	public MainView(MainPresenter mainPresenter, CoverImages covers) {
 		this.presenter = mainPresenter;
 		this.presenter.setView(this);
+		this.coverGrid = new CoverGrid(covers, presenter::bookClicked);
 		initView();
 	}
 
 	private void initView() {
 		presenter.askBooksFromAuthor();
-		Iterator<BookViewModel> ite = booksFromAuthor.iterator();
-		final int ITEMS_PER_ROW = 4;
-		final int NUMBER_OF_ROWS = 2;
-		final int BOOK_BOX_SIZE = 3;
-		if (ite.hasNext()) {
-			for (int i = 0; ite.hasNext() && i < booksFromAuthor.size(); i++) {
-				var b = ite.next();
-				var box = new BorderPane();
-				if (b.isPublished()) {
-					box.setStyle("-fx-border-width: 2px; -fx-border-color: #1c1c96; -fx-border-style: dotted;");
-				}
-				var title = new Label(b.getTitle());
-				title.getStyleClass().add("thumbnail-title");
-				title.setAlignment(Pos.CENTER);
-				box.setTop(title);
-				var iv = setBookImage(b, 75);
-				box.setCenter(iv);
-
-				var bottomBox = new HBox();
-				bottomBox.setAlignment(Pos.CENTER);
-				var isbn = new Label(b.getIsbn());
-				isbn.getStyleClass().add("thumbnail-isbn");
-				bottomBox.getChildren().add(isbn);
-				box.setBottom(bottomBox);
-
-				box.setMaxWidth((gridPane.getWidth() - 5) / ITEMS_PER_ROW);
-				box.setMaxHeight((gridPane.getHeight() - 5) / NUMBER_OF_ROWS);
-				final int x = i % ITEMS_PER_ROW;
-				final int y = i / ITEMS_PER_ROW;
-				box.addEventHandler(javafx.scene.input.MouseEvent.MOUSE_CLICKED, e -> presenter.bookClicked(b));
-				gridPane.add(box, BOOK_BOX_SIZE * x, BOOK_BOX_SIZE * y, BOOK_BOX_SIZE, BOOK_BOX_SIZE);
-			}
-		} else {
-			gridPane.add(new Label("Vous n'avez pas encore créé de livre."), 0, 1, 3, 1);
-		}
-		gridPane.setAlignment(Pos.CENTER);
-		gridPane.setHgap(10);
-		gridPane.setVgap(10);
-
-		var scrollPane = new ScrollPane(gridPane);
-		scrollPane.setFitToWidth(true);
-		scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-		scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-		scrollPane.setPadding(new javafx.geometry.Insets(0, 0, 10, 0));
 
 		var viewTitle = new Label("Mes livres");
 		viewTitle.getStyleClass().add("title");
@@ -105,15 +64,17 @@ public class MainView implements MainViewInterface {
 			presenter.setBookToEdit(null);
 			baseView.changeView(ViewsEnum.EDIT_BOOK);
 		});
+		var publishAllBtn = new Button("Publier tout");
+		publishAllBtn.setOnAction(action -> presenter.publishValidBooks());
 		var quitBtn = new Button("Quitter");
 		quitBtn.setOnAction(action -> presenter.onQuit_Click());
 		var buttonBox = new HBox();
 		buttonBox.setSpacing(10);
-		buttonBox.getChildren().addAll(createBookBtn, quitBtn);
+		buttonBox.getChildren().addAll(createBookBtn, publishAllBtn, quitBtn);
 		buttonBox.setAlignment(Pos.BASELINE_CENTER);
 
 		mainPane.setTop(topPane);
-		mainPane.setCenter(scrollPane);
+		mainPane.setCenter(coverGrid);
 		mainPane.setBottom(buttonBox);
 		BorderPane.setMargin(buttonBox, new javafx.geometry.Insets(10, 0, 0, 0));
 
@@ -144,8 +105,6 @@ public class MainView implements MainViewInterface {
 	public void refresh() {
 		presenter.askAuthorName();
 		presenter.askBooksFromAuthor();
-		gridPane.getChildren().clear();
-		initView();
 	}
 
 	@Override
@@ -160,25 +119,16 @@ public class MainView implements MainViewInterface {
 		return baseView.getStage();
 	}
 
-	private ImageView setBookImage(BookViewModel book, int width) {
-		var iv = new ImageView(new Image(Objects.requireNonNull(getClass().getResource("/placeholder.png")).toExternalForm()));
-		if (book.getImagePath() != null && !book.getImagePath().isEmpty()) {
-			iv = new ImageView(new Image(book.getImagePath()));
-		}
-		iv.setFitWidth(width);
-		iv.setPreserveRatio(true);
-		return iv;
-	}
-
 	/**
 	 * This method is used to show all the books from the author in the database.
+	 * Only the covers visible in the grid are built.
 	 *
 	 * @param books the books to set
 	 */
 	@Override
 	public void setBooksFromAuthor(Set<BookViewModel> books) {
 		if (books != null) {
-			booksFromAuthor = books;
+			coverGrid.setBooks(books);
 		}
 	}
 
@@ -0,0 +1,126 @@
+package org.helmo.gbeditor.models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the BookAnalysis class
+ */
+class BookAnalysisTest {
+
+	private Book book;
+	private final List<Page> pages = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		book = new Book("title", new Author("name", "firstName", 123456), "summary");
+		pages.clear();
+	}
+
+	private void addPages(int count) {
+		for (int i = 0; i < count; i++) {
+			var page = new Page("page " + (pages.size() + 1));
+			book.addPage(page, pages.size());
+			pages.add(page);
+		}
+	}
+
+	private void choice(int from, int to) {
+		pages.get(from - 1).addChoice("to " + to, pages.get(to - 1));
+	}
+
+	@Test
+	void findsUnreachablePagesAndDeadEnds() {
+		addPages(5);
+		choice(1, 2);
+		choice(1, 3);
+		choice(2, 4);
+		choice(5, 4);
+		var analysis = book.getAnalysis();
+		assertEquals(List.of(pages.get(4)), analysis.getUnreachablePages());
+		assertEquals(List.of(pages.get(2), pages.get(3)), analysis.getDeadEnds());
+	}
+
+	@Test
+	void endingsHaveTheirShortestDistanceFromTheFirstPage() {
+		addPages(5);
+		choice(1, 2);
+		choice(2, 3);
+		choice(3, 4);
+		choice(1, 4);
+		choice(5, 3);
+		var distances = book.getAnalysis().getEndingDistances();
+		assertEquals(Map.of(pages.get(3), 1), distances);
+		assertEquals(2, book.getAnalysis().getDistanceFromFirstPage(2));
+		assertEquals(-1, book.getAnalysis().getDistanceFromFirstPage(4));
+	}
+
+	@Test
+	void findsTheCycles() {
+		addPages(6);
+		choice(1, 2);
+		choice(2, 3);
+		choice(3, 1);
+		choice(3, 4);
+		choice(5, 6);
+		choice(6, 5);
+		var cycles = book.getAnalysis().getCycles();
+		assertEquals(List.of(List.of(pages.get(0), pages.get(1), pages.get(2)), List.of(pages.get(4), pages.get(5))), cycles);
+	}
+
+	@Test
+	void choicesToPagesOutsideTheBookAreCounted() {
+		addPages(2);
+		choice(1, 2);
+		pages.get(1).addChoice("away", new Page("not in the book"));
+		var analysis = book.getAnalysis();
+		assertEquals(1, analysis.getChoicesOutsideBook());
+		assertTrue(analysis.getDeadEnds().isEmpty());
+	}
+
+	@Test
+	void analysisIsKeptUntilTheBookChanges() {
+		addPages(3);
+		choice(1, 2);
+		var analysis = book.getAnalysis();
+		assertSame(analysis, book.getAnalysis());
+		choice(2, 3);
+		var afterChoice = book.getAnalysis();
+		assertNotSame(analysis, afterChoice);
+		assertTrue(afterChoice.getUnreachablePages().isEmpty());
+		book.movePageDown(pages.get(0));
+		assertNotSame(afterChoice, book.getAnalysis());
+	}
+
+	@Test
+	void emptyBookHasNothingToReport() {
+		var analysis = book.getAnalysis();
+		assertEquals(0, analysis.getPageCount());
+		assertTrue(analysis.getCycles().isEmpty());
+		assertTrue(analysis.getUnreachablePages().isEmpty());
+	}
+
+	@Test
+	void longBooksAreAnalysedWithoutRecursion() {
+		final int count = 100_000;
+		addPages(count);
+		for (int i = 0; i < count; i++) {
+			for (int step = 1; step <= 10; step++) {
+				pages.get(i).addChoice("step " + step, pages.get((i + step) % count));
+			}
+		}
+		long start = System.nanoTime();
+		var analysis = book.getAnalysis();
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		assertEquals(1, analysis.getCycles().size());
+		assertEquals(count, analysis.getCycles().get(0).size());
+		assertTrue(analysis.getUnreachablePages().isEmpty());
+		assertTrue(elapsedMillis < 5_000, "Analysis took " + elapsedMillis + " ms");
+	}
+}
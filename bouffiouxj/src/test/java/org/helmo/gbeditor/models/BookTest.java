@@ -3,6 +3,10 @@ package org.helmo.gbeditor.models;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 import static org.helmo.gbeditor.models.BookDataFields.*;
 import static org.helmo.gbeditor.models.BookMetadata.MAX_SUMMARY;
 import static org.helmo.gbeditor.models.BookMetadata.MAX_TITLE;
@@ -303,12 +307,81 @@ class BookTest {
 		assertFalse(book.hasChoicesTo(page2));
 	}
 
+	@Test
+	void getPagesWithChoicesToListsEachSourceOnce() {
+		var page2 = new Page("content2");
+		var page3 = new Page("content3");
+		book.addPage(page, 0);
+		book.addPage(page2, 1);
+		book.addPage(page3, 2);
+		page.addChoice("choice", page3);
+		page.addChoice("other choice", page3);
+		page2.addChoice("choice", page3);
+		assertEquals(List.of(page, page2), book.getPagesWithChoicesTo(page3));
+	}
+
+	@Test
+	void removedChoicesAreNotCountedAnymore() {
+		var page2 = new Page("content2");
+		book.addPage(page, 0);
+		book.addPage(page2, 1);
+		page.addChoice("choice", page2);
+		page.removeChoice("choice");
+		assertFalse(book.hasChoicesTo(page2));
+	}
+
+	@Test
+	void choicesOfARemovedPageAreNotCountedAnymore() {
+		var page2 = new Page("content2");
+		book.addPage(page, 0);
+		book.addPage(page2, 1);
+		page.addChoice("choice", page2);
+		book.removePage(page);
+		assertTrue(book.getPagesWithChoicesTo(page2).isEmpty());
+	}
+
+	@Test
+	void choicesOfDeferredPagesAreIndexedWhenLoaded() {
+		var page2 = new Page("content2");
+		page.addChoice("choice", page2);
+		book.deferPages(2, () -> List.of(page, page2));
+		assertTrue(book.hasChoicesTo(page2));
+	}
+
+	@Test
+	void pagesViewFollowsThePagesOfTheBook() {
+		var pages = book.getPagesView();
+		book.addPage(page, 0);
+		assertEquals(List.of(page), pages);
+		assertThrows(UnsupportedOperationException.class, () -> pages.remove(page));
+	}
+
 	@Test
 	void getPageNumber() {
 		book.addPage(page, 0);
 		assertEquals(1, book.getPageNumber(page));
 	}
 
+	@Test
+	void pageNumbersFollowInsertionsRemovalsAndMoves() {
+		var pages = new ArrayList<Page>();
+		for (int i = 0; i < 5; i++) {
+			pages.add(new Page("content" + i));
+			book.addPage(pages.get(i), i);
+		}
+		book.removePage(pages.get(1));
+		book.addPage(page, 0);
+		book.movePageDown(pages.get(3));
+		assertEquals(List.of(page, pages.get(0), pages.get(2), pages.get(4), pages.get(3)), book.getPages());
+		assertEquals(5, book.getPageNumberById(pages.get(3).getId()));
+	}
+
+	@Test
+	void getPageNumberOfAnUnknownIdThrowsException() {
+		book.addPage(page, 0);
+		assertThrows(IllegalArgumentException.class, () -> book.getPageNumberById(UUID.randomUUID().toString()));
+	}
+
 	@Test
 	void getPageNumberWithNullPageThrowsException() {
 		assertThrows(IllegalArgumentException.class, () -> book.getPageNumber(null));
@@ -344,4 +417,25 @@ class BookTest {
 	void getPagesWithBlankIdThrowsException() {
 		assertThrows(IllegalArgumentException.class, () -> book.getPageById(" "));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void deferredPagesAreLoadedOnceWhenFirstNeeded() {
+		var loads = new int[]{0};
+		book.deferPages(1, () -> {
+			loads[0]++;
+			return new ArrayList<>(List.of(page));
+		});
+		assertFalse(book.arePagesLoaded());
+		assertEquals(page, book.getPageById(page.getId()));
+		assertEquals(1, book.getPages().size());
+		assertEquals(1, loads[0]);
+	}
+
+	@Test
+	void publishingABookWithDeferredPagesDoesNotLoadThem() {
+		book.deferPages(2, ArrayList::new);
+		book.publish();
+		assertTrue(book.isPublished());
+		assertFalse(book.arePagesLoaded());
+	}
+}
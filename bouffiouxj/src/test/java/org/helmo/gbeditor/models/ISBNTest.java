@@ -1,5 +1,7 @@
 package org.helmo.gbeditor.models;
 
+import org.helmo.gbeditor.models.exceptions.IllegalIsbnChecksumException;
+import org.helmo.gbeditor.models.exceptions.IllegalIsbnFormatException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -132,4 +134,101 @@ class ISBNTest {
 	void testComputeCheckSumThrowsExceptionWhenLinguisticGroupIsTooLong() {
 		assertThrows(IllegalArgumentException.class, () -> ISBN.computeCheckSum("12-123456-12"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void isbnWithoutDashesIsParsed() {
+		assertEquals(isbn, ISBN.parse("2123456016"));
+	}
+
+	@Test
+	void isbnWithShortIdsIsParsed() {
+		assertEquals(isbn, new ISBN("2-123456-1-6"));
+		assertEquals(new ISBN(2, 12, 1), new ISBN("2-12-1-4"));
+	}
+
+	@Test
+	void checkSumXIsParsedAndWritten() {
+		var withX = new ISBN(2, 123456, 5);
+		assertEquals(10, withX.getCheckSum());
+		assertEquals("2-123456-05-X", withX.toString());
+		assertEquals(withX, new ISBN("2-123456-05-X"));
+		assertEquals(withX, new ISBN("21234560" + "5X"));
+		assertEquals("X", ISBN.computeCheckSum("2-123456-05"));
+	}
+
+	@Test
+	void wrongCheckSumThrowsException() {
+		assertThrows(IllegalIsbnChecksumException.class, () -> new ISBN("2-123456-01-7"));
+	}
+
+	@Test
+	void malformedIsbnsThrowFormatException() {
+		for (var text : new String[]{"2-123456-01-", "2-123456-01-66", "2-1234567-01-6", "2-123456-011-6", "22-123456-01-6",
+				"2--01-6", "2-123456--6", "2-123a56-01-6", "2-123456-01-6-", "212345601", "21234560166", "2-123456-01-x", "A123456016"}) {
+			assertThrows(IllegalIsbnFormatException.class, () -> new ISBN(text), text);
+		}
+	}
+
+	@Test
+	void isValidChecksFormatAndCheckSum() {
+		assertTrue(ISBN.isValid("2-123456-01-6"));
+		assertTrue(ISBN.isValid("2123456016"));
+		assertFalse(ISBN.isValid("2-123456-01-7"));
+		assertFalse(ISBN.isValid("2-123456-01"));
+		assertFalse(ISBN.isValid(null));
+	}
+
+	@Test
+	void appendToReusesTheBuilder() {
+		var builder = new StringBuilder();
+		isbn.appendTo(builder);
+		builder.setLength(0);
+		new ISBN(0, 7, 0).appendTo(builder);
+		assertEquals("0-000007-00-7", builder.toString());
+		assertEquals("2-123456-01-6", isbn.toString());
+	}
+
+	@Test
+	void computeCheckSumAcceptsAnyCharSequence() {
+		assertEquals("6", ISBN.computeCheckSum(new StringBuilder("2-123456-01")));
+		assertThrows(IllegalArgumentException.class, () -> ISBN.computeCheckSum("2a123456-01"));
+	}
+
+	@Test
+	void packedIsbnGivesBackTheSameIsbn() {
+		assertEquals(isbn, ISBN.fromLong(isbn.toLong()));
+		assertEquals(2, ISBN.fromLong(isbn.toLong()).getLinguisticGroup());
+		assertEquals(123456, ISBN.fromLong(isbn.toLong()).getIdAuthor());
+		assertEquals(1, ISBN.fromLong(isbn.toLong()).getIdBook());
+		assertEquals(6, ISBN.fromLong(isbn.toLong()).getCheckSum());
+	}
+
+	@Test
+	void packedIsbnsAreOrderedAsTheIsbns() {
+		assertTrue(ISBN.of(2, 123456, 1).toLong() < ISBN.of(2, 123456, 2).toLong());
+		assertTrue(ISBN.of(2, 123456, 99).toLong() < ISBN.of(2, 123457, 0).toLong());
+		assertTrue(ISBN.of(2, 999999, 99).toLong() < ISBN.of(3, 0, 0).toLong());
+	}
+
+	@Test
+	void invalidPackedIsbnThrowsException() {
+		assertThrows(IllegalArgumentException.class, () -> ISBN.fromLong(isbn.toLong() + 1));
+		assertThrows(IllegalArgumentException.class, () -> ISBN.fromLong(-1));
+		assertThrows(IllegalArgumentException.class, () -> ISBN.fromLong(isbn.toLong() | (1L << 40)));
+	}
+
+	@Test
+	void factoriesShareTheInstances() {
+		var parsed = ISBN.parse("2-123456-01-6");
+		assertSame(parsed, ISBN.parse("2123456016"));
+		assertSame(parsed, ISBN.of(2, 123456, 1));
+		assertSame(parsed, ISBN.fromLong(isbn.toLong()));
+		assertSame(parsed.toString(), ISBN.parse("2-123456-01-6").toString());
+	}
+
+	@Test
+	void equalIsbnsHaveTheSameHashCode() {
+		assertEquals(isbn.hashCode(), ISBN.parse(isbn.toString()).hashCode());
+		assertNotEquals(isbn, ISBN.of(2, 123456, 2));
+	}
+}
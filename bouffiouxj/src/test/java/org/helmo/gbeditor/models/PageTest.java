@@ -246,4 +246,17 @@ class PageTest {
 		page.updateChoice("choice", page2);
 		assertEquals(page2, page.getChoices().get("choice"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void choicesViewFollowsTheChoicesOfThePage() {
+		var choices = page.getChoicesView();
+		Page page2 = new Page("test2");
+		page.addChoice("choice", page2);
+		assertEquals(page2, choices.get("choice"));
+	}
+
+	@Test
+	void choicesViewCanNotBeModified() {
+		assertThrows(UnsupportedOperationException.class, () -> page.getChoicesView().put("choice", new Page("test2")));
+	}
+}
@@ -0,0 +1,183 @@
+package org.helmo.gbeditor.models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the PlaythroughSimulator class
+ */
+class PlaythroughSimulatorTest {
+
+	private Book book;
+	private final List<Page> pages = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		book = new Book("title", new Author("name", "firstName", 123456), "summary");
+		pages.clear();
+	}
+
+	private void addPages(int count) {
+		for (int i = 0; i < count; i++) {
+			var page = new Page("page " + (pages.size() + 1));
+			book.addPage(page, pages.size());
+			pages.add(page);
+		}
+	}
+
+	private void choice(int from, int to) {
+		pages.get(from - 1).addChoice("to " + to, pages.get(to - 1));
+	}
+
+	@Test
+	void aSinglePathAlwaysReachesTheSameEnding() {
+		addPages(3);
+		choice(1, 2);
+		choice(2, 3);
+		var report = PlaythroughSimulator.of(book, 10).run(5_000, 1);
+		assertEquals(5_000, report.getPlaythroughs());
+		assertEquals(Map.of(pages.get(2), 5_000L), report.getEndings());
+		assertEquals(5_000, report.getLengthCount(2));
+		assertEquals(2.0, report.getAverageLength());
+		assertEquals(5_000, report.getVisits(1));
+	}
+
+	@Test
+	void uniformChoicesReachTheEndingsEvenly() {
+		addPages(3);
+		choice(1, 2);
+		choice(1, 3);
+		var report = PlaythroughSimulator.of(book, 10).run(100_000, 42);
+		var endings = report.getEndings();
+		assertEquals(100_000, endings.get(pages.get(1)) + endings.get(pages.get(2)));
+		assertTrue(Math.abs(endings.get(pages.get(1)) - 50_000) < 2_000, "Ending 2 reached " + endings.get(pages.get(1)) + " times");
+	}
+
+	@Test
+	void weightedChoicesFollowTheirWeights() {
+		addPages(4);
+		choice(1, 2);
+		choice(1, 3);
+		choice(1, 4);
+		PlaythroughSimulator.ChoiceWeights weights = (page, label, target) -> target == pages.get(3) ? 0 : target == pages.get(1) ? 3 : 1;
+		var report = PlaythroughSimulator.of(book, weights, 10).run(100_000, 7);
+		var endings = report.getEndings();
+		assertFalse(endings.containsKey(pages.get(3)));
+		assertTrue(Math.abs(endings.get(pages.get(1)) - 75_000) < 2_000, "Ending 2 reached " + endings.get(pages.get(1)) + " times");
+	}
+
+	@Test
+	void loopsWithoutExitTrapThePlaythroughs() {
+		addPages(4);
+		choice(1, 2);
+		choice(1, 4);
+		choice(2, 3);
+		choice(3, 2);
+		var report = PlaythroughSimulator.of(book, 100).run(10_000, 3);
+		assertEquals(10_000, report.getTrapped() + report.getEndingsReached());
+		assertEquals(Map.of(pages.get(1), report.getTrapped()), report.getTrapEntries());
+		assertEquals(0, report.getStopped());
+	}
+
+	@Test
+	void aPageWhoseOnlyChoiceLeadsOutsideTheBookIsATrap() {
+		addPages(3);
+		choice(1, 2);
+		choice(1, 3);
+		pages.get(1).addChoice("dehors", new Page("page hors du livre"));
+		var report = PlaythroughSimulator.of(book, 100).run(10_000, 4);
+		assertEquals(Map.of(pages.get(2), report.getEndingsReached()), report.getEndings());
+		assertEquals(Map.of(pages.get(1), report.getTrapped()), report.getTrapEntries());
+		assertTrue(report.getTrapped() > 0);
+		assertEquals(Map.of(pages.get(1), 1L), report.getDroppedChoices());
+	}
+
+	@Test
+	void aPageWhoseChoicesAllWeighNothingIsATrap() {
+		addPages(3);
+		choice(1, 2);
+		choice(1, 3);
+		choice(2, 3);
+		var report = PlaythroughSimulator.of(book, (page, choice, target) -> page == pages.get(1) ? 0 : 1, 100)
+				.run(10_000, 6);
+		assertEquals(Map.of(pages.get(2), report.getEndingsReached()), report.getEndings());
+		assertEquals(Map.of(pages.get(1), report.getTrapped()), report.getTrapEntries());
+		assertEquals(10_000, report.getPlaythroughs());
+		assertEquals(Map.of(pages.get(1), 1L), report.getDroppedChoices());
+	}
+
+	@Test
+	void longPlaythroughsAreStopped() {
+		addPages(3);
+		choice(1, 2);
+		choice(2, 1);
+		choice(2, 3);
+		var report = PlaythroughSimulator.of(book, 4).run(10_000, 5);
+		// Arrêtée si elle revient deux fois à la page 1 : 1/4 des parties
+		assertTrue(Math.abs(report.getStopped() - 2_500) < 300, "Stopped " + report.getStopped() + " times");
+		assertEquals(-1, PlaythroughSimulator.of(book, 4).run(0, 5).getLengthPercentile(50));
+		assertEquals(2, report.getLengthPercentile(50));
+		assertEquals(4, report.getLengthPercentile(100));
+	}
+
+	@Test
+	void theSameSeedGivesTheSameReport() {
+		addPages(5);
+		choice(1, 2);
+		choice(1, 3);
+		choice(2, 1);
+		choice(2, 4);
+		choice(3, 5);
+		choice(3, 1);
+		var simulator = PlaythroughSimulator.of(book, 50);
+		var pool = new ForkJoinPool(4);
+		try {
+			var first = simulator.run(200_000, 99, pool);
+			var second = simulator.run(200_000, 99, pool);
+			assertEquals(first.getEndings(), second.getEndings());
+			for (int i = 0; i < pages.size(); i++) {
+				assertEquals(first.getVisits(i), second.getVisits(i));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void emptyBookHasNoPlaythrough() {
+		var report = PlaythroughSimulator.of(book, 10).run(1_000, 1);
+		assertEquals(0, report.getPlaythroughs());
+		assertTrue(report.getEndings().isEmpty());
+	}
+
+	@Test
+	void aPlaythroughMustMakeAChoice() {
+		assertThrows(IllegalArgumentException.class, () -> PlaythroughSimulator.of(book, 0));
+	}
+
+	@Test
+	void millionsOfPlaythroughsOnABigBook() {
+		final int count = 1_000;
+		addPages(count);
+		for (int i = 1; i < count; i++) {
+			for (int step = 1; step <= 10 && i + step <= count; step++) {
+				choice(i, i + step);
+			}
+		}
+		long start = System.nanoTime();
+		var report = PlaythroughSimulator.of(book, count).run(1_000_000, 11);
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		assertEquals(1_000_000, report.getPlaythroughs());
+		assertEquals(Map.of(pages.get(count - 1), 1_000_000L), report.getEndings());
+		assertEquals(1_000_000, report.getVisits(0));
+		assertTrue(report.getAverageLength() > 100 && report.getAverageLength() < 300, "Average length " + report.getAverageLength());
+		assertTrue(elapsedMillis < 20_000, "Simulation took " + elapsedMillis + " ms");
+	}
+}
@@ -0,0 +1,96 @@
+package org.helmo.gbeditor.models;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * This class is used to test the PublishValidator class
+ */
+class PublishValidatorTest {
+
+	private Author author;
+
+	@BeforeEach
+	void setUp() {
+		author = new Author("name", "firstName", 123456);
+	}
+
+	private Book bookWithChain(int idBook, int pages) {
+		var book = new Book("title", author, "summary", new ISBN(2, 123456, idBook).toString());
+		Page previous = null;
+		for (int i = 0; i < pages; i++) {
+			var page = new Page("page " + i);
+			book.addPage(page, i);
+			if (previous != null) {
+				previous.addChoice("next", page);
+			}
+			previous = page;
+		}
+		return book;
+	}
+
+	@Test
+	void validBookHasNoProblem() {
+		assertTrue(PublishValidator.validate(bookWithChain(1, 3)).isEmpty());
+	}
+
+	@Test
+	void bookWithoutPageHasNoFirstPage() {
+		assertEquals(List.of(PublishProblem.NO_FIRST_PAGE), PublishValidator.validate(bookWithChain(1, 0)));
+	}
+
+	@Test
+	void orphanPagesAreReported() {
+		var book = bookWithChain(1, 2);
+		book.addPage(new Page("orphan"), 2);
+		assertEquals(List.of(PublishProblem.ORPHAN_PAGES), PublishValidator.validate(book));
+	}
+
+	@Test
+	void choicesToPagesOutsideTheBookAreReported() {
+		var book = bookWithChain(1, 2);
+		book.getPages().get(1).addChoice("away", new Page("not in the book"));
+		assertEquals(List.of(PublishProblem.CHOICE_TO_MISSING_PAGE), PublishValidator.validate(book));
+	}
+
+	@Test
+	void invalidIsbnIsReported() {
+		var valid = new ISBN(2, 123456, 1);
+		var wrongChecksum = String.format("2-123456-01-%d", (valid.getCheckSum() + 1) % 10);
+		// Un livre lu depuis un fichier modifié à la main, son isbn n'a pas été vérifié
+		var book = new Book("title", author, "summary", valid.toString()) {
+			@Override
+			public String getMetadata(BookDataFields field) {
+				return field == BOOK_ISBN ? wrongChecksum : super.getMetadata(field);
+			}
+		};
+		book.addPage(new Page("page"), 0);
+		assertEquals(List.of(PublishProblem.INVALID_ISBN), PublishValidator.validate(book));
+	}
+
+	@Test
+	void batchReportsEachBook() {
+		List<Book> books = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			books.add(bookWithChain(i, i % 5 == 0 ? 0 : 20));
+		}
+		var pool = new ForkJoinPool(4);
+		try {
+			var report = PublishValidator.validateAll(books, pool);
+			assertFalse(report.isValid());
+			assertEquals(40, report.getValidIsbns().size());
+			assertEquals(10, report.getRejected().size());
+			assertEquals(List.of(PublishProblem.NO_FIRST_PAGE), report.getProblems(books.get(5).getMetadata(BOOK_ISBN)));
+			assertTrue(report.getProblems(books.get(1).getMetadata(BOOK_ISBN)).isEmpty());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -10,9 +10,9 @@ import org.helmo.gbeditor.presenters.viewmodels.PageViewModel;
 import org.helmo.gbeditor.repositories.RepositoryInterface;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -121,6 +121,35 @@ class BookDetailsPresenterTest {
 		assertEquals(0, book.getPages().size());
 	}
 
+	@Test
+	void addPageTellsTheViewWhereThePageIsInserted() {
+		presenter.displayBook(book);
+		presenter.addPage("first", 0);
+		presenter.addPage("second", 0);
+		verify(view, times(2)).pageInserted(eq(0), any());
+		verify(view, never()).refresh();
+	}
+
+	@Test
+	void movePageDownTellsTheViewTheNewPosition() {
+		presenter.displayBook(book);
+		presenter.addPage("first", 0);
+		presenter.addPage("second", 1);
+		presenter.movePageDown(new PageViewModel(book.getPages().get(0)));
+		verify(view, times(1)).pageMoved(0, 1);
+	}
+
+	@Test
+	void deletingAPageTellsTheViewWhichChoicesDisappear() {
+		presenter.displayBook(book);
+		presenter.addPage("first", 0);
+		presenter.addPage("second", 1);
+		book.getPages().get(0).addChoice("next", book.getPages().get(1));
+		presenter.confirmPageDeletion(new PageViewModel(book.getPages().get(1)));
+		verify(view, times(1)).pageRemoved(1);
+		verify(view, times(1)).choiceRemoved(0, "next");
+	}
+
 	@Test
 	void removePageWithNullPageDoesNotUpdateTheBook() {
 		presenter.displayBook(book);
@@ -158,6 +187,40 @@ class BookDetailsPresenterTest {
 		assertEquals(pVM.toPage(), book.getPages().iterator().next());
 	}
 
+	@Test
+	void updatedPageIsNoLongerModified() {
+		book.addPage(new Page("test"), 0);
+		presenter.displayBook(book);
+		var pVM = presenter.getPageById(book.getPages().get(0).getId());
+		pVM.setContent("test2");
+		assertTrue(pVM.hasBeenModified());
+		presenter.updatePage(pVM);
+		verify(view).pageChanged(0, pVM);
+		assertFalse(pVM.hasBeenModified());
+		assertEquals("test2", pVM.getContent());
+	}
+
+	@Test
+	void cancelledEditGivesBackTheContentAndTheChoicesOfThePage() {
+		var first = new Page("first");
+		var second = new Page("second");
+		book.addPage(first, 0);
+		book.addPage(second, 1);
+		first.addChoice("go", second);
+		presenter.displayBook(book);
+		var pVM = presenter.getPageById(first.getId());
+		var target = pVM.getChoices().get("go");
+		pVM.setContent("changed");
+		pVM.removeChoice("go");
+		presenter.cancelPageEdit(pVM);
+		verify(view).pageChanged(0, pVM);
+		verify(view, times(1)).setBookToDisplay(any());
+		assertEquals("first", pVM.getContent());
+		assertSame(target, pVM.getChoices().get("go"));
+		assertFalse(pVM.hasBeenModified());
+		verify(repo, never()).updatesAddBook(book);
+	}
+
 	@Test
 	void updateNullPageDoesNotUpdatePage() {
 		presenter.displayBook(book);
@@ -244,6 +307,35 @@ class BookDetailsPresenterTest {
 		assertEquals(ite.next(), presenter.getPageById(page.getId()).toPage());
 	}
 
+	@Test
+	void getPageByIdGivesTheViewModelOfTheView() {
+		book.addPage(new Page("test"), 0);
+		presenter.displayBook(book);
+		var displayed = ArgumentCaptor.forClass(BookViewModel.class);
+		verify(view).setBookToDisplay(displayed.capture());
+		var id = book.getPages().get(0).getId();
+		assertSame(displayed.getValue().getPages().get(0), presenter.getPageById(id));
+		assertSame(presenter.getPageById(id), presenter.getPageById(id));
+	}
+
+	@Test
+	void pageMissingFromTheViewLeadsToTheViewModelsOfTheView() {
+		var first = new Page("first");
+		book.addPage(first, 0);
+		presenter.displayBook(book);
+		var shown = presenter.getPageById(first.getId());
+		var added = new Page("added");
+		book.addPage(added, 1);
+		added.addChoice("back", first);
+		assertSame(shown, presenter.getPageById(added.getId()).getChoices().get("back"));
+	}
+
+	@Test
+	void getPageByIdWithUnknownIdReturnsNull() {
+		presenter.displayBook(book);
+		assertNull(presenter.getPageById("unknownId"));
+	}
+
 	@Test
 	void getPageByIdWithNullIdReturnsNull() {
 		presenter.displayBook(book);
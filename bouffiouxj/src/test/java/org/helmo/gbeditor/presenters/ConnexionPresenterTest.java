@@ -50,6 +50,24 @@ class ConnexionPresenterTest {
 		verify(view, atMostOnce()).changeView(ViewsEnum.MAIN);
 	}
 
+	@Test
+	void connectSetsTheRegisteredAuthorAsCurrent() {
+		var author = new Author("name", "firstName", 123456);
+		when(repo.registerAuthor("name", "firstName")).thenReturn(author);
+		presenter.connect("name", "firstName");
+		verify(repo).setCurrentAuthor(author);
+		verify(view).changeView(ViewsEnum.MAIN);
+	}
+
+	@Test
+	void connectDoesNotWorkWhenTheAuthorCanNotBeRegistered() {
+		when(repo.registerAuthor("name", "firstName")).thenThrow(new IllegalArgumentException());
+		presenter.connect("name", "firstName");
+		verify(repo, never()).setCurrentAuthor(any(Author.class));
+		verify(view, never()).changeView(ViewsEnum.MAIN);
+		verify(view).display("Erreur de connexion");
+	}
+
 	@Test
 	void connectDoesNotWorkWithNullName() {
 		presenter.connect(null, "firstName");
@@ -2,6 +2,8 @@ package org.helmo.gbeditor.presenters;
 
 import org.helmo.gbeditor.models.Author;
 import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.ISBN;
+import org.helmo.gbeditor.models.Page;
 import org.helmo.gbeditor.presenters.interfaces.MainViewInterface;
 import org.helmo.gbeditor.presenters.viewmodels.BookViewModel;
 import org.helmo.gbeditor.repositories.RepositoryInterface;
@@ -9,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -67,6 +70,21 @@ class MainPresenterTest {
 		verifyNoInteractions(view);
 	}
 
+	@Test
+	void publishValidBooksOnlyPublishesTheBooksPassingTheChecks() {
+		var valid = new Book("a", author, "a", new ISBN(2, author.getIdentifier(), 1).toString());
+		valid.addPage(new Page("first"), 0);
+		var withoutPage = new Book("b", author, "b", new ISBN(2, author.getIdentifier(), 2).toString());
+		when(repo.getCurrentAuthor()).thenReturn(author);
+		when(repo.getBooksFromAuthor(author)).thenReturn(new LinkedHashSet<>(List.of(valid, withoutPage)));
+		presenter.publishValidBooks();
+		assertTrue(valid.isPublished());
+		assertFalse(withoutPage.isPublished());
+		verify(repo).updatesAddBook(valid);
+		verify(repo, never()).updatesAddBook(withoutPage);
+		verify(view).display(startsWith("1 livre(s) publié(s)"));
+	}
+
 	@Test
 	void askAuthorNameCallsSetAuthorNameInTheView() {
 		when(repo.getCurrentAuthor()).thenReturn(author);
@@ -0,0 +1,67 @@
+package org.helmo.gbeditor.presenters.viewmodels;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookViewModelTest {
+	private Book book;
+	private Page first;
+	private Page second;
+
+	@BeforeEach
+	void setUp() {
+		book = new Book("title", new Author("name", "firstName", 123456), "summary", "2-123456-01-6");
+		first = new Page("first");
+		second = new Page("second");
+		book.addPage(first, 0);
+		book.addPage(second, 1);
+	}
+
+	@Test
+	void choicesShareTheViewModelsOfThePages() {
+		first.addChoice("next", second);
+		var pages = new BookViewModel(book).getPages();
+		assertSame(pages.get(1), pages.get(0).getChoices().get("next"));
+	}
+
+	@Test
+	void cyclesOfChoicesCanBeDisplayed() {
+		first.addChoice("next", second);
+		second.addChoice("back", first);
+		var pages = new BookViewModel(book).getPages();
+		assertSame(pages.get(0), pages.get(1).getChoices().get("back"));
+	}
+
+	@Test
+	void cyclesOfChoicesCanBeConvertedBack() {
+		first.addChoice("next", second);
+		second.addChoice("back", first);
+		var pages = new BookViewModel(book).toBook().getPages();
+		assertSame(pages.get(1), pages.get(0).getChoices().get("next"));
+		assertSame(pages.get(0), pages.get(1).getChoices().get("back"));
+	}
+
+	@Test
+	void pageViewModelOfACycleCanBeConvertedBack() {
+		first.addChoice("next", second);
+		second.addChoice("back", first);
+		var page = new PageViewModel(first).toPage();
+		assertEquals(first, page.getChoices().get("next").getChoices().get("back"));
+	}
+
+	@Test
+	void viewModelsOfTheSameIsbnAreEqual() {
+		var other = new Book("other title", new Author("name", "firstName", 123456), "summary", "2123456016");
+		var viewModel = new BookViewModel(book);
+		assertEquals(viewModel, new BookViewModel(other));
+		assertEquals(viewModel.hashCode(), new BookViewModel(other).hashCode());
+		assertEquals(book.getIsbn().toLong(), viewModel.getIsbnKey());
+		viewModel.setIsbn("2-123456-02-7");
+		assertNotEquals(viewModel, new BookViewModel(other));
+	}
+}
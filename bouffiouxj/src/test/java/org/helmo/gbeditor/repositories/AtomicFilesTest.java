@@ -0,0 +1,50 @@
+package org.helmo.gbeditor.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicFilesTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void writtenFileReplacesTheCurrentOneAndKeepsItAsBackup() throws IOException {
+		var path = tempDir.resolve("books.json");
+		AtomicFiles.writeString(path, "old");
+		AtomicFiles.writeString(path, "new");
+		assertEquals("new", Files.readString(path));
+		assertEquals("old", Files.readString(AtomicFiles.sibling(path, AtomicFiles.BACKUP_SUFFIX)));
+		assertFalse(Files.exists(AtomicFiles.sibling(path, AtomicFiles.TEMP_SUFFIX)));
+	}
+
+	@Test
+	void failedWriteLeavesTheFileAndNoTemporaryFile() throws IOException {
+		var path = tempDir.resolve("books.json");
+		AtomicFiles.writeString(path, "old");
+		assertThrows(IOException.class, () -> AtomicFiles.write(path, out -> {
+			out.write('[');
+			throw new IOException("disk full");
+		}));
+		assertEquals("old", Files.readString(path));
+		assertFalse(Files.exists(AtomicFiles.sibling(path, AtomicFiles.TEMP_SUFFIX)));
+	}
+
+	@Test
+	void errorWhileWritingLeavesNoTemporaryFile() throws IOException {
+		var path = tempDir.resolve("books.json");
+		AtomicFiles.writeString(path, "old");
+		assertThrows(StackOverflowError.class, () -> AtomicFiles.write(path, out -> {
+			out.write('[');
+			throw new StackOverflowError();
+		}));
+		assertEquals("old", Files.readString(path));
+		assertFalse(Files.exists(AtomicFiles.sibling(path, AtomicFiles.TEMP_SUFFIX)));
+	}
+}
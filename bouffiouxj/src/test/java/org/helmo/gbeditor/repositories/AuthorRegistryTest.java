@@ -0,0 +1,106 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.exceptions.IllegalAuthorNameException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorRegistryTest {
+
+	private final AuthorRegistry authors = new AuthorRegistry();
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void registeredAuthorIsFoundByNameAndIdentifier() {
+		var author = authors.register("name", "firstName");
+		assertSame(author, authors.get("name", "firstName"));
+		assertSame(author, authors.get(author.getIdentifier()));
+		assertNull(authors.get("firstName", "name"));
+	}
+
+	@Test
+	void registeringTwiceGivesTheSameAuthor() {
+		var author = authors.register("name", "firstName");
+		assertSame(author, authors.register("name", "firstName"));
+		assertEquals(1, authors.values().size());
+	}
+
+	@Test
+	void identifierIsTheSameInEveryRegistry() {
+		assertEquals(authors.register("name", "firstName").getIdentifier(),
+				new AuthorRegistry().register("name", "firstName").getIdentifier());
+	}
+
+	@Test
+	void usedIdentifierIsNotGivenAgain() {
+		int identifier = new AuthorRegistry().register("name", "firstName").getIdentifier();
+		var other = new Author("other", "author", identifier);
+		assertTrue(authors.add(other));
+		var author = authors.register("name", "firstName");
+		assertNotEquals(identifier, author.getIdentifier());
+		assertSame(other, authors.get(identifier));
+		assertSame(author, authors.get(author.getIdentifier()));
+	}
+
+	@Test
+	void manyAuthorsGetDistinctIdentifiers() {
+		for (int i = 0; i < 10_000; i++) {
+			authors.register("name" + i, "firstName");
+		}
+		assertEquals(10_000, authors.values().stream().mapToInt(Author::getIdentifier).distinct().count());
+	}
+
+	@Test
+	void authorWithAnIdentifierAlreadyUsedIsFoundByName() {
+		var first = new Author("name", "firstName", 123456);
+		var second = new Author("other", "author", 123456);
+		assertTrue(authors.add(first));
+		assertTrue(authors.add(second));
+		assertFalse(authors.add(new Author("name", "firstName", 654321)));
+		assertSame(second, authors.get("other", "author"));
+		assertSame(first, authors.get(123456));
+	}
+
+	@Test
+	void invalidNamesAreRefused() {
+		assertThrows(IllegalAuthorNameException.class, () -> authors.register(" ", "firstName"));
+		assertTrue(authors.values().isEmpty());
+	}
+
+	@Test
+	void authorsAreReadBackFromTheirFile() throws IOException {
+		var path = tempDir.resolve("books.json.authors");
+		var author = authors.register("name", "firstName");
+		authors.add(new Author("other", "author", 123456));
+		authors.writeTo(path);
+		var read = new AuthorRegistry();
+		read.readFrom(path);
+		assertEquals(authors.values(), read.values());
+		assertEquals(author.getIdentifier(), read.get("name", "firstName").getIdentifier());
+		assertEquals("other", read.get(123456).getName());
+	}
+
+	@Test
+	void invalidAuthorsOfTheFileAreIgnored() throws IOException {
+		var path = tempDir.resolve("books.json.authors");
+		Files.writeString(path, "[{\"name\":\"name\",\"firstName\":\"firstName\",\"identifier\":123456},"
+				+ "{\"name\":\" \",\"firstName\":\"firstName\",\"identifier\":654321},null]");
+		authors.readFrom(path);
+		assertEquals(1, authors.values().size());
+		assertNull(authors.get(654321));
+	}
+
+	@Test
+	void missingFileGivesNoAuthor() throws IOException {
+		authors.readFrom(tempDir.resolve("missing.authors"));
+		assertTrue(authors.values().isEmpty());
+	}
+}
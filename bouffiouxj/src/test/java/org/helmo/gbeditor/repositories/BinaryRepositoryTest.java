@@ -0,0 +1,92 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+
+import static org.helmo.gbeditor.models.BookDataFields.TITLE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryRepositoryTest extends RepositoryBehaviourTest {
+
+	@TempDir
+	Path tempDir;
+	private Path bookPath;
+
+	@BeforeEach
+	void setUp() {
+		bookPath = tempDir.resolve("books.bin");
+	}
+
+	@Override
+	protected RepositoryInterface openRepository() {
+		return new BinaryRepository(bookPath, tempDir);
+	}
+
+	@Test
+	void pagesAreOnlyDecodedWhenFirstNeeded() {
+		openRepository().updatesAddBook(bookWithTwoPages());
+		var loaded = openRepository().getBook(ISBN);
+		assertFalse(loaded.arePagesLoaded());
+		assertEquals(2, loaded.getPages().size());
+	}
+
+	@Test
+	void libraryIsSavedWhileBooksStillHaveDeferredPages() {
+		var repo = openRepository();
+		repo.updatesAddBook(bookWithTwoPages());
+		var other = new Book("title2", owner, "summary2", "2-123456-02-7");
+		other.addPage(new Page("other"), 0);
+		repo.updatesAddBook(other);
+		var reopened = openRepository();
+		var deferred = reopened.getBook("2-123456-02-7");
+		var edited = reopened.getBook(ISBN);
+		assertFalse(deferred.arePagesLoaded());
+		assertFalse(edited.arePagesLoaded());
+		edited.setMetadata(TITLE, "new title");
+		assertTrue(reopened.saveBooks(new LinkedHashSet<>(reopened.getBooks())));
+		reopened.updatesAddBook(edited);
+		var saved = openRepository();
+		assertEquals("new title", saved.getBook(ISBN).getMetadata(TITLE));
+		assertEquals(2, saved.getBook(ISBN).getPages().size());
+		assertEquals("other", saved.getBook("2-123456-02-7").getPages().get(0).getContent());
+	}
+
+	@Test
+	void missingOrInvalidFileGivesAnEmptyLibrary() throws IOException {
+		assertTrue(new BinaryRepository(bookPath, tempDir).getBooks().isEmpty());
+		Files.writeString(bookPath, "not a binary library");
+		assertTrue(new BinaryRepository(bookPath, tempDir).getBooks().isEmpty());
+	}
+
+	@Test
+	void corruptedFileIsRecoveredFromTheBackup() throws IOException {
+		var repo = openRepository();
+		repo.updatesAddBook(bookWithTwoPages());
+		repo.updatesAddBook(new Book("title2", owner, "summary2", "2-123456-02-7"));
+		Files.write(bookPath, new byte[]{0x47, 0x42});
+		var recovered = openRepository().getBooks();
+		assertEquals(1, recovered.size());
+		assertEquals(2, recovered.iterator().next().getPages().size());
+	}
+
+	@Test
+	void jsonLibraryCanBeConvertedBackAndForth() throws IOException {
+		var jsonPath = tempDir.resolve("books.json");
+		var books = new LinkedHashSet<Book>();
+		books.add(bookWithTwoPages());
+		books.add(new Book("title2", owner, "summary2", "2-123456-02-7"));
+		new JsonRepository(jsonPath, tempDir).saveBooks(books);
+		assertEquals(2, LibraryConverter.jsonToBinary(jsonPath, bookPath));
+		var convertedJson = tempDir.resolve("converted.json");
+		assertEquals(2, LibraryConverter.binaryToJson(bookPath, convertedJson));
+		assertEquals(new JsonRepository(jsonPath, tempDir).getBooks(), new JsonRepository(convertedJson, tempDir).getBooks());
+	}
+}
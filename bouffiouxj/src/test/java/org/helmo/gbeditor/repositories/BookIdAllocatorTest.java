@@ -0,0 +1,81 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.ISBN;
+import org.helmo.gbeditor.repositories.exceptions.BookIdsExhaustedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookIdAllocatorTest {
+
+	private final BookIdAllocator bookIds = new BookIdAllocator();
+
+	@Test
+	void idIsClaimedOnlyOnce() {
+		assertTrue(bookIds.claim(ISBN.of(2, 123456, 1)));
+		assertFalse(bookIds.claim(ISBN.of(2, 123456, 1)));
+		assertTrue(bookIds.claim(ISBN.of(2, 654321, 1)));
+	}
+
+	@Test
+	void releasedIdCanBeClaimedAgain() {
+		bookIds.claim(ISBN.of(2, 123456, 1));
+		bookIds.release(ISBN.of(2, 123456, 1));
+		assertTrue(bookIds.claim(ISBN.of(2, 123456, 1)));
+	}
+
+	@Test
+	void firstFreeIsTheSmallestUnusedId() {
+		assertEquals(0, bookIds.firstFree(123456));
+		bookIds.claim(ISBN.of(2, 123456, 0));
+		bookIds.claim(ISBN.of(2, 123456, 1));
+		bookIds.claim(ISBN.of(2, 123456, 3));
+		assertEquals(2, bookIds.firstFree(123456));
+		assertEquals(2, bookIds.firstFree(123456));
+		assertEquals(0, bookIds.firstFree(654321));
+	}
+
+	@Test
+	void allocateReservesTheId() {
+		assertEquals(ISBN.of(2, 123456, 0), bookIds.allocate(2, 123456));
+		assertEquals(ISBN.of(2, 123456, 1), bookIds.allocate(2, 123456));
+		assertEquals(98, bookIds.freeCount(123456));
+		assertEquals(100, bookIds.freeCount(654321));
+	}
+
+	@Test
+	void allocationFailsWhenTheAuthorUsesAllIds() {
+		for (int i = 0; i < BookIdAllocator.IDS_PER_AUTHOR; i++) {
+			assertEquals(i, bookIds.allocate(2, 123456).getIdBook());
+		}
+		assertEquals(0, bookIds.freeCount(123456));
+		assertThrows(BookIdsExhaustedException.class, () -> bookIds.allocate(2, 123456));
+		bookIds.release(ISBN.of(2, 123456, 42));
+		assertEquals(42, bookIds.allocate(2, 123456).getIdBook());
+	}
+
+	@Test
+	void concurrentAllocationsGiveDistinctIds() throws InterruptedException, ExecutionException {
+		var executor = Executors.newFixedThreadPool(4);
+		try {
+			var tasks = new ArrayList<Callable<ISBN>>();
+			for (int i = 0; i < BookIdAllocator.IDS_PER_AUTHOR; i++) {
+				tasks.add(() -> bookIds.allocate(2, 123456));
+			}
+			var isbns = new HashSet<ISBN>();
+			for (var future : executor.invokeAll(tasks)) {
+				isbns.add(future.get());
+			}
+			assertEquals(BookIdAllocator.IDS_PER_AUTHOR, isbns.size());
+			assertEquals(0, bookIds.freeCount(123456));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
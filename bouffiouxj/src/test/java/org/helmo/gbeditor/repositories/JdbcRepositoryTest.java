@@ -0,0 +1,120 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Page;
+import org.helmo.gbeditor.repositories.exceptions.ConnectionFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcRepositoryTest extends RepositoryBehaviourTest {
+
+	@TempDir
+	Path tempDir;
+	private String url;
+	private final List<JdbcRepository> opened = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		url = "jdbc:derby:memory:library-" + UUID.randomUUID() + ";create=true";
+	}
+
+	@AfterEach
+	void tearDown() {
+		opened.forEach(JdbcRepository::close);
+	}
+
+	@Override
+	protected JdbcRepository openRepository() {
+		var repo = new JdbcRepository(url, tempDir);
+		opened.add(repo);
+		return repo;
+	}
+
+	@Test
+	void movingAPageOnlyUpdatesTheTwoPagesSwapped() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		for (int i = 0; i < 10; i++) {
+			book.addPage(new Page("page " + i), 2 + i);
+		}
+		repo.updatesAddBook(book);
+		book.movePageDown(book.getPages().get(5));
+		repo.updatesAddBook(book);
+		assertEquals(2, repo.getLastWrittenRows());
+	}
+
+	@Test
+	void addingAChoiceOnlyInsertsOneRow() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		var pages = book.getPages();
+		pages.get(1).addChoice("back", pages.get(0));
+		repo.updatesAddBook(book);
+		assertEquals(1, repo.getLastWrittenRows());
+	}
+
+	@Test
+	void unchangedBookWritesNoRow() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		repo.updatesAddBook(book);
+		assertEquals(0, repo.getLastWrittenRows());
+	}
+
+	@Test
+	void choiceLabelAsLongAsTheColumnIsSaved() {
+		var label = "a".repeat(JdbcRepository.MAX_CHOICE_LABEL);
+		var book = bookWithTwoPages();
+		var pages = book.getPages();
+		pages.get(1).addChoice(label, pages.get(0));
+		openRepository().updatesAddBook(book);
+		var reloaded = openRepository().getBook(ISBN).getPages();
+		assertSame(reloaded.get(0), reloaded.get(1).getChoices().get(label));
+	}
+
+	@Test
+	void choiceLabelLongerThanTheColumnIsReportedAndNotSaved() {
+		var repo = openRepository();
+		List<String> failures = new ArrayList<>();
+		repo.addSaveListener(failures::add);
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		var pages = book.getPages();
+		pages.get(1).addChoice("a".repeat(JdbcRepository.MAX_CHOICE_LABEL + 1), pages.get(0));
+		pages.get(0).setContent("changed");
+		repo.updatesAddBook(book);
+		assertEquals(1, failures.size());
+		assertTrue(failures.get(0).contains(ISBN));
+		var reloaded = openRepository().getBook(ISBN).getPages();
+		assertEquals("first", reloaded.get(0).getContent());
+		assertTrue(reloaded.get(1).getChoices().isEmpty());
+	}
+
+	@Test
+	void failedSaveOfANewBookIsReportedAndTheBookIsNotAdded() {
+		var repo = openRepository();
+		List<String> failures = new ArrayList<>();
+		repo.addSaveListener(failures::add);
+		var book = bookWithTwoPages();
+		book.getPages().get(0).addChoice("b".repeat(JdbcRepository.MAX_CHOICE_LABEL + 1), book.getPages().get(1));
+		repo.updatesAddBook(book);
+		assertEquals(1, failures.size());
+		assertNull(repo.getBook(ISBN));
+		assertNull(openRepository().getBook(ISBN));
+	}
+
+	@Test
+	void unreachableDatabaseThrowsException() {
+		assertThrows(ConnectionFailedException.class, () -> new JdbcRepository("jdbc:unknown:database", tempDir));
+	}
+}
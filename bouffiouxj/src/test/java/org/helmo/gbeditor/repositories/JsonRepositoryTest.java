@@ -0,0 +1,487 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.ISBN;
+import org.helmo.gbeditor.models.Page;
+import org.helmo.gbeditor.repositories.exceptions.IllegalImageExtensionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
+import static org.helmo.gbeditor.models.BookDataFields.TITLE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JsonRepositoryTest extends RepositoryBehaviourTest {
+
+	@TempDir
+	Path tempDir;
+	private Path bookPath;
+	private Author author;
+
+	@BeforeEach
+	void setUp() {
+		bookPath = tempDir.resolve("books.json");
+		author = new Author("name", "firstName", 123456);
+	}
+
+	@Override
+	protected RepositoryInterface openRepository() {
+		return new JsonRepository(bookPath, tempDir);
+	}
+
+	@Test
+	void journaledUpdatesAreReplayedOnStartup() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		book.addPage(new Page("content"), 0);
+		repo.updatesAddBook(book);
+		var reopened = new JsonRepository(bookPath, tempDir, true);
+		assertEquals(1, reopened.getBook("2-123456-01-6").getPages().size());
+	}
+
+	@Test
+	void journaledUpdatesDoNotRewriteTheLibrary() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		assertFalse(Files.exists(bookPath));
+		assertTrue(Files.exists(tempDir.resolve("books.json.journal")));
+	}
+
+	@Test
+	void journaledBookWithALoopIsSavedAgainAfterReloading() {
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		var first = new Page("first");
+		var second = new Page("second");
+		book.addPage(first, 0);
+		book.addPage(second, 1);
+		first.addChoice("go", second);
+		second.addChoice("back", first);
+		new JsonRepository(bookPath, tempDir, true).updatesAddBook(book);
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var reloaded = repo.getBook("2-123456-01-6");
+		repo.updatesAddBook(reloaded);
+		assertTrue(repo.saveBooks(new LinkedHashSet<>(repo.getBooks())));
+		var pages = new JsonRepository(bookPath, tempDir, true).getBook("2-123456-01-6").getPages();
+		assertSame(pages.get(0), pages.get(1).getChoices().get("back"));
+	}
+
+	@Test
+	void editingAnUnopenedBookKeepsItsPagesInEveryMode() {
+		boolean[][] modes = {{false, false}, {false, true}, {true, false}, {true, true}};
+		for (var mode : modes) {
+			var path = tempDir.resolve("books-" + mode[0] + "-" + mode[1] + ".json");
+			var book = new Book("title", author, "summary", "2-123456-01-6");
+			book.addPage(new Page("first"), 0);
+			book.addPage(new Page("second"), 1);
+			new JsonRepository(path, tempDir, mode[0]).updatesAddBook(book);
+			var repo = new JsonRepository(path, tempDir, mode[0], mode[1] ? Runnable::run : null);
+			var unopened = repo.getBook("2-123456-01-6");
+			assertTrue(repo.deleteBook(unopened));
+			repo.flush();
+			unopened.setMetadata(TITLE, "New title");
+			repo.updatesAddBook(unopened);
+			repo.flush();
+			var reloaded = new JsonRepository(path, tempDir, mode[0]).getBook("2-123456-01-6");
+			assertEquals("New title", reloaded.getMetadata(TITLE));
+			assertEquals(2, reloaded.getPages().size(), "journaled=" + mode[0] + " async=" + mode[1]);
+		}
+	}
+
+	@Test
+	void journaledDeletionIsReplayedOnStartup() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		repo.updatesAddBook(book);
+		assertTrue(repo.deleteBook(book));
+		assertTrue(new JsonRepository(bookPath, tempDir, true).getBooks().isEmpty());
+	}
+
+	@Test
+	void journaledSaveBooksWritesASnapshotAndClearsTheJournal() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		var books = new LinkedHashSet<>(repo.getBooks());
+		books.add(new Book("title2", author, "summary2", "2-123456-02-7"));
+		assertTrue(repo.saveBooks(books));
+		assertFalse(Files.exists(tempDir.resolve("books.json.journal")));
+		assertEquals(2, new JsonRepository(bookPath, tempDir, true).getBooks().size());
+	}
+
+	@Test
+	void compactionFoldsTheJournalIntoTheSnapshot() throws InterruptedException {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		repo.updatesAddBook(book);
+		for (int i = 0; i < BookJournal.COMPACTION_THRESHOLD; i++) {
+			book.addPage(new Page("content " + i), i);
+			repo.updatesAddBook(book);
+		}
+		var compacted = tempDir.resolve("books.json.journal.old");
+		for (int i = 0; i < 50 && Files.exists(compacted); i++) {
+			Thread.sleep(100);
+		}
+		assertFalse(Files.exists(compacted));
+		assertTrue(Files.exists(bookPath));
+		var reopened = new JsonRepository(bookPath, tempDir, true);
+		assertEquals(BookJournal.COMPACTION_THRESHOLD, reopened.getBook(book.getMetadata(BOOK_ISBN)).getPages().size());
+	}
+
+	@Test
+	void pagesOfABookGivenANewIsbnAreFoundAfterCompaction() throws IOException, InterruptedException {
+		writeLibrary(bookPath, 1, 1);
+		var json = Files.readString(bookPath);
+		Files.writeString(bookPath, json.replace("]", "," + json.substring(1)));
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var first = repo.getBook(new ISBN(2, 100000, 0).toString());
+		var duplicate = repo.getBook(new ISBN(2, 100000, 1).toString());
+		assertFalse(duplicate.arePagesLoaded());
+		for (int i = 0; i < BookJournal.COMPACTION_THRESHOLD; i++) {
+			first.setMetadata(TITLE, "title " + i);
+			repo.updatesAddBook(first);
+		}
+		var compacted = tempDir.resolve("books.json.journal.old");
+		for (int i = 0; i < 50 && Files.exists(compacted); i++) {
+			Thread.sleep(100);
+		}
+		assertFalse(Files.exists(compacted));
+		assertEquals(2, duplicate.getPages().size());
+	}
+
+	@Test
+	void backgroundUpdatesOfABookAreCoalesced() throws IOException {
+		var repo = new JsonRepository(bookPath, tempDir, true, Runnable::run);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		for (int i = 0; i < 5; i++) {
+			book.addPage(new Page("content" + i), i);
+			repo.updatesAddBook(book);
+		}
+		repo.flush();
+		assertEquals(1, Files.readAllLines(tempDir.resolve("books.json.journal")).size());
+		assertEquals(5, new JsonRepository(bookPath, tempDir, true).getBook("2-123456-01-6").getPages().size());
+	}
+
+	@Test
+	void backgroundWritesNotifyTheListeners() {
+		var repo = new JsonRepository(bookPath, tempDir, false, Runnable::run);
+		var saved = new int[1];
+		repo.addSaveListener(new SaveListener() {
+			@Override
+			public void saved(int count) {
+				saved[0] += count;
+			}
+
+			@Override
+			public void saveFailed(String message) {
+				fail(message);
+			}
+		});
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		repo.flush();
+		assertTrue(saved[0] > 0);
+		assertEquals(1, new JsonRepository(bookPath, tempDir).getBooks().size());
+	}
+
+	@Test
+	void backgroundWriteFailuresAreReported() {
+		var repo = new JsonRepository(tempDir.resolve("missing").resolve("books.json"), tempDir, false, Runnable::run);
+		var failures = new StringBuilder();
+		repo.addSaveListener(failures::append);
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		repo.flush();
+		assertFalse(failures.toString().isEmpty());
+	}
+
+	@Test
+	void savingReplacesTheFileAndKeepsABackup() {
+		var repo = openRepository();
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		repo.updatesAddBook(new Book("title2", author, "summary2", "2-123456-02-7"));
+		assertTrue(Files.exists(tempDir.resolve("books.json.bak")));
+		assertFalse(Files.exists(tempDir.resolve("books.json.tmp")));
+	}
+
+	@Test
+	void truncatedLibraryIsRecoveredFromTheBackup() throws IOException {
+		var repo = openRepository();
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		repo.updatesAddBook(new Book("title2", author, "summary2", "2-123456-02-7"));
+		var content = Files.readString(bookPath);
+		Files.writeString(bookPath, content.substring(0, content.length() / 2));
+		var recovered = openRepository().getBooks();
+		assertEquals(1, recovered.size());
+		assertEquals("title", recovered.iterator().next().getMetadata(TITLE));
+	}
+
+	@Test
+	void getBookFindsTheBookByIsbn() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		repo.updatesAddBook(book);
+		assertSame(book, repo.getBook("2-123456-01-6"));
+		assertNull(repo.getBook("2-123456-02-7"));
+	}
+
+	@Test
+	void getBooksFromAuthorOnlyReturnsTheBooksOfTheAuthor() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var other = new Author("other", "author", 654321);
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		repo.updatesAddBook(new Book("title", other, "summary", "2-654321-01-0"));
+		assertEquals(1, repo.getBooksFromAuthor(author).size());
+		assertEquals(1, repo.getBooksFromAuthor(other).size());
+	}
+
+	@Test
+	void indexesStayConsistentAfterDeletion() {
+		var repo = new JsonRepository(bookPath, tempDir);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		repo.updatesAddBook(book);
+		assertTrue(repo.deleteBook(book));
+		assertNull(repo.getBook("2-123456-01-6"));
+		assertTrue(repo.getBooksFromAuthor(author).isEmpty());
+		assertFalse(repo.deleteBook(book));
+	}
+
+	@Test
+	void updatesAddBookReplacesTheIndexedBook() {
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		repo.updatesAddBook(new Book("title", author, "summary", "2-123456-01-6"));
+		var newVersion = new Book("new title", author, "summary", "2-123456-01-6");
+		repo.updatesAddBook(newVersion);
+		assertSame(newVersion, repo.getBook("2-123456-01-6"));
+		assertEquals(1, repo.getBooksFromAuthor(author).size());
+	}
+
+	@Test
+	void loadedChoicesPointToThePagesOfTheBook() {
+		var repo = new JsonRepository(bookPath, tempDir);
+		var book = new Book("title", author, "summary", "2-123456-01-6");
+		var page1 = new Page("page 1");
+		var page2 = new Page("page 2");
+		book.addPage(page1, 0);
+		book.addPage(page2, 1);
+		page1.addChoice("go", page2);
+		repo.updatesAddBook(book);
+		var loaded = new JsonRepository(bookPath, tempDir).getBook("2-123456-01-6");
+		assertSame(loaded.getPages().get(1), loaded.getPages().get(0).getChoices().get("go"));
+	}
+
+	@Test
+	void pagesAreOnlyReadWhenFirstNeeded() {
+		new JsonRepository(bookPath, tempDir).updatesAddBook(bookWithTwoPages());
+		var loaded = new JsonRepository(bookPath, tempDir).getBook(ISBN);
+		assertFalse(loaded.arePagesLoaded());
+		assertEquals(2, loaded.getPages().size());
+	}
+
+	@Test
+	void writingTheLibraryKeepsThePagesOfBooksNotOpened() {
+		var repo = new JsonRepository(bookPath, tempDir);
+		repo.updatesAddBook(bookWithTwoPages());
+		repo.updatesAddBook(new Book("title2", author, "summary2", "2-123456-02-7"));
+		var reopened = new JsonRepository(bookPath, tempDir);
+		reopened.updatesAddBook(reopened.getBook("2-123456-02-7"));
+		assertEquals(2, new JsonRepository(bookPath, tempDir).getBook(ISBN).getPages().size());
+	}
+
+	@Test
+	void journaledMetadataUpdateKeepsThePagesNotLoaded() {
+		new JsonRepository(bookPath, tempDir).updatesAddBook(bookWithTwoPages());
+		var repo = new JsonRepository(bookPath, tempDir, true);
+		var book = repo.getBook(ISBN);
+		book.setMetadata(TITLE, "new title");
+		repo.updatesAddBook(book);
+		assertEquals(2, new JsonRepository(bookPath, tempDir, true).getBook(ISBN).getPages().size());
+	}
+
+	@Test
+	void isbnIsWrittenAsItsFourNumbers() throws IOException {
+		openRepository().updatesAddBook(bookWithTwoPages());
+		new JsonRepository(bookPath, tempDir, true).updatesAddBook(new Book("title", author, "summary", "2-123456-02-7"));
+		var isbn = "\"isbn\":{\"linguisticGroup\":2,\"idAuthor\":123456,\"idBook\":%d,\"checkSum\":%d}";
+		assertTrue(Files.readString(bookPath).contains(String.format(isbn, 1, 6)));
+		assertTrue(Files.readString(tempDir.resolve("books.json.journal")).contains(String.format(isbn, 2, 7)));
+	}
+
+	@Test
+	void loadingGivesANewIsbnToDuplicatedBooks() throws IOException {
+		writeLibrary(bookPath, 1, 1);
+		var json = Files.readString(bookPath);
+		Files.writeString(bookPath, json.replace("]", "," + json.substring(1)));
+		assertEquals(2, new JsonRepository(bookPath, tempDir).getBooks().size());
+	}
+
+	@Test
+	void duplicatedBookGetsTheFirstFreeBookId() throws IOException {
+		writeLibrary(bookPath, 1, 1);
+		var json = Files.readString(bookPath);
+		Files.writeString(bookPath, json.replace("]", "," + json.substring(1)));
+		var repo = new JsonRepository(bookPath, tempDir);
+		assertNotNull(repo.getBook(new ISBN(2, 100000, 0).toString()));
+		assertNotNull(repo.getBook(new ISBN(2, 100000, 1).toString()));
+	}
+
+	@Test
+	void duplicatedBookDoesNotTakeTheIsbnOfABookFurtherInTheFile() throws IOException {
+		var first = new Book("first", author, "summary", new ISBN(2, 123456, 0).toString());
+		var next = new Book("next", author, "summary", new ISBN(2, 123456, 1).toString());
+		Files.writeString(bookPath, BookJsonWriter.toJson(List.of(first, first, next)));
+		var repo = new JsonRepository(bookPath, tempDir);
+		assertEquals(3, repo.getBooks().size());
+		assertEquals("first", repo.getBook(new ISBN(2, 123456, 0).toString()).getMetadata(TITLE));
+		assertEquals("next", repo.getBook(new ISBN(2, 123456, 1).toString()).getMetadata(TITLE));
+		assertEquals("first", repo.getBook(new ISBN(2, 123456, 2).toString()).getMetadata(TITLE));
+	}
+
+	@Test
+	void duplicatesBeyondTheBookIdsOfTheAuthorAreDropped() throws IOException {
+		writeLibrary(bookPath, 1, 1);
+		var json = Files.readString(bookPath);
+		var book = json.substring(1, json.length() - 1);
+		Files.writeString(bookPath, "[" + String.join(",", Collections.nCopies(101, book)) + "]");
+		var repo = new JsonRepository(bookPath, tempDir);
+		assertEquals(100, repo.getBooks().size());
+		assertThrows(IllegalArgumentException.class, () -> repo.getFreeBookId(new Author("name0", "firstName", 100000)));
+	}
+
+	@Test
+	@Tag("performance")
+	void loadingALargeLibraryIsFastAndDoesNotCopyIt() throws IOException {
+		var bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "The allocations of a thread can not be measured on this JVM");
+		var threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(), "The allocations of a thread are not measured");
+		writeLibrary(bookPath, 500, 100);
+		long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		long start = System.nanoTime();
+		var repo = new JsonRepository(bookPath, tempDir);
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+		assertEquals(50_000, repo.getBooks().size());
+		assertTrue(elapsedMillis < 10_000, "Loading took " + elapsedMillis + " ms");
+		assertTrue(allocated / 50_000 < 16 * 1024, "Loading allocated " + allocated / 50_000 + " bytes per book");
+	}
+
+	@Test
+	void copiedImageIsNamedAfterItsContent() throws IOException {
+		var images = tempDir.resolve("images");
+		var cover = writePng(tempDir.resolve("cover.png"), 1);
+		var copied = Path.of(new JsonRepository(bookPath, images).copyImage(cover.toString()));
+		assertEquals(images, copied.getParent());
+		assertTrue(copied.getFileName().toString().matches("[0-9a-f]{64}\\.png"));
+		assertArrayEquals(Files.readAllBytes(cover), Files.readAllBytes(copied));
+		try (var files = Files.list(images)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	void rejectedImageLeavesNothingInTheImageDirectory() throws IOException {
+		var images = tempDir.resolve("images");
+		var fake = tempDir.resolve("fake.png");
+		Files.writeString(fake, "not a png at all");
+		var repo = new JsonRepository(bookPath, images);
+		assertThrows(IllegalImageExtensionException.class, () -> repo.copyImage(fake.toString()));
+		assertFalse(Files.exists(images));
+	}
+
+	@Test
+	void sameImageIsOnlyCopiedOnce() throws IOException {
+		var images = tempDir.resolve("images");
+		var first = writePng(tempDir.resolve("first.png"), 7);
+		var second = writePng(tempDir.resolve("second.png"), 7);
+		var repo = new JsonRepository(bookPath, images);
+		assertEquals(repo.copyImage(first.toString()), repo.copyImage(second.toString()));
+		assertFalse(Files.exists(images.resolve("second.png")));
+	}
+
+	@Test
+	void imagesWithTheSameNameDoNotOverwriteEachOther() throws IOException {
+		var images = tempDir.resolve("images");
+		Files.createDirectories(tempDir.resolve("a"));
+		Files.createDirectories(tempDir.resolve("b"));
+		var repo = new JsonRepository(bookPath, images);
+		var first = repo.copyImage(writePng(tempDir.resolve("a/cover.png"), 1).toString());
+		var second = repo.copyImage(writePng(tempDir.resolve("b/cover.png"), 2).toString());
+		assertNotEquals(first, second);
+		assertTrue(Files.exists(Path.of(first)));
+	}
+
+	@Test
+	void sweepOnlyDeletesTheImagesNoBookUses() throws IOException {
+		var images = tempDir.resolve("images");
+		var store = new ImageStore(images, 0);
+		Path used;
+		Path unused;
+		try (var channel = FileChannel.open(writePng(tempDir.resolve("used.png"), 1))) {
+			used = store.put(channel, "png");
+		}
+		try (var channel = FileChannel.open(writePng(tempDir.resolve("unused.png"), 2))) {
+			unused = store.put(channel, "png");
+		}
+		var other = Files.writeString(images.resolve("other.png"), "not from the store");
+		var book = new Book("title", author, "summary", "2-123456-01-6", used.toString());
+		Files.setLastModifiedTime(used, FileTime.fromMillis(0));
+		Files.setLastModifiedTime(unused, FileTime.fromMillis(0));
+		assertEquals(1, store.sweep(store.referenceCounts(List.of(book))));
+		assertTrue(Files.exists(used));
+		assertFalse(Files.exists(unused));
+		assertTrue(Files.exists(other));
+	}
+
+	@Test
+	void sweepKeepsTheImagesJustImported() throws IOException {
+		var images = tempDir.resolve("images");
+		var store = new ImageStore(images, ImageStore.DEFAULT_GRACE_MILLIS);
+		try (var channel = FileChannel.open(writePng(tempDir.resolve("cover.png"), 1))) {
+			var stored = store.put(channel, "png");
+			assertEquals(0, store.sweep(Map.of()));
+			assertTrue(Files.exists(stored));
+		}
+	}
+
+	private static Path writePng(Path path, int content) throws IOException {
+		var bytes = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A, (byte) content, 1, 2, 3};
+		return Files.write(path, bytes);
+	}
+
+	/**
+	 * Writes a library of authors * booksPerAuthor books (of two pages linked by a choice) in the format of the repository
+	 */
+	private static void writeLibrary(Path path, int authors, int booksPerAuthor) throws IOException {
+		try (var writer = Files.newBufferedWriter(path)) {
+			writer.write('[');
+			for (int a = 0; a < authors; a++) {
+				for (int b = 0; b < booksPerAuthor; b++) {
+					if (a + b > 0) {
+						writer.write(',');
+					}
+					int idAuthor = 100000 + a;
+					var isbn = new ISBN(2, idAuthor, b).toString();
+					var page2 = "{\"id\":\"" + UUID.randomUUID() + "\",\"content\":\"end\",\"choices\":{}}";
+					var page1 = "{\"id\":\"" + UUID.randomUUID() + "\",\"content\":\"start\",\"choices\":{\"go\":" + page2 + "}}";
+					writer.write("{\"metadata\":{\"author\":{\"name\":\"name" + a + "\",\"firstName\":\"firstName\",\"identifier\":" + idAuthor + "},"
+							+ "\"metadata\":{\"TITLE\":\"title " + b + "\",\"AUTHOR_MATRICULE\":\"" + idAuthor + "\",\"BOOK_ISBN\":\"" + isbn + "\","
+							+ "\"SUMMARY\":\"summary\",\"IMAGE_PATH\":\"\"}},\"pages\":[" + page1 + "," + page2 + "],\"isPublished\":false}");
+				}
+			}
+			writer.write(']');
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package org.helmo.gbeditor.repositories;
+
+import org.helmo.gbeditor.models.Author;
+import org.helmo.gbeditor.models.Book;
+import org.helmo.gbeditor.models.Page;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+
+import static org.helmo.gbeditor.models.BookDataFields.BOOK_ISBN;
+import static org.helmo.gbeditor.models.BookDataFields.TITLE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour expected from every implementation of RepositoryInterface.
+ * Each implementation has a test class extending this one that opens its repository on the same storage each time.
+ */
+abstract class RepositoryBehaviourTest {
+
+	protected static final String ISBN = "2-123456-01-6";
+	protected final Author owner = new Author("name", "firstName", 123456);
+
+	/**
+	 * Opens (or reopens) the repository on the storage of the test
+	 *
+	 * @return a new repository reading the storage of the test
+	 */
+	protected abstract RepositoryInterface openRepository();
+
+	protected Book bookWithTwoPages() {
+		var book = new Book("title", owner, "summary", ISBN, "some/path");
+		var first = new Page("first");
+		var second = new Page("second");
+		book.addPage(first, 0);
+		book.addPage(second, 1);
+		first.addChoice("go", second);
+		return book;
+	}
+
+	@Test
+	void savedBookIsFoundAfterReopening() {
+		openRepository().updatesAddBook(bookWithTwoPages());
+		var reloaded = openRepository().getBook(ISBN);
+		assertEquals("title", reloaded.getMetadata(TITLE));
+		assertEquals(owner, reloaded.getAuthor());
+		assertEquals(2, reloaded.getPages().size());
+	}
+
+	@Test
+	void bookIsFoundByItsIsbnWithoutDashes() {
+		openRepository().updatesAddBook(bookWithTwoPages());
+		var repo = openRepository();
+		assertEquals(ISBN, repo.getBook("2123456016").getMetadata(BOOK_ISBN));
+		assertNull(repo.getBook("2123456017"));
+	}
+
+	@Test
+	void bookWithALoopIsSavedAgainAfterReloading() {
+		var book = bookWithTwoPages();
+		var pages = book.getPages();
+		pages.get(1).addChoice("back", pages.get(0));
+		openRepository().updatesAddBook(book);
+		var repo = openRepository();
+		var reloaded = repo.getBook(ISBN);
+		reloaded.setMetadata(TITLE, "new title");
+		repo.updatesAddBook(reloaded);
+		var reloadedPages = openRepository().getBook(ISBN).getPages();
+		assertSame(reloadedPages.get(1), reloadedPages.get(0).getChoices().get("go"));
+		assertSame(reloadedPages.get(0), reloadedPages.get(1).getChoices().get("back"));
+	}
+
+	@Test
+	void freeBookIdSkipsTheIdsOfTheSavedBooks() {
+		var repo = openRepository();
+		assertEquals(0, repo.getFreeBookId(owner));
+		repo.updatesAddBook(new Book("title", owner, "summary", "2-123456-00-5"));
+		repo.updatesAddBook(bookWithTwoPages());
+		assertEquals(2, openRepository().getFreeBookId(owner));
+		assertTrue(repo.deleteBook(repo.getBook("2-123456-00-5")));
+		assertEquals(0, repo.getFreeBookId(owner));
+	}
+
+	@Test
+	void editedMetadataIsReloaded() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		book.setMetadata(TITLE, "new title");
+		repo.updatesAddBook(book);
+		assertEquals("new title", openRepository().getBook(ISBN).getMetadata(TITLE));
+	}
+
+	@Test
+	void editingABookWhosePagesWereNeverOpenedKeepsItsPages() {
+		openRepository().updatesAddBook(bookWithTwoPages());
+		var repo = openRepository();
+		var book = repo.getBook(ISBN);
+		assertTrue(repo.deleteBook(book));
+		book.setMetadata(TITLE, "new title");
+		repo.updatesAddBook(book);
+		repo.flush();
+		var reloaded = openRepository().getBook(ISBN);
+		assertEquals("new title", reloaded.getMetadata(TITLE));
+		assertEquals(2, reloaded.getPages().size());
+	}
+
+	@Test
+	void movedPageKeepsItsNewPosition() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		book.movePageDown(book.getPages().get(0));
+		repo.updatesAddBook(book);
+		var pages = openRepository().getBook(ISBN).getPages();
+		assertEquals("second", pages.get(0).getContent());
+		assertEquals("first", pages.get(1).getContent());
+	}
+
+	@Test
+	void reloadedChoicesPointToThePagesOfTheBook() {
+		openRepository().updatesAddBook(bookWithTwoPages());
+		var pages = openRepository().getBook(ISBN).getPages();
+		assertSame(pages.get(1), pages.get(0).getChoices().get("go"));
+	}
+
+	@Test
+	void removedChoiceIsNotReloaded() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		book.getPages().get(0).removeChoice("go");
+		repo.updatesAddBook(book);
+		assertTrue(openRepository().getBook(ISBN).getPages().get(0).getChoices().isEmpty());
+	}
+
+	@Test
+	void removedPageIsNotReloaded() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		book.removePage(book.getPages().get(1));
+		repo.updatesAddBook(book);
+		var pages = openRepository().getBook(ISBN).getPages();
+		assertEquals(1, pages.size());
+		assertTrue(pages.get(0).getChoices().isEmpty());
+	}
+
+	@Test
+	void publishedStateIsReloaded() {
+		var book = bookWithTwoPages();
+		book.publish();
+		openRepository().updatesAddBook(book);
+		assertTrue(openRepository().getBook(ISBN).isPublished());
+	}
+
+	@Test
+	void deletedBookIsNotReloaded() {
+		var repo = openRepository();
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		assertTrue(repo.deleteBook(book));
+		assertFalse(repo.deleteBook(book));
+		assertNull(openRepository().getBook(ISBN));
+	}
+
+	@Test
+	void booksFromAuthorOnlyContainTheBooksOfTheAuthor() {
+		var repo = openRepository();
+		var other = new Author("other", "author", 654321);
+		repo.updatesAddBook(bookWithTwoPages());
+		repo.updatesAddBook(new Book("title", other, "summary", "2-654321-01-0"));
+		var reopened = openRepository();
+		assertEquals(1, reopened.getBooksFromAuthor(owner).size());
+		assertEquals(1, reopened.getBooksFromAuthor(other).size());
+		assertEquals(2, reopened.getAuthors().size());
+	}
+
+	@Test
+	void registeredAuthorWithoutBooksIsFoundAfterReopening() {
+		var author = openRepository().registerAuthor("new", "author");
+		var reopened = openRepository();
+		assertTrue(reopened.getAuthors().contains(author));
+		assertEquals(author.getIdentifier(), reopened.registerAuthor("new", "author").getIdentifier());
+	}
+
+	@Test
+	void registeredAuthorsDoNotReuseTheIdentifiersOfTheBooks() {
+		var repo = openRepository();
+		repo.updatesAddBook(bookWithTwoPages());
+		assertEquals(owner.getIdentifier(), repo.registerAuthor("name", "firstName").getIdentifier());
+		int identifier = new AuthorRegistry().register("other", "author").getIdentifier();
+		var bookAuthor = new Author("book", "author", identifier);
+		repo.updatesAddBook(new Book("title", bookAuthor, "summary", org.helmo.gbeditor.models.ISBN.of(2, identifier, 0).toString()));
+		assertNotEquals(identifier, openRepository().registerAuthor("other", "author").getIdentifier());
+	}
+
+	@Test
+	void addedAuthorIsKeptAfterItsBooksAreDeleted() {
+		var repo = openRepository();
+		repo.addAuthor(owner);
+		var book = bookWithTwoPages();
+		repo.updatesAddBook(book);
+		repo.deleteBook(book);
+		assertTrue(openRepository().getAuthors().contains(owner));
+	}
+
+	@Test
+	void saveBooksReplacesTheLibrary() {
+		var repo = openRepository();
+		repo.updatesAddBook(bookWithTwoPages());
+		var books = new LinkedHashSet<Book>();
+		books.add(new Book("title2", owner, "summary2", "2-123456-02-7"));
+		assertTrue(repo.saveBooks(books));
+		var reopened = openRepository();
+		assertNull(reopened.getBook(ISBN));
+		assertNotNull(reopened.getBook("2-123456-02-7"));
+	}
+}